@@ -0,0 +1,19 @@
+package com.msci.carrental.benchmark;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+/**
+ * Spring Boot configuration of the benchmarks: the car rental service and repositories on an
+ * in-memory HSQLDB database, without the web layer. The database starts empty, benchmarks fill
+ * it with a {@link BenchmarkDataset}.
+ *
+ */
+@SpringBootApplication(scanBasePackages = "com.msci.carrental")
+@EnableJpaRepositories(basePackages = "com.msci.carrental.repository")
+@EnableTransactionManagement
+@EntityScan(basePackages = "com.msci.carrental.model")
+public class BenchmarkApplication {
+}
@@ -0,0 +1,18 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.CountryCheckerService;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CountryCheckerService} implementation allowing every car in every country immediately,
+ * so benchmarks measure the car rental service rather than the (slow) external checker.
+ *
+ */
+@Component
+public class BenchmarkCountryChecker implements CountryCheckerService {
+    @Override
+    public boolean isCountriesAllowedForCar(final String vin, final String[] countries) {
+        return true;
+    }
+}
@@ -0,0 +1,231 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.availability.AvailabilityCalendar;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.type.Fuel;
+
+import java.io.Closeable;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Spring context of the benchmarks with a generated dataset of cars and bookings. The data is
+ * generated from a fixed seed, so every run measures the same data.
+ * <p>
+ * Every car has the same number of bookings. They follow each other with a few free days in
+ * between, the first one opening {@value #FIRST_BOOKING_OFFSET_DAYS} days from today, so some
+ * bookings are over, some are running and most of them are in the future.
+ *
+ */
+public final class BenchmarkDataset implements Closeable {
+    /** Seed of the generated data. */
+    public static final long SEED = 20170915L;
+    /** Offset of the opening day of the first booking of every car from today. */
+    public static final int FIRST_BOOKING_OFFSET_DAYS = -10;
+    /** Maximal length of a booking in days, besides the opening day. */
+    public static final int MAX_BOOKING_DAYS = 6;
+    /** Maximal number of free days between two bookings of a car, besides the first one. */
+    private static final int MAX_GAP_DAYS = 3;
+    /** Number of rows inserted by a JDBC batch. */
+    private static final int INSERT_BATCH_SIZE = 10000;
+    /** Car makes and models of the generated cars. */
+    private static final String[][] MODELS = {{"Opel", "Astra"}, {"Volkswagen", "Golf"},
+        {"Mazda", "3"}, {"BMW", "X5"}, {"Seat", "Ateca"}, {"Ford", "Focus"}, {"Toyota", "Prius"},
+        {"Audi", "A4"}, {"Volvo", "XC90"}, {"Suzuki", "Swift"}};
+    /** Spring context. */
+    private final ConfigurableApplicationContext context;
+    /** VIN values of the cars, sorted. */
+    private final List<String> vins;
+    /** Booked periods of the cars: opening and ending day of every booking, car by car. */
+    private final LocalDate[][] bookings;
+
+    /**
+     * Ctor.
+     *
+     * @param context
+     *            Spring context
+     * @param vins
+     *            VIN values of the cars
+     * @param bookings
+     *            booked periods of the cars
+     */
+    private BenchmarkDataset(
+            final ConfigurableApplicationContext context,
+            final List<String> vins,
+            final LocalDate[][] bookings) {
+        this.context = context;
+        this.vins = vins;
+        this.bookings = bookings;
+    }
+
+    /**
+     * Starts the Spring context and fills the database.
+     *
+     * @param carNr
+     *            number of cars
+     * @param bookingsPerCar
+     *            number of bookings of every car
+     * @param args
+     *            command line arguments of the Spring context, e.g. properties overriding the
+     *            application properties in <code>--name=value</code> form
+     * @return dataset
+     */
+    public static BenchmarkDataset create(
+            final int carNr,
+            final int bookingsPerCar,
+            final String... args) {
+        final ConfigurableApplicationContext context =
+                new SpringApplicationBuilder(BenchmarkApplication.class).web(false).run(args);
+        final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        final Random random = new Random(SEED);
+        final List<String> vins = insertCars(jdbcTemplate, random, carNr);
+        final LocalDate[][] bookings = insertBookings(jdbcTemplate, random, vins, bookingsPerCar);
+        // The bookings are inserted behind the service, the in-memory structures are reloaded
+        context.getBean(BookingScheduleIndex.class).load();
+        context.getBean(AvailabilityCalendar.class).invalidate();
+        return new BenchmarkDataset(context, vins, bookings);
+    }
+
+    /**
+     * Gets a bean of the Spring context.
+     *
+     * @param type
+     *            type of the bean
+     * @param <T>
+     *            type of the bean
+     * @return bean
+     */
+    public <T> T getBean(final Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public List<String> getVins() {
+        return vins;
+    }
+
+    /**
+     * Gets the booked periods of a car.
+     *
+     * @param carIndex
+     *            index of the car in the list of VIN values
+     * @return opening and ending days of the bookings, in pairs
+     */
+    public LocalDate[] getBookings(final int carIndex) {
+        return bookings[carIndex].clone();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    /**
+     * Inserts the cars.
+     *
+     * @param jdbcTemplate
+     *            JDBC template
+     * @param random
+     *            random generator
+     * @param carNr
+     *            number of cars
+     * @return sorted VIN values of the cars
+     */
+    private static List<String> insertCars(
+            final JdbcTemplate jdbcTemplate,
+            final Random random,
+            final int carNr) {
+        final List<String> vins = new ArrayList<>(carNr);
+        final List<Object[]> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < carNr; i++) {
+            final String[] model = MODELS[random.nextInt(MODELS.length)];
+            final String vin = String.format("VIN%08d", i);
+            vins.add(vin);
+            rows.add(new Object[] {vin, model[0], model[1], 2010 + random.nextInt(8),
+                Fuel.values()[random.nextInt(Fuel.values().length)].name(),
+                String.format("P%07d", i),
+                CarCategory.values()[random.nextInt(CarCategory.values().length)].name()});
+            if (rows.size() == INSERT_BATCH_SIZE || i == carNr - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO CAR (VIN, MAKER, MODEL, YEAR_OF_PRODUCTION, "
+                        + "FUEL_TYPE, PLATE, CAR_CATEGORY) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        Collections.sort(vins);
+        return vins;
+    }
+
+    /**
+     * Inserts the bookings, and moves the booking ID sequence after their IDs. The sequence is
+     * left alone if there are no bookings, so datasets without bookings work with any ID
+     * generation.
+     *
+     * @param jdbcTemplate
+     *            JDBC template
+     * @param random
+     *            random generator
+     * @param vins
+     *            VIN values of the cars
+     * @param bookingsPerCar
+     *            number of bookings of every car
+     * @return booked periods of the cars
+     */
+    private static LocalDate[][] insertBookings(
+            final JdbcTemplate jdbcTemplate,
+            final Random random,
+            final List<String> vins,
+            final int bookingsPerCar) {
+        final LocalDate today = LocalDate.now();
+        final LocalDate[][] bookings = new LocalDate[vins.size()][];
+        final List<Object[]> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        long bookingId = 0;
+        for (int car = 0; car < vins.size(); car++) {
+            bookings[car] = new LocalDate[bookingsPerCar * 2];
+            LocalDate fromDate = today.plusDays(FIRST_BOOKING_OFFSET_DAYS);
+            for (int i = 0; i < bookingsPerCar; i++) {
+                final LocalDate toDate = fromDate.plusDays(random.nextInt(MAX_BOOKING_DAYS + 1));
+                bookings[car][i * 2] = fromDate;
+                bookings[car][i * 2 + 1] = toDate;
+                rows.add(new Object[] {++bookingId, Date.valueOf(fromDate), Date.valueOf(toDate),
+                    CarUsage.values()[random.nextInt(CarUsage.values().length)].name(),
+                    vins.get(car)});
+                if (rows.size() == INSERT_BATCH_SIZE) {
+                    insertBookingRows(jdbcTemplate, rows);
+                }
+                fromDate = toDate.plusDays(1 + random.nextInt(MAX_GAP_DAYS + 1));
+            }
+        }
+        insertBookingRows(jdbcTemplate, rows);
+        if (bookingId > 0) {
+            jdbcTemplate.execute("ALTER SEQUENCE BOOKING_SEQ RESTART WITH " + (bookingId + 1));
+        }
+        return bookings;
+    }
+
+    /**
+     * Inserts a batch of bookings and clears the list of rows.
+     *
+     * @param jdbcTemplate
+     *            JDBC template
+     * @param rows
+     *            booking rows
+     */
+    private static void insertBookingRows(
+            final JdbcTemplate jdbcTemplate,
+            final List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO BOOKING (BOOKING_ID, FROM_DATE, TO_DATE, "
+                    + "USAGE_TYPE, BOOKED_CAR) VALUES (?, ?, ?, ?, ?)", rows);
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.type.CarUsage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of saving bookings by concurrent threads: one booking per transaction, or a batch of
+ * bookings in one transaction with JDBC batched inserts and pooled booking IDs. The score is
+ * the number of transactions, bookings per second are the score multiplied by the batch size.
+ * <p>
+ * The booking IDs are allocated from the pooled sequence, or generated by identity columns as
+ * before the sequence. The identity runs are the baseline: every insert is a separate statement
+ * returning the generated ID.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class BookingSaveBenchmark {
+    /** Number of cars. */
+    private static final int CAR_NR = 1000;
+    /** Command line argument of the Spring context switching to identity column IDs. */
+    private static final String IDENTITY_ARG =
+            "--spring.jpa.properties.hibernate.ejb.identifier_generator_strategy_provider="
+                    + IdentityIdGeneratorStrategyProvider.class.getName();
+    /** Number of bookings saved in one transaction. */
+    @Param({"1", "50"})
+    private int batchSize;
+    /** Generation of the booking IDs: pooled <code>sequence</code> or <code>identity</code>. */
+    @Param({"sequence", "identity"})
+    private String idGeneration;
+    /** Dataset. */
+    private BenchmarkDataset dataset;
+    /** Booking repository. */
+    private BookingRepository bookingRepository;
+    /** Cars of the bookings. */
+    private List<Car> cars;
+
+    @Setup
+    public void setUp() {
+        dataset = "identity".equals(idGeneration) ? BenchmarkDataset.create(CAR_NR, 0, IDENTITY_ARG)
+                : BenchmarkDataset.create(CAR_NR, 0);
+        bookingRepository = dataset.getBean(BookingRepository.class);
+        cars = dataset.getBean(CarRepository.class).findAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    public Object save(final BookingGenerator generator) {
+        if (batchSize == 1) {
+            return bookingRepository.save(generator.next(cars));
+        }
+        final List<Booking> bookings = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            bookings.add(generator.next(cars));
+        }
+        return bookingRepository.save(bookings);
+    }
+
+    /**
+     * Generator of the saved bookings, one for every thread. The repository saves bookings
+     * without checking them, so their periods are random.
+     *
+     */
+    @State(Scope.Thread)
+    public static class BookingGenerator {
+        /** Random generator. */
+        private final Random random = new Random(BenchmarkDataset.SEED);
+        /** Date the booking periods start from. */
+        private final LocalDate today = LocalDate.now();
+
+        /**
+         * Creates a new booking of a random car.
+         *
+         * @param cars
+         *            cars to book
+         * @return booking
+         */
+        public Booking next(final List<Car> cars) {
+            final Booking booking = new Booking();
+            booking.setBookedCar(cars.get(random.nextInt(cars.size())));
+            booking.setFromDate(today.plusDays(random.nextInt(365)));
+            booking.setToDate(booking.getFromDate().plusDays(random.nextInt(7)));
+            booking.setUsage(CarUsage.values()[random.nextInt(CarUsage.values().length)]);
+            return booking;
+        }
+    }
+}
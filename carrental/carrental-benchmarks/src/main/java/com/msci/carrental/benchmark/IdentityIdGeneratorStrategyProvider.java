@@ -0,0 +1,22 @@
+package com.msci.carrental.benchmark;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+
+/**
+ * Replaces the generator of JPA sequence generator mappings by identity columns, the ID generation
+ * of <code>GenerationType.AUTO</code> on HSQLDB that bookings used before the pooled sequence.
+ * Every insert then needs its own statement to get the generated ID, so inserts are not batched.
+ *
+ */
+public class IdentityIdGeneratorStrategyProvider implements IdentifierGeneratorStrategyProvider {
+    @Override
+    public Map<String, Class<?>> getStrategies() {
+        return Collections.<String, Class<?>> singletonMap(SequenceStyleGenerator.class.getName(),
+                IdentityGenerator.class);
+    }
+}
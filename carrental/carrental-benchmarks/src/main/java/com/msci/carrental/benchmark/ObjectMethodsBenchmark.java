@@ -0,0 +1,143 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.type.Fuel;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the hand-written <code>equals</code>, <code>hashCode</code> and
+ * <code>toString</code> methods of the model classes, against the reflective builders of Commons
+ * Lang they replaced.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObjectMethodsBenchmark {
+    /** Car. */
+    private Car car;
+    /** Copy of the car. */
+    private Car otherCar;
+    /** Booking. */
+    private Booking booking;
+    /** Copy of the booking. */
+    private Booking otherBooking;
+
+    @Setup
+    public void setUp() {
+        car = createCar();
+        otherCar = createCar();
+        booking = createBooking(car);
+        otherBooking = createBooking(otherCar);
+    }
+
+    @Benchmark
+    public boolean carEquals() {
+        return car.equals(otherCar);
+    }
+
+    @Benchmark
+    public boolean carReflectionEquals() {
+        return EqualsBuilder.reflectionEquals(car, otherCar);
+    }
+
+    @Benchmark
+    public int carHashCode() {
+        return car.hashCode();
+    }
+
+    @Benchmark
+    public int carReflectionHashCode() {
+        return HashCodeBuilder.reflectionHashCode(car);
+    }
+
+    @Benchmark
+    public String carToString() {
+        return car.toString();
+    }
+
+    @Benchmark
+    public String carReflectionToString() {
+        return ToStringBuilder.reflectionToString(car, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+
+    @Benchmark
+    public boolean bookingEquals() {
+        return booking.equals(otherBooking);
+    }
+
+    @Benchmark
+    public boolean bookingReflectionEquals() {
+        return EqualsBuilder.reflectionEquals(booking, otherBooking);
+    }
+
+    @Benchmark
+    public int bookingHashCode() {
+        return booking.hashCode();
+    }
+
+    @Benchmark
+    public int bookingReflectionHashCode() {
+        return HashCodeBuilder.reflectionHashCode(booking);
+    }
+
+    @Benchmark
+    public String bookingToString() {
+        return booking.toString();
+    }
+
+    @Benchmark
+    public String bookingReflectionToString() {
+        return ToStringBuilder.reflectionToString(booking, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+
+    /**
+     * Creates a car.
+     *
+     * @return car
+     */
+    private static Car createCar() {
+        return new Car("WVWZZZ1KZ6W000001", "Volkswagen", "Golf", 2016, Fuel.DIESEL, "AAA111",
+                CarCategory.HATCHBACK);
+    }
+
+    /**
+     * Creates a booking.
+     *
+     * @param car
+     *            booked car
+     * @return booking
+     */
+    private static Booking createBooking(final Car car) {
+        final Booking booking = new Booking();
+        booking.setBookingId(42);
+        booking.setFromDate(LocalDate.of(2030, 1, 1));
+        booking.setToDate(LocalDate.of(2030, 1, 5));
+        booking.setUsage(CarUsage.FOREIGN);
+        booking.setBookedCar(car);
+        return booking;
+    }
+}
@@ -0,0 +1,167 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.AvailableCar;
+import com.msci.carrental.repository.projection.BookingPeriod;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the booking and car queries of the repositories, against the in-memory
+ * structures replacing them, at several data sizes:
+ * <ul>
+ * <li>conflicting bookings of a car by the JPQL overlap query, and by the booking schedule
+ * index,</li>
+ * <li>cars available today by the anti-join query, and by the list of booked cars passed to a
+ * <code>NOT IN</code> query,</li>
+ * <li>bookings ending from today loaded as periods by the projection query, and as entities.</li>
+ * </ul>
+ * The allocation rates of the bulk queries are shown by running with <code>-prof gc</code>.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepositoryBenchmark {
+    /** Number of precomputed availability requests, a power of two. */
+    private static final int REQUEST_NR = 1024;
+    /** Number of cars. */
+    @Param({"100", "10000"})
+    private int carNr;
+    /** Number of bookings of every car. */
+    @Param({"10", "100"})
+    private int bookingsPerCar;
+    /** Dataset. */
+    private BenchmarkDataset dataset;
+    /** Booking repository. */
+    private BookingRepository bookingRepository;
+    /** Car repository. */
+    private CarRepository carRepository;
+    /** Booking schedule index. */
+    private BookingScheduleIndex bookingScheduleIndex;
+    /** Entity manager factory. */
+    private EntityManagerFactory entityManagerFactory;
+    /** VIN values of the availability requests. */
+    private String[] requestVins;
+    /** Opening dates of the availability requests. */
+    private LocalDate[] requestFromDates;
+    /** Ending dates of the availability requests. */
+    private LocalDate[] requestToDates;
+    /** Index of the next availability request. */
+    private int requestIndex;
+    /** Date of the bulk queries. */
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        dataset = BenchmarkDataset.create(carNr, bookingsPerCar);
+        bookingRepository = dataset.getBean(BookingRepository.class);
+        carRepository = dataset.getBean(CarRepository.class);
+        bookingScheduleIndex = dataset.getBean(BookingScheduleIndex.class);
+        entityManagerFactory = dataset.getBean(EntityManagerFactory.class);
+        today = LocalDate.now();
+
+        // Periods of up to a week somewhere in the booked months of random cars
+        final Random random = new Random(BenchmarkDataset.SEED);
+        final int bookedDays = bookingsPerCar * (BenchmarkDataset.MAX_BOOKING_DAYS + 3) / 2;
+        requestVins = new String[REQUEST_NR];
+        requestFromDates = new LocalDate[REQUEST_NR];
+        requestToDates = new LocalDate[REQUEST_NR];
+        for (int i = 0; i < REQUEST_NR; i++) {
+            requestVins[i] = dataset.getVins().get(random.nextInt(carNr));
+            requestFromDates[i] = today.plusDays(random.nextInt(bookedDays));
+            requestToDates[i] = requestFromDates[i].plusDays(random.nextInt(7));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Booking> overlapQuery() {
+        final int i = nextRequest();
+        return bookingRepository.findBookingOfCarInDatePeriod(requestVins[i], requestFromDates[i],
+                requestToDates[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean overlapIndex() {
+        final int i = nextRequest();
+        return bookingScheduleIndex.isCarAvailable(requestVins[i], requestFromDates[i],
+                requestToDates[i]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<AvailableCar> availableCarsAntiJoin() {
+        return carRepository.findAllAvailableCarsAtDate(today);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Car> availableCarsNotIn() {
+        return carRepository.findAllNonListedCars(bookingRepository.findAllBookedCarsAtDate(today));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<BookingPeriod> bookingPeriodsProjection() {
+        return bookingRepository.findAllBookingPeriodsEndingFromDate(today);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Booking> bookingEntities() {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager
+                    .createQuery("SELECT b FROM Booking b WHERE b.toDate>=:date", Booking.class)
+                    .setParameter("date", today).getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Gets the index of the next availability request.
+     *
+     * @return request index
+     */
+    private int nextRequest() {
+        return requestIndex++ & REQUEST_NR - 1;
+    }
+}
@@ -0,0 +1,129 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.rest.BookingResult;
+import com.msci.carrental.rest.BookingResult.BookingProcessResult;
+import com.msci.carrental.rest.BookingView;
+import com.msci.carrental.rest.CarField;
+import com.msci.carrental.rest.CarView;
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.type.Fuel;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Benchmarks of writing and reading the payloads of the REST API, a list of available cars and a
+ * booking result, in the wire formats of the server: JSON and Smile. The object mappers have the
+ * default configuration of Spring, as in the server.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+    /** Number of cars in the list of available cars. */
+    private static final int CAR_NR = 100;
+    /** Wire format. */
+    @Param({"json", "smile"})
+    private String format;
+    /** Writer of car lists. */
+    private ObjectWriter carsWriter;
+    /** Reader of car lists. */
+    private ObjectReader carsReader;
+    /** Writer of booking results. */
+    private ObjectWriter bookingResultWriter;
+    /** Reader of booking results. */
+    private ObjectReader bookingResultReader;
+    /** List of available cars. */
+    private CarView[] cars;
+    /** Booking result. */
+    private BookingResult bookingResult;
+    /** Serialized list of available cars. */
+    private byte[] carsPayload;
+    /** Serialized booking result. */
+    private byte[] bookingResultPayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = "smile".equals(format)
+                ? new SmileHttpMessageConverter().getObjectMapper()
+                : Jackson2ObjectMapperBuilder.json().build();
+        carsWriter = objectMapper.writerFor(CarView[].class);
+        carsReader = objectMapper.readerFor(CarView[].class);
+        bookingResultWriter = objectMapper.writerFor(BookingResult.class);
+        bookingResultReader = objectMapper.readerFor(BookingResult.class);
+
+        cars = new CarView[CAR_NR];
+        for (int i = 0; i < CAR_NR; i++) {
+            cars[i] = new CarView(createCar(i), CarField.ALL);
+        }
+        final Booking booking = new Booking();
+        booking.setBookingId(42);
+        booking.setFromDate(LocalDate.of(2030, 1, 1));
+        booking.setToDate(LocalDate.of(2030, 1, 5));
+        booking.setUsage(CarUsage.FOREIGN);
+        booking.setBookedCar(createCar(0));
+        bookingResult = new BookingResult(new BookingView(booking, CarField.ALL),
+                BookingProcessResult.SUCCESS);
+
+        carsPayload = writeCars();
+        bookingResultPayload = writeBookingResult();
+    }
+
+    @Benchmark
+    public byte[] writeCars() throws IOException {
+        return carsWriter.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public CarView[] readCars() throws IOException {
+        return carsReader.readValue(carsPayload);
+    }
+
+    @Benchmark
+    public byte[] writeBookingResult() throws IOException {
+        return bookingResultWriter.writeValueAsBytes(bookingResult);
+    }
+
+    @Benchmark
+    public BookingResult readBookingResult() throws IOException {
+        return bookingResultReader.readValue(bookingResultPayload);
+    }
+
+    /**
+     * Creates a car.
+     *
+     * @param i
+     *            index of the car
+     * @return car
+     */
+    private static Car createCar(final int i) {
+        return new Car(String.format("VIN%08d", i), "Volkswagen", "Golf", 2010 + i % 8,
+                Fuel.values()[i % Fuel.values().length], String.format("P%07d", i),
+                CarCategory.values()[i % CarCategory.values().length]);
+    }
+}
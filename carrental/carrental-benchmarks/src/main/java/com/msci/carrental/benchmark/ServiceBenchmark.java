@@ -0,0 +1,152 @@
+package com.msci.carrental.benchmark;
+
+import com.msci.carrental.CarRentalService;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.type.CarCategory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the car rental service: listing the available cars, and rejecting bookings in
+ * the validation phase. Rejected bookings leave the data unchanged, so every invocation measures
+ * the same state.
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceBenchmark {
+    /** Number of bookings of every car. */
+    private static final int BOOKINGS_PER_CAR = 10;
+    /** Number of cars on a page of available cars. */
+    private static final int PAGE_SIZE = 20;
+    /** Countries of the bookings, none besides the home country. */
+    private static final String[] NO_COUNTRIES = {};
+    /** Number of cars. */
+    @Param({"100", "10000"})
+    private int carNr;
+    /** Dataset. */
+    private BenchmarkDataset dataset;
+    /** Car rental service. */
+    private CarRentalService carRentalService;
+    /** Filter of the available cars by category. */
+    private CarFilter categoryFilter;
+    /** Filter matching every car. */
+    private CarFilter emptyFilter;
+    /** VIN values of the booked cars of the rejected bookings. */
+    private String[] bookedVins;
+    /** Opening dates of the rejected bookings. */
+    private LocalDate[] bookedFromDates;
+    /** Ending dates of the rejected bookings. */
+    private LocalDate[] bookedToDates;
+    /** Index of the next rejected booking. */
+    private int bookedIndex;
+    /** Opening date of the period searches. */
+    private LocalDate fromDate;
+    /** Ending date of the period searches. */
+    private LocalDate toDate;
+
+    @Setup
+    public void setUp() {
+        dataset = BenchmarkDataset.create(carNr, BOOKINGS_PER_CAR);
+        carRentalService = dataset.getBean(CarRentalService.class);
+        categoryFilter = new CarFilter();
+        categoryFilter.setCategory(CarCategory.SEDAN);
+        emptyFilter = new CarFilter();
+        fromDate = LocalDate.now().plusDays(7);
+        toDate = fromDate.plusDays(3);
+
+        // A future booking of every car, bookings for their periods are rejected as conflicting
+        final LocalDate today = LocalDate.now();
+        final List<String> vins = new ArrayList<>();
+        final List<LocalDate> fromDates = new ArrayList<>();
+        final List<LocalDate> toDates = new ArrayList<>();
+        for (int car = 0; car < carNr; car++) {
+            final LocalDate[] bookings = dataset.getBookings(car);
+            final LocalDate bookingFromDate = bookings[bookings.length - 2];
+            if (!bookingFromDate.isBefore(today)) {
+                vins.add(dataset.getVins().get(car));
+                fromDates.add(bookingFromDate);
+                toDates.add(bookings[bookings.length - 1]);
+            }
+        }
+        bookedVins = vins.toArray(new String[vins.size()]);
+        bookedFromDates = fromDates.toArray(new LocalDate[fromDates.size()]);
+        bookedToDates = toDates.toArray(new LocalDate[toDates.size()]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataset.close();
+    }
+
+    @Benchmark
+    public List<Car> availableCars() {
+        return carRentalService.findAvailableCars();
+    }
+
+    @Benchmark
+    public List<Car> availableCarsPage() {
+        return carRentalService.findAvailableCars(categoryFilter, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Car> availableCarsForPeriod() throws CarRentalException {
+        return carRentalService.findAvailableCars(fromDate, toDate, emptyFilter);
+    }
+
+    @Benchmark
+    public CarRentalException bookBookedPeriod() {
+        final int i = bookedIndex++ % bookedVins.length;
+        return rejectBooking(bookedVins[i], bookedFromDates[i], bookedToDates[i]);
+    }
+
+    @Benchmark
+    public CarRentalException bookInvalidPeriod() {
+        return rejectBooking(bookedVins[0], toDate, fromDate);
+    }
+
+    /**
+     * Books a car, expecting the booking to be rejected.
+     *
+     * @param vin
+     *            car VIN value
+     * @param bookingFromDate
+     *            booking opening date
+     * @param bookingToDate
+     *            booking ending date
+     * @return exception of the rejected booking
+     */
+    private CarRentalException rejectBooking(
+            final String vin,
+            final LocalDate bookingFromDate,
+            final LocalDate bookingToDate) {
+        try {
+            carRentalService.bookCar(vin, bookingFromDate, bookingToDate, NO_COUNTRIES);
+        } catch (final CarRentalException e) {
+            return e;
+        }
+        throw new IllegalStateException("Booking of car " + vin + " was accepted");
+    }
+}
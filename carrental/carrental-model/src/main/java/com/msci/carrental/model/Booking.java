@@ -2,7 +2,7 @@ package com.msci.carrental.model;
 
 import com.msci.carrental.type.CarUsage;
 
-import java.util.Date;
+import java.time.LocalDate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -11,35 +11,36 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
-import javax.persistence.Temporal;
-import javax.persistence.TemporalType;
-
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
 
 /**
  * Database entity holding car rental booking data.
  *
  */
 @Entity
-@Table(name = "BOOKING")
+@Table(name = "BOOKING", indexes = @Index(name = "IDX_BOOKING_CAR_PERIOD",
+        columnList = "BOOKED_CAR, FROM_DATE, TO_DATE"))
 public class Booking {
-    /** Generated unique booking ID value. */
+    /**
+     * Generated unique booking ID value. IDs are allocated from a sequence in pools (the optimizer
+     * and the allocation size overriding the default one are chosen by the persistence
+     * configuration), so inserts need no extra database round trip per booking and can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookingIdGenerator")
+    @SequenceGenerator(name = "bookingIdGenerator", sequenceName = "BOOKING_SEQ",
+            allocationSize = 50)
     private long bookingId;
     /** Start date of booking. */
     @Column(name = "FROM_DATE")
-    @Temporal(TemporalType.DATE)
-    private Date fromDate;
+    private LocalDate fromDate;
     /** Ending date of booking. */
     @Column(name = "TO_DATE")
-    @Temporal(TemporalType.DATE)
-    private Date toDate;
+    private LocalDate toDate;
     /** Type of car usage. */
     @Column(name = "USAGE_TYPE")
     @Enumerated(EnumType.STRING)
@@ -57,20 +58,20 @@ public class Booking {
         this.bookingId = bookingId;
     }
 
-    public Date getFromDate() {
-        return fromDate != null ? new Date(fromDate.getTime()) : null;
+    public LocalDate getFromDate() {
+        return fromDate;
     }
 
-    public void setFromDate(final Date fromDate) {
-        this.fromDate = fromDate != null ? new Date(fromDate.getTime()) : null;
+    public void setFromDate(final LocalDate fromDate) {
+        this.fromDate = fromDate;
     }
 
-    public Date getToDate() {
-        return toDate != null ? new Date(toDate.getTime()) : null;
+    public LocalDate getToDate() {
+        return toDate;
     }
 
-    public void setToDate(final Date toDate) {
-        this.toDate = toDate != null ? new Date(toDate.getTime()) : null;
+    public void setToDate(final LocalDate toDate) {
+        this.toDate = toDate;
     }
 
     public CarUsage getUsage() {
@@ -91,11 +92,29 @@ public class Booking {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        return new StringBuilder(256).append("Booking[bookingId=").append(bookingId)
+                .append(",fromDate=").append(fromDate).append(",toDate=").append(toDate)
+                .append(",usage=").append(usage).append(",bookedCar=").append(bookedCar)
+                .append(']').toString();
     }
 
+    /**
+     * Checks if another object is the same booking, i.e. a booking with the same ID. Bookings
+     * which haven't been saved yet (and have no ID) are equal to themselves only, and their hash
+     * code changes when they are saved, so they shouldn't be kept in hash based collections.
+     */
     @Override
     public boolean equals(final Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) {
+            return true;
+        }
+        // The getter is used, since the other booking can be an uninitialized Hibernate proxy
+        return obj instanceof Booking && bookingId != 0
+                && bookingId == ((Booking) obj).getBookingId();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bookingId);
     }
 }
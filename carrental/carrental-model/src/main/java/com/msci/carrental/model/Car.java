@@ -10,10 +10,6 @@ import javax.persistence.Enumerated;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
-
 /**
  * Database entity holding car details.
  *
@@ -46,6 +42,47 @@ public class Car {
     @Enumerated(EnumType.STRING)
     private CarCategory category;
 
+    /** Ctor. */
+    public Car() {
+        super();
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param vin
+     *            VIN value
+     * @param make
+     *            maker of the car
+     * @param model
+     *            model of the car
+     * @param yearOfproduction
+     *            year of production
+     * @param fuelType
+     *            type of fuel used
+     * @param plate
+     *            plate value
+     * @param category
+     *            category of the car
+     */
+    public Car(
+            final String vin,
+            final String make,
+            final String model,
+            final int yearOfproduction,
+            final Fuel fuelType,
+            final String plate,
+            final CarCategory category) {
+        super();
+        this.vin = vin;
+        this.make = make;
+        this.model = model;
+        this.yearOfproduction = yearOfproduction;
+        this.fuelType = fuelType;
+        this.plate = plate;
+        this.category = category;
+    }
+
     public String getVin() {
         return vin;
     }
@@ -104,11 +141,27 @@ public class Car {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        return new StringBuilder(128).append("Car[vin=").append(vin).append(",make=").append(make)
+                .append(",model=").append(model).append(",yearOfproduction=")
+                .append(yearOfproduction).append(",fuelType=").append(fuelType).append(",plate=")
+                .append(plate).append(",category=").append(category).append(']').toString();
     }
 
+    /**
+     * Checks if another object is the same car, i.e. a car with the same VIN value. Cars without
+     * VIN value are equal to themselves only.
+     */
     @Override
     public boolean equals(final Object obj) {
-        return EqualsBuilder.reflectionEquals(this, obj);
+        if (this == obj) {
+            return true;
+        }
+        // The getter is used, since the other car can be an uninitialized Hibernate proxy
+        return obj instanceof Car && vin != null && vin.equals(((Car) obj).getVin());
+    }
+
+    @Override
+    public int hashCode() {
+        return vin != null ? vin.hashCode() : 0;
     }
 }
@@ -0,0 +1,91 @@
+package com.msci.carrental.model;
+
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+
+import java.util.Objects;
+
+/**
+ * Filter criteria of car searches. Criteria with <code>null</code> value aren't applied.
+ *
+ */
+public class CarFilter {
+    /** Category of the car. */
+    private CarCategory category;
+    /** Type of fuel used. */
+    private Fuel fuelType;
+    /** Year of production. */
+    private Integer yearOfproduction;
+    /** Maker (company) of the car. */
+    private String make;
+
+    public CarCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(final CarCategory category) {
+        this.category = category;
+    }
+
+    public Fuel getFuelType() {
+        return fuelType;
+    }
+
+    public void setFuelType(final Fuel fuelType) {
+        this.fuelType = fuelType;
+    }
+
+    public Integer getYearOfproduction() {
+        return yearOfproduction;
+    }
+
+    public void setYearOfproduction(final Integer yearOfproduction) {
+        this.yearOfproduction = yearOfproduction;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public void setMake(final String make) {
+        this.make = make;
+    }
+
+    /**
+     * Checks if no criteria is set.
+     *
+     * @return <code>true</code> if the filter doesn't filter out anything
+     */
+    public boolean isEmpty() {
+        return category == null && fuelType == null && yearOfproduction == null && make == null;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(96).append("CarFilter[category=").append(category)
+                .append(",fuelType=").append(fuelType).append(",yearOfproduction=")
+                .append(yearOfproduction).append(",make=").append(make).append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CarFilter)) {
+            return false;
+        }
+        final CarFilter other = (CarFilter) obj;
+        return category == other.category && fuelType == other.fuelType
+                && Objects.equals(yearOfproduction, other.yearOfproduction)
+                && Objects.equals(make, other.make);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(category);
+        hash = 31 * hash + Objects.hashCode(fuelType);
+        hash = 31 * hash + Objects.hashCode(yearOfproduction);
+        return 31 * hash + Objects.hashCode(make);
+    }
+}
@@ -1,8 +1,9 @@
 package com.msci.carrental.repository;
 
 import com.msci.carrental.model.Booking;
+import com.msci.carrental.repository.projection.BookingPeriod;
 
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,8 +24,20 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
      *            date to be checked for bookings
      * @return (potentially empty) {@link List} of car VIN numbers
      */
-    @Query("SELECT b.bookedCar FROM Booking b WHERE b.fromDate<=:date AND b.toDate>=:date")
-    List<String> findAllBookedCarsAtDate(@Param("date") Date date);
+    @Query("SELECT b.bookedCar.vin FROM Booking b WHERE b.fromDate<=:date AND b.toDate>=:date")
+    List<String> findAllBookedCarsAtDate(@Param("date") LocalDate date);
+
+    /**
+     * Lists the periods of all bookings ending on or after the given date, without loading booking
+     * entities.
+     *
+     * @param date
+     *            earliest ending date of the bookings
+     * @return (potentially empty) {@link List} of booking periods
+     */
+    @Query("SELECT NEW com.msci.carrental.repository.projection.BookingPeriod(b.bookedCar.vin, "
+            + "b.fromDate, b.toDate) FROM Booking b WHERE b.toDate>=:date")
+    List<BookingPeriod> findAllBookingPeriodsEndingFromDate(@Param("date") LocalDate date);
 
     /**
      * Finds all bookings of a car within a date period.
@@ -43,6 +56,6 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             + "(b.fromDate>=:fromDate AND b.toDate<=:toDate))")
     List<Booking> findBookingOfCarInDatePeriod(
             @Param("vin") String vin,
-            @Param("fromDate") Date fromDate,
-            @Param("toDate") Date toDate);
+            @Param("fromDate") LocalDate fromDate,
+            @Param("toDate") LocalDate toDate);
 }
@@ -1,7 +1,9 @@
 package com.msci.carrental.repository;
 
 import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.projection.AvailableCar;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -14,7 +16,7 @@ import org.springframework.stereotype.Repository;
  *
  */
 @Repository
-public interface CarRepository extends JpaRepository<Car, String> {
+public interface CarRepository extends JpaRepository<Car, String>, CarRepositoryCustom {
     /**
      * Finds all cars which VIN value isn't in the given {@link List}.
      *
@@ -24,4 +26,17 @@ public interface CarRepository extends JpaRepository<Car, String> {
      */
     @Query(value = "SELECT c FROM Car c WHERE c.vin NOT IN :vinList")
     List<Car> findAllNonListedCars(@Param("vinList") List<String> carVins);
+
+    /**
+     * Finds all cars not booked at the given date, with a single anti-join against the bookings.
+     *
+     * @param date
+     *            date to be checked for bookings
+     * @return (potentially empty) {@link List} of available car projections
+     */
+    @Query("SELECT NEW com.msci.carrental.repository.projection.AvailableCar(c.vin, c.make, "
+            + "c.model, c.yearOfproduction, c.fuelType, c.plate, c.category) FROM Car c WHERE "
+            + "NOT EXISTS (SELECT b FROM Booking b WHERE b.bookedCar=c AND b.fromDate<=:date AND "
+            + "b.toDate>=:date)")
+    List<AvailableCar> findAllAvailableCarsAtDate(@Param("date") LocalDate date);
 }
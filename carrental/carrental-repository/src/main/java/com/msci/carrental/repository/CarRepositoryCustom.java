@@ -0,0 +1,49 @@
+package com.msci.carrental.repository;
+
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.projection.AvailableCar;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Custom {@link CarRepository} queries with dynamic filter criteria.
+ *
+ */
+public interface CarRepositoryCustom {
+    /**
+     * Finds a page of the cars not booked at the given date, ordered by VIN. Pages are addressed
+     * by the last VIN of the previous page (keyset pagination).
+     *
+     * @param date
+     *            date to be checked for bookings
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @param afterVin
+     *            VIN value after which the page starts, or <code>null</code> for the first page
+     * @param maxResults
+     *            maximal number of cars on the page, or 0 for no limit
+     * @return (potentially empty) {@link List} of available car projections
+     * @throws IllegalArgumentException
+     *             if the maximal number of cars is negative
+     */
+    List<AvailableCar> findAvailableCarsAtDate(
+            LocalDate date,
+            CarFilter filter,
+            String afterVin,
+            int maxResults);
+
+    /**
+     * Streams the cars not booked at the given date, ordered by VIN. The cars are read from the
+     * database while the stream is consumed, which has to happen in a transaction. The stream has
+     * to be closed after use.
+     *
+     * @param date
+     *            date to be checked for bookings
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @return {@link Stream} of available car projections
+     */
+    Stream<AvailableCar> streamAvailableCarsAtDate(LocalDate date, CarFilter filter);
+}
@@ -0,0 +1,144 @@
+package com.msci.carrental.repository;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.projection.AvailableCar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+
+/**
+ * Implementation of the {@link CarRepositoryCustom} queries. Filter criteria are pushed down
+ * into the query, and the cars are read as {@link AvailableCar} projections, so they don't enter
+ * the persistence context.
+ *
+ */
+public class CarRepositoryImpl implements CarRepositoryCustom {
+    /** Number of rows fetched from the database at once when streaming. */
+    private static final int STREAM_FETCH_SIZE = 500;
+    /** JPA entity manager. */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<AvailableCar> findAvailableCarsAtDate(
+            final LocalDate date,
+            final CarFilter filter,
+            final String afterVin,
+            final int maxResults) {
+        if (maxResults < 0) {
+            throw new IllegalArgumentException("Negative maximal number of cars: " + maxResults);
+        }
+        final TypedQuery<AvailableCar> query = createAvailableCarsQuery(date, filter, afterVin);
+        if (maxResults > 0) {
+            query.setMaxResults(maxResults);
+        }
+        return query.getResultList();
+    }
+
+    public Stream<AvailableCar> streamAvailableCarsAtDate(
+            final LocalDate date,
+            final CarFilter filter) {
+        final ScrollableResults results = createAvailableCarsQuery(date, filter, null)
+                .unwrap(Query.class).setFetchSize(STREAM_FETCH_SIZE).setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        final Iterator<AvailableCar> iterator = new Iterator<AvailableCar>() {
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    hasNext = results.next();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public AvailableCar next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                return (AvailableCar) results.get(0);
+            }
+        };
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(results::close);
+    }
+
+    /**
+     * Creates the query of the available cars.
+     *
+     * @param date
+     *            date to be checked for bookings
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @param afterVin
+     *            VIN value after which the cars are listed, can be <code>null</code>
+     * @return query of the cars ordered by VIN
+     */
+    private TypedQuery<AvailableCar> createAvailableCarsQuery(
+            final LocalDate date,
+            final CarFilter filter,
+            final String afterVin) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<AvailableCar> query = builder.createQuery(AvailableCar.class);
+        final Root<Car> car = query.from(Car.class);
+        query.select(builder.construct(AvailableCar.class, car.get("vin"), car.get("make"),
+                car.get("model"), car.get("yearOfproduction"), car.get("fuelType"),
+                car.get("plate"), car.get("category")));
+
+        final Subquery<Long> bookings = query.subquery(Long.class);
+        final Root<Booking> booking = bookings.from(Booking.class);
+        bookings.select(booking.<Long> get("bookingId")).where(
+                builder.equal(booking.get("bookedCar"), car),
+                builder.lessThanOrEqualTo(booking.<LocalDate> get("fromDate"), date),
+                builder.greaterThanOrEqualTo(booking.<LocalDate> get("toDate"), date));
+
+        final List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.not(builder.exists(bookings)));
+        if (afterVin != null) {
+            predicates.add(builder.greaterThan(car.<String> get("vin"), afterVin));
+        }
+        if (filter != null) {
+            if (filter.getCategory() != null) {
+                predicates.add(builder.equal(car.get("category"), filter.getCategory()));
+            }
+            if (filter.getFuelType() != null) {
+                predicates.add(builder.equal(car.get("fuelType"), filter.getFuelType()));
+            }
+            if (filter.getYearOfproduction() != null) {
+                predicates.add(
+                        builder.equal(car.get("yearOfproduction"), filter.getYearOfproduction()));
+            }
+            if (filter.getMake() != null) {
+                predicates.add(builder.equal(car.get("make"), filter.getMake()));
+            }
+        }
+        query.where(predicates.toArray(new Predicate[predicates.size()]))
+                .orderBy(builder.asc(car.get("vin")));
+        return entityManager.createQuery(query);
+    }
+}
@@ -0,0 +1,22 @@
+package com.msci.carrental.repository.id;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+
+/**
+ * Replaces the generator of JPA sequence generator mappings (with the new ID generator mappings)
+ * by {@link PooledSequenceGenerator}, so the allocation size of the entities can be configured.
+ * Enabled by the Hibernate setting
+ * <code>hibernate.ejb.identifier_generator_strategy_provider</code>.
+ *
+ */
+public class CarRentalIdGeneratorStrategyProvider implements IdentifierGeneratorStrategyProvider {
+    @Override
+    public Map<String, Class<?>> getStrategies() {
+        return Collections.<String, Class<?>> singletonMap(SequenceStyleGenerator.class.getName(),
+                PooledSequenceGenerator.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.msci.carrental.repository.id;
+
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Sequence based ID generator whose allocation size can be configured. The sequence is incremented
+ * by the allocation size, and the pooled optimizer hands out the IDs in between from memory, so
+ * only every n-th insert needs a database round trip to get its ID.
+ * <p>
+ * The Hibernate setting {@value #ALLOCATION_SIZE_SETTING} (e.g.
+ * <code>spring.jpa.properties.carrental.idAllocationSize</code>) overrides the
+ * <code>allocationSize</code> of the generator mappings. Without the setting the mapped
+ * allocation size is used.
+ *
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    /** Name of the Hibernate setting holding the allocation size. */
+    public static final String ALLOCATION_SIZE_SETTING = "carrental.idAllocationSize";
+
+    @Override
+    public void configure(
+            final Type type,
+            final Properties params,
+            final ServiceRegistry serviceRegistry) throws MappingException {
+        final Properties generatorParams = new Properties();
+        generatorParams.putAll(params);
+        final Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings().get(ALLOCATION_SIZE_SETTING);
+        if (allocationSize != null) {
+            generatorParams.setProperty(INCREMENT_PARAM, allocationSize.toString());
+        }
+        super.configure(type, generatorParams, serviceRegistry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.msci.carrental.repository.projection;
+
+import com.msci.carrental.model.Car;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+
+/**
+ * Read-only projection of an available car: the columns of the car. Created by JPQL and criteria
+ * constructor expressions, so listing the available cars doesn't load {@link Car} entities into
+ * the persistence context.
+ *
+ */
+public final class AvailableCar {
+    /** VIN value of the car. */
+    private final String vin;
+    /** Maker (company) of the car. */
+    private final String make;
+    /** Model of the car. */
+    private final String model;
+    /** Year of production. */
+    private final int yearOfproduction;
+    /** Type of fuel used. */
+    private final Fuel fuelType;
+    /** Plate value of the car. */
+    private final String plate;
+    /** Category of the car. */
+    private final CarCategory category;
+
+    /**
+     * Ctor.
+     *
+     * @param vin
+     *            VIN value
+     * @param make
+     *            maker of the car
+     * @param model
+     *            model of the car
+     * @param yearOfproduction
+     *            year of production
+     * @param fuelType
+     *            type of fuel used
+     * @param plate
+     *            plate value
+     * @param category
+     *            category of the car
+     */
+    public AvailableCar(
+            final String vin,
+            final String make,
+            final String model,
+            final int yearOfproduction,
+            final Fuel fuelType,
+            final String plate,
+            final CarCategory category) {
+        super();
+        this.vin = vin;
+        this.make = make;
+        this.model = model;
+        this.yearOfproduction = yearOfproduction;
+        this.fuelType = fuelType;
+        this.plate = plate;
+        this.category = category;
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getYearOfproduction() {
+        return yearOfproduction;
+    }
+
+    public Fuel getFuelType() {
+        return fuelType;
+    }
+
+    public String getPlate() {
+        return plate;
+    }
+
+    public CarCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * Creates a (detached) car with the details of the projection.
+     *
+     * @return new {@link Car} instance
+     */
+    public Car toCar() {
+        return new Car(vin, make, model, yearOfproduction, fuelType, plate, category);
+    }
+
+    @Override
+    public String toString() {
+        return "AvailableCar[vin=" + vin + ",make=" + make + ",model=" + model
+                + ",yearOfproduction=" + yearOfproduction + ",fuelType=" + fuelType + ",plate="
+                + plate + ",category=" + category + "]";
+    }
+}
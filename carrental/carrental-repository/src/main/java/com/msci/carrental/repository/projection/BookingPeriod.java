@@ -0,0 +1,52 @@
+package com.msci.carrental.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * Read-only projection of a booking: the VIN of the booked car and the booking period. Created by
+ * JPQL constructor expressions, so reading it doesn't load {@link com.msci.carrental.model.Booking}
+ * and {@link com.msci.carrental.model.Car} entities into the persistence context.
+ *
+ */
+public final class BookingPeriod {
+    /** VIN of the booked car. */
+    private final String vin;
+    /** Start date of booking. */
+    private final LocalDate fromDate;
+    /** Ending date of booking. */
+    private final LocalDate toDate;
+
+    /**
+     * Ctor.
+     *
+     * @param vin
+     *            VIN of the booked car
+     * @param fromDate
+     *            start date of booking
+     * @param toDate
+     *            ending date of booking
+     */
+    public BookingPeriod(final String vin, final LocalDate fromDate, final LocalDate toDate) {
+        super();
+        this.vin = vin;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingPeriod[vin=" + vin + ",fromDate=" + fromDate + ",toDate=" + toDate + "]";
+    }
+}
@@ -1,10 +1,11 @@
 package com.msci.carrental.rest;
 
 import java.io.Serializable;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
 
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import com.fasterxml.jackson.annotation.JsonFormat;
 
 /**
  * Data object holding data of a car booking reservation.
@@ -16,9 +17,11 @@ public class BookingReservationDetails implements Serializable {
     /** Car VIN number. */
     private String vin;
     /** Booking starting date. */
-    private Date fromDate;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate fromDate;
     /** Booking ending day date. */
-    private Date toDate;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate toDate;
     /** List of (foreign) countries the car will be used in. */
     private String[] foreignCountries;
 
@@ -30,20 +33,20 @@ public class BookingReservationDetails implements Serializable {
         this.vin = vin;
     }
 
-    public Date getFromDate() {
-        return fromDate != null ? new Date(fromDate.getTime()) : null;
+    public LocalDate getFromDate() {
+        return fromDate;
     }
 
-    public void setFromDate(final Date fromDate) {
-        this.fromDate = fromDate != null ? new Date(fromDate.getTime()) : null;
+    public void setFromDate(final LocalDate fromDate) {
+        this.fromDate = fromDate;
     }
 
-    public Date getToDate() {
-        return toDate != null ? new Date(toDate.getTime()) : null;
+    public LocalDate getToDate() {
+        return toDate;
     }
 
-    public void setToDate(final Date toDate) {
-        this.toDate = toDate != null ? new Date(toDate.getTime()) : null;
+    public void setToDate(final LocalDate toDate) {
+        this.toDate = toDate;
     }
 
     public String[] getForeignCountries() {
@@ -56,6 +59,30 @@ public class BookingReservationDetails implements Serializable {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        return new StringBuilder(192).append("BookingReservationDetails[vin=").append(vin)
+                .append(",fromDate=").append(fromDate).append(",toDate=").append(toDate)
+                .append(",foreignCountries=").append(Arrays.toString(foreignCountries))
+                .append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BookingReservationDetails)) {
+            return false;
+        }
+        final BookingReservationDetails other = (BookingReservationDetails) obj;
+        return Objects.equals(vin, other.vin) && Objects.equals(fromDate, other.fromDate)
+                && Objects.equals(toDate, other.toDate)
+                && Arrays.equals(foreignCountries, other.foreignCountries);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(vin);
+        hash = 31 * hash + Objects.hashCode(fromDate);
+        return 31 * hash + Objects.hashCode(toDate);
     }
 }
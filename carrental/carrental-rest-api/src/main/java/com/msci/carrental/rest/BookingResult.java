@@ -1,9 +1,6 @@
 package com.msci.carrental.rest;
 
-import com.msci.carrental.model.Booking;
-
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import java.util.Objects;
 
 /**
  * Result data class of a booking process.
@@ -11,7 +8,7 @@ import org.apache.commons.lang3.builder.ToStringStyle;
  */
 public class BookingResult {
     /** Details of a successful booking. */
-    private Booking booking;
+    private BookingView booking;
     /** Result of a booking process. */
     private BookingProcessResult bookingProcessResult;
     /** Error code for failed booking. */
@@ -28,11 +25,13 @@ public class BookingResult {
      * Ctor.
      *
      * @param booking
-     *            booking object
+     *            booking representation
      * @param bookingProcessResult
      *            booking result value
      */
-    public BookingResult(final Booking booking, final BookingProcessResult bookingProcessResult) {
+    public BookingResult(
+            final BookingView booking,
+            final BookingProcessResult bookingProcessResult) {
         this(booking, bookingProcessResult, null, null);
     }
 
@@ -52,7 +51,7 @@ public class BookingResult {
      * Ctor.
      * 
      * @param booking
-     *            booking object
+     *            booking representation
      * @param bookingProcessResult
      *            booking result value
      * @param errorCode
@@ -61,7 +60,7 @@ public class BookingResult {
      *            error message value
      */
     public BookingResult(
-            final Booking booking,
+            final BookingView booking,
             final BookingProcessResult bookingProcessResult,
             final String errorCode,
             final String errorMessage) {
@@ -72,11 +71,11 @@ public class BookingResult {
         this.errorMessage = errorMessage;
     }
 
-    public Booking getBooking() {
+    public BookingView getBooking() {
         return booking;
     }
 
-    public void setBooking(final Booking booking) {
+    public void setBooking(final BookingView booking) {
         this.booking = booking;
     }
 
@@ -110,6 +109,31 @@ public class BookingResult {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+        return new StringBuilder(320).append("BookingResult[booking=").append(booking)
+                .append(",bookingProcessResult=").append(bookingProcessResult)
+                .append(",errorCode=").append(errorCode).append(",errorMessage=")
+                .append(errorMessage).append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BookingResult)) {
+            return false;
+        }
+        final BookingResult other = (BookingResult) obj;
+        return Objects.equals(booking, other.booking)
+                && bookingProcessResult == other.bookingProcessResult
+                && Objects.equals(errorCode, other.errorCode)
+                && Objects.equals(errorMessage, other.errorMessage);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(booking);
+        hash = 31 * hash + Objects.hashCode(bookingProcessResult);
+        return 31 * hash + Objects.hashCode(errorCode);
     }
 }
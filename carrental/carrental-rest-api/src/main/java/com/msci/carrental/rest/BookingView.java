@@ -0,0 +1,120 @@
+package com.msci.carrental.rest;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.type.CarUsage;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Representation of a booking in REST responses, holding the selected fields of the booked car
+ * only. The JSON payload has the same property names as the {@link Booking} entity.
+ *
+ */
+public class BookingView {
+    /** Unique ID of the booking. */
+    private long bookingId;
+    /** Booking opening date. */
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate fromDate;
+    /** Booking ending date. */
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private LocalDate toDate;
+    /** Usage of the car. */
+    private CarUsage usage;
+    /** Booked car. */
+    private CarView bookedCar;
+
+    /** Ctor. */
+    public BookingView() {
+        super();
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param booking
+     *            booking entity
+     * @param carFields
+     *            fields of the booked car to be copied
+     */
+    public BookingView(final Booking booking, final Set<CarField> carFields) {
+        super();
+        this.bookingId = booking.getBookingId();
+        this.fromDate = booking.getFromDate();
+        this.toDate = booking.getToDate();
+        this.usage = booking.getUsage();
+        this.bookedCar = new CarView(booking.getBookedCar(), carFields);
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(final long bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(final LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(final LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public CarUsage getUsage() {
+        return usage;
+    }
+
+    public void setUsage(final CarUsage usage) {
+        this.usage = usage;
+    }
+
+    public CarView getBookedCar() {
+        return bookedCar;
+    }
+
+    public void setBookedCar(final CarView bookedCar) {
+        this.bookedCar = bookedCar;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256).append("BookingView[bookingId=").append(bookingId)
+                .append(",fromDate=").append(fromDate).append(",toDate=").append(toDate)
+                .append(",usage=").append(usage).append(",bookedCar=").append(bookedCar)
+                .append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BookingView)) {
+            return false;
+        }
+        final BookingView other = (BookingView) obj;
+        return bookingId == other.bookingId && Objects.equals(fromDate, other.fromDate)
+                && Objects.equals(toDate, other.toDate) && usage == other.usage
+                && Objects.equals(bookedCar, other.bookedCar);
+    }
+
+    @Override
+    public int hashCode() {
+        // Booking IDs are unique, the other fields rarely tell bookings apart
+        return Long.hashCode(bookingId);
+    }
+}
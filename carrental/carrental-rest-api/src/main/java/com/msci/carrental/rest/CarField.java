@@ -0,0 +1,84 @@
+package com.msci.carrental.rest;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Selectable fields of car representations. Field names are the JSON property names of the
+ * fields.
+ *
+ */
+public enum CarField {
+    VIN("vin"),
+    MAKE("make"),
+    MODEL("model"),
+    YEAR_OF_PRODUCTION("yearOfproduction"),
+    FUEL_TYPE("fuelType"),
+    PLATE("plate"),
+    CATEGORY("category");
+
+    /** Every field of a car. */
+    public static final Set<CarField> ALL =
+            Collections.unmodifiableSet(EnumSet.allOf(CarField.class));
+    /** Fields of the summary view of a car. */
+    public static final Set<CarField> SUMMARY =
+            Collections.unmodifiableSet(EnumSet.of(VIN, MAKE, MODEL, CATEGORY));
+
+    /** JSON property name of the field. */
+    private final String propertyName;
+
+    /**
+     * Ctor.
+     *
+     * @param propertyName
+     *            JSON property name of the field
+     */
+    private CarField(final String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * Parses a comma separated list of field names.
+     *
+     * @param fields
+     *            comma separated JSON property names of the fields
+     * @return set of the fields
+     * @throws IllegalArgumentException
+     *             if the list is empty or has an unknown field name
+     */
+    public static Set<CarField> parse(final String fields) {
+        final Set<CarField> parsedFields = EnumSet.noneOf(CarField.class);
+        for (final String field : StringUtils.split(fields, ',')) {
+            parsedFields.add(forPropertyName(field.trim()));
+        }
+        if (parsedFields.isEmpty()) {
+            throw new IllegalArgumentException("No car fields are selected");
+        }
+        return parsedFields;
+    }
+
+    /**
+     * Gets the field of a JSON property name.
+     *
+     * @param propertyName
+     *            JSON property name
+     * @return field of the property
+     * @throws IllegalArgumentException
+     *             if there is no field with the property name
+     */
+    private static CarField forPropertyName(final String propertyName) {
+        for (final CarField field : values()) {
+            if (field.propertyName.equals(propertyName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown car field: " + propertyName);
+    }
+}
@@ -0,0 +1,164 @@
+package com.msci.carrental.rest;
+
+import com.msci.carrental.model.Car;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Representation of a car in REST responses, holding the selected fields of the car only.
+ * Fields which aren't selected are <code>null</code> and left out of the JSON payload, which has
+ * the same property names as the {@link Car} entity.
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CarView {
+    /** Unique VIN value identifying a car. */
+    private String vin;
+    /** Maker (company) of the car. */
+    private String make;
+    /** Model of the car. */
+    private String model;
+    /** Year of production. */
+    private Integer yearOfproduction;
+    /** Type of fuel used. */
+    private Fuel fuelType;
+    /** Plate value of the car. */
+    private String plate;
+    /** Category of the car. */
+    private CarCategory category;
+
+    /** Ctor. */
+    public CarView() {
+        super();
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param car
+     *            car entity
+     * @param fields
+     *            fields of the car to be copied
+     */
+    public CarView(final Car car, final Set<CarField> fields) {
+        super();
+        for (final CarField field : fields) {
+            switch (field) {
+                case VIN:
+                    vin = car.getVin();
+                    break;
+                case MAKE:
+                    make = car.getMake();
+                    break;
+                case MODEL:
+                    model = car.getModel();
+                    break;
+                case YEAR_OF_PRODUCTION:
+                    yearOfproduction = car.getYearOfproduction();
+                    break;
+                case FUEL_TYPE:
+                    fuelType = car.getFuelType();
+                    break;
+                case PLATE:
+                    plate = car.getPlate();
+                    break;
+                case CATEGORY:
+                    category = car.getCategory();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported car field: " + field);
+            }
+        }
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    public void setVin(final String vin) {
+        this.vin = vin;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public void setMake(final String make) {
+        this.make = make;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(final String model) {
+        this.model = model;
+    }
+
+    public Integer getYearOfproduction() {
+        return yearOfproduction;
+    }
+
+    public void setYearOfproduction(final Integer yearOfproduction) {
+        this.yearOfproduction = yearOfproduction;
+    }
+
+    public Fuel getFuelType() {
+        return fuelType;
+    }
+
+    public void setFuelType(final Fuel fuelType) {
+        this.fuelType = fuelType;
+    }
+
+    public String getPlate() {
+        return plate;
+    }
+
+    public void setPlate(final String plate) {
+        this.plate = plate;
+    }
+
+    public CarCategory getCategory() {
+        return category;
+    }
+
+    public void setCategory(final CarCategory category) {
+        this.category = category;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(128).append("CarView[vin=").append(vin).append(",make=")
+                .append(make).append(",model=").append(model).append(",yearOfproduction=")
+                .append(yearOfproduction).append(",fuelType=").append(fuelType).append(",plate=")
+                .append(plate).append(",category=").append(category).append(']').toString();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CarView)) {
+            return false;
+        }
+        final CarView other = (CarView) obj;
+        return Objects.equals(vin, other.vin) && Objects.equals(make, other.make)
+                && Objects.equals(model, other.model)
+                && Objects.equals(yearOfproduction, other.yearOfproduction)
+                && fuelType == other.fuelType && Objects.equals(plate, other.plate)
+                && category == other.category;
+    }
+
+    @Override
+    public int hashCode() {
+        // VIN values are unique, the other fields rarely tell cars apart
+        return Objects.hashCode(vin);
+    }
+}
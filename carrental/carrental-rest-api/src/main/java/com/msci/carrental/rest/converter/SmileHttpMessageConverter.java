@@ -0,0 +1,56 @@
+package com.msci.carrental.rest.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * HTTP message converter reading and writing the binary Smile encoding of JSON data with
+ * Jackson. Smile payloads hold the same data as the JSON ones, but are more compact and cheaper
+ * to encode and decode. Repeated property names and short string values (e.g. enum names of list
+ * elements) are written only once per payload and referenced later.
+ *
+ */
+public class SmileHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+    /** Media type of Smile payloads. */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    /** Media type of Smile payloads. */
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    /** Ctor creating an object mapper with the default configuration of Spring. */
+    public SmileHttpMessageConverter() {
+        this(createObjectMapper());
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param objectMapper
+     *            object mapper with a {@link SmileFactory}
+     */
+    public SmileHttpMessageConverter(final ObjectMapper objectMapper) {
+        super(objectMapper, APPLICATION_SMILE);
+        Assert.isInstanceOf(SmileFactory.class, objectMapper.getFactory(),
+                "Smile object mapper is required");
+        // Binary payloads have no character set
+        setDefaultCharset(null);
+    }
+
+    /**
+     * Creates an object mapper with the default configuration of Spring, and a Smile factory
+     * writing repeated string values as back references.
+     *
+     * @return Smile object mapper
+     */
+    private static ObjectMapper createObjectMapper() {
+        final SmileFactory smileFactory = new SmileFactory();
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        final ObjectMapper objectMapper = new ObjectMapper(smileFactory);
+        Jackson2ObjectMapperBuilder.json().configure(objectMapper);
+        return objectMapper;
+    }
+}
@@ -1,8 +1,11 @@
 package com.msci.carrental.server;
 
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
@@ -24,4 +27,14 @@ public class Application {
     public static void main(final String[] args) {
         SpringApplication.run(Application.class, args);
     }
+
+    /**
+     * Converter of the Smile binary format, offered alongside JSON by content negotiation.
+     *
+     * @return Smile message converter
+     */
+    @Bean
+    public SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new SmileHttpMessageConverter();
+    }
 }
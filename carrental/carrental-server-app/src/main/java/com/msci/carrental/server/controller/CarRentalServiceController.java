@@ -1,26 +1,53 @@
 package com.msci.carrental.server.controller;
 
+import com.msci.carrental.BookingOutcome;
+import com.msci.carrental.BookingRequest;
 import com.msci.carrental.CarRentalService;
 import com.msci.carrental.exception.CarRentalException;
-import com.msci.carrental.model.Booking;
 import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
 import com.msci.carrental.rest.BookingReservationDetails;
 import com.msci.carrental.rest.BookingResult;
 import com.msci.carrental.rest.BookingResult.BookingProcessResult;
+import com.msci.carrental.rest.BookingView;
+import com.msci.carrental.rest.CarField;
+import com.msci.carrental.rest.CarView;
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
+import com.msci.carrental.version.ResourceVersions;
 
-import java.util.Date;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller class providing RESTFul service for car rental related actions.
@@ -28,72 +55,455 @@ import org.springframework.web.bind.annotation.RestController;
  */
 @RestController
 public class CarRentalServiceController {
+    /** Media type of newline delimited JSON. */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    /** Response header holding the VIN value to request the next page of cars after. */
+    public static final String NEXT_AFTER_HEADER = "X-Next-After";
+    /** View holding every field of the cars. */
+    public static final String FULL_VIEW = "full";
+    /** View holding the {@link CarField#SUMMARY} fields of the cars. */
+    public static final String SUMMARY_VIEW = "summary";
     /** {@link Logger} instance. */
     private final Logger logger = LoggerFactory.getLogger(CarRentalServiceController.class);
     /** {@link CarRentalService} bean. */
     @Autowired
     private CarRentalService carRentalService;
+    /** {@link ObjectMapper} bean. */
+    @Autowired
+    private ObjectMapper objectMapper;
+    /** {@link ResourceVersions} bean. */
+    @Autowired
+    private ResourceVersions resourceVersions;
+    /** Time clients may use cached responses for without revalidation, in seconds. */
+    @Value("${carrental.httpCache.maxAgeSeconds:0}")
+    private long maxAgeSeconds;
 
     /**
-     * Lists all cars available for rental.
+     * Lists the cars available for rental. All cars are listed if no filter criteria and paging
+     * parameters are given, otherwise a page of the cars matching the criteria, ordered by VIN.
+     * The header {@value #NEXT_AFTER_HEADER} of a full page holds the <code>after</code> value of
+     * the next page.
+     * <p>
+     * Responses are tagged with the availability version, and <code>304 Not Modified</code> is
+     * returned without searching the cars if the <code>If-None-Match</code> header holds it.
      *
+     * @param filter
+     *            filter criteria of the cars
+     * @param afterVin
+     *            VIN value after which the page starts
+     * @param limit
+     *            maximal number of cars on the page, has to be positive
+     * @param fields
+     *            comma separated names of the car fields to be returned
+     * @param view
+     *            {@value #FULL_VIEW} (default) or {@value #SUMMARY_VIEW}, ignored if the fields
+     *            are selected
+     * @param accept
+     *            media types accepted by the client
+     * @param ifNoneMatch
+     *            entity tags of the cached responses of the client
      * @return {@link List} of cars
+     * @throws InvalidPageLimitException
+     *             if the limit isn't positive
      */
-    @RequestMapping(value = "/availableCars", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public @ResponseBody List<Car> getAvailableCars() {
-        logger.info("Requesting all currently ({}) available cars for rental", new Date());
-        final List<Car> availableCars = carRentalService.findAvailableCars();
+    @RequestMapping(value = "/availableCars",
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE,
+                    SmileHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CarView>> getAvailableCars(
+            final CarFilter filter,
+            @RequestParam(value = "after", required = false) final String afterVin,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestParam(value = "view", required = false) final String view,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
+        final Set<CarField> carFields = selectCarFields(fields, view);
+        if (limit != null && limit <= 0) {
+            throw new InvalidPageLimitException("Limit has to be positive: " + limit);
+        }
+        // The version is read before the search, so a concurrent change can't be missed
+        final String eTag = getRepresentationETag(resourceVersions.getAvailabilityETag(), accept);
+        if (isMatching(ifNoneMatch, eTag)) {
+            logger.debug("Available cars not modified since version {}", eTag);
+            return notModified(eTag);
+        }
+        if (filter.isEmpty() && afterVin == null && limit == null) {
+            logger.info("Requesting all currently ({}) available cars for rental", LocalDate.now());
+            final List<Car> availableCars = carRentalService.findAvailableCars();
+            logger.info("Returning {} available cars for booking", availableCars.size());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Returning rental-available cars: {}", availableCars);
+            }
+            return cacheable(eTag).body(toViews(availableCars, carFields));
+        }
+
+        logger.info("Requesting {} currently available cars after VIN={} matching filter: {}",
+                limit, afterVin, filter);
+        final int maxResults = limit != null ? limit : 0;
+        final List<Car> availableCars =
+                carRentalService.findAvailableCars(filter, afterVin, maxResults);
         logger.info("Returning {} available cars for booking", availableCars.size());
-        if (logger.isDebugEnabled()) {
-            logger.debug("Returning rental-available cars: {}", availableCars);
+        final ResponseEntity.BodyBuilder response = cacheable(eTag);
+        if (maxResults > 0 && availableCars.size() == maxResults) {
+            response.header(NEXT_AFTER_HEADER, availableCars.get(maxResults - 1).getVin());
+        }
+        return response.body(toViews(availableCars, carFields));
+    }
+
+    /**
+     * Streams the cars available for rental matching the filter criteria as newline delimited
+     * JSON, ordered by VIN. Cars are written as they are read from the database, without
+     * collecting them into a list.
+     *
+     * @param filter
+     *            filter criteria of the cars
+     * @param fields
+     *            comma separated names of the car fields to be returned
+     * @param view
+     *            {@value #FULL_VIEW} (default) or {@value #SUMMARY_VIEW}, ignored if the fields
+     *            are selected
+     * @return response body writing the cars
+     */
+    @RequestMapping(value = "/availableCars", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAvailableCars(
+            final CarFilter filter,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestParam(value = "view", required = false) final String view) {
+        final Set<CarField> carFields = selectCarFields(fields, view);
+        logger.info("Streaming currently available cars matching filter: {}", filter);
+        final ObjectWriter writer = objectMapper.writerFor(CarView.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return outputStream -> carRentalService.streamAvailableCars(filter, car -> {
+            try {
+                writer.writeValue(outputStream, new CarView(car, carFields));
+                outputStream.write('\n');
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Lists the cars matching the filter criteria which are available for rental in the whole
+     * given date period, ordered by VIN.
+     *
+     * @param fromDate
+     *            period start date (ISO format, e.g. 2017-03-10)
+     * @param toDate
+     *            period end date (ISO format, e.g. 2017-03-17)
+     * @param filter
+     *            filter criteria of the cars
+     * @param fields
+     *            comma separated names of the car fields to be returned
+     * @param view
+     *            {@value #FULL_VIEW} (default) or {@value #SUMMARY_VIEW}, ignored if the fields
+     *            are selected
+     * @param accept
+     *            media types accepted by the client
+     * @param ifNoneMatch
+     *            entity tags of the cached responses of the client
+     * @return {@link List} of cars, or <code>400 Bad Request</code> if the date period is invalid
+     */
+    @RequestMapping(value = "/availableCarsForPeriod",
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE,
+                    SmileHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<List<CarView>> getAvailableCarsForPeriod(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(
+                    iso = DateTimeFormat.ISO.DATE) final LocalDate fromDate,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(
+                    iso = DateTimeFormat.ISO.DATE) final LocalDate toDate,
+            final CarFilter filter,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestParam(value = "view", required = false) final String view,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
+        final Set<CarField> carFields = selectCarFields(fields, view);
+        logger.info("Requesting cars available in time period ({} - {}) matching filter: {}",
+                fromDate, toDate, filter);
+        final String eTag = getRepresentationETag(resourceVersions.getAvailabilityETag(), accept);
+        if (isMatching(ifNoneMatch, eTag)) {
+            logger.debug("Available cars not modified since version {}", eTag);
+            return notModified(eTag);
+        }
+        try {
+            final List<Car> availableCars =
+                    carRentalService.findAvailableCars(fromDate, toDate, filter);
+            logger.info("Returning {} available cars for booking", availableCars.size());
+            return cacheable(eTag).body(toViews(availableCars, carFields));
+        } catch (final CarRentalException e) {
+            logger.error("Search of cars available in time period ({} - {}) failed: {}",
+                    fromDate, toDate, e.getMessage());
+            return ResponseEntity.badRequest().build();
         }
-        return availableCars;
     }
 
     /**
-     * Returns the details of a specific car identified by VIN number.
+     * Returns the details of a specific car identified by VIN number. Responses are tagged with
+     * the version of the car, and <code>304 Not Modified</code> is returned without loading the
+     * car if the <code>If-None-Match</code> header holds it.
      *
      * @param vin
      *            car VIN value
+     * @param accept
+     *            media types accepted by the client
+     * @param ifNoneMatch
+     *            entity tags of the cached responses of the client
      * @return details of a car, or <code>null</code> if no car was found with the given VIN number
      */
-    @RequestMapping(value = "/carDetails/{vin}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public @ResponseBody Car getCarDetails(@PathVariable final String vin) {
+    @RequestMapping(value = "/carDetails/{vin}",
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE,
+                    SmileHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Car> getCarDetails(
+            @PathVariable final String vin,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
         logger.info("Requesting car details for VIN number: {}", vin);
+        final String eTag = getRepresentationETag(resourceVersions.getCarETag(vin), accept);
+        if (isMatching(ifNoneMatch, eTag)) {
+            logger.debug("Car details (VIN={}) not modified since version {}", vin, eTag);
+            return notModified(eTag);
+        }
         final Car carDetails = carRentalService.getCarDetails(vin);
         logger.info("Returning vin-based ({}) car details: {}", vin, carDetails);
-        return carDetails;
+        return cacheable(eTag).body(carDetails);
     }
 
     /**
-     * Performs a booking of a car for a give date period.
+     * Performs a booking of a car for a give date period. The request is processed
+     * asynchronously, so request processing threads aren't blocked while the booking is being
+     * checked.
      *
      * @param bookingDetails
      *            object containing booking date
-     * @return result of the booking process
+     * @param fields
+     *            comma separated names of the fields of the booked car to be returned
+     * @param view
+     *            {@value #FULL_VIEW} (default) or {@value #SUMMARY_VIEW} view of the booked car,
+     *            ignored if the fields are selected
+     * @return {@link CompletableFuture} of the result of the booking process
      */
     @RequestMapping(value = "/bookCar", method = RequestMethod.POST,
-            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public @ResponseBody BookingResult bookCar(
-            @RequestBody final BookingReservationDetails bookingDetails) {
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE,
+                    SmileHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public @ResponseBody CompletableFuture<BookingResult> bookCar(
+            @RequestBody final BookingReservationDetails bookingDetails,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestParam(value = "view", required = false) final String view) {
+        final Set<CarField> carFields = selectCarFields(fields, view);
         logger.info("Received car rental booking details: {}", bookingDetails);
-        BookingResult bookingResult;
+        return carRentalService
+                .bookCarAsync(bookingDetails.getVin(), bookingDetails.getFromDate(),
+                        bookingDetails.getToDate(), bookingDetails.getForeignCountries())
+                .handle((booking, throwable) -> {
+                    final Throwable cause = throwable instanceof CompletionException
+                            ? throwable.getCause() : throwable;
+                    BookingResult bookingResult;
+                    if (cause == null) {
+                        bookingResult = new BookingResult(new BookingView(booking, carFields),
+                                BookingProcessResult.SUCCESS);
+                        logger.debug(
+                                "Booking of car (VIN={}) for time period ({} - {}) was successful",
+                                bookingDetails.getVin(), bookingDetails.getFromDate(),
+                                bookingDetails.getToDate());
+                    } else if (cause instanceof CarRentalException) {
+                        final CarRentalException e = (CarRentalException) cause;
+                        logger.error("Booking of car (VIN={}) for time period ({} - {}) failed: {}",
+                                bookingDetails.getVin(), bookingDetails.getFromDate(),
+                                bookingDetails.getToDate(), e.getMessage());
+                        bookingResult = new BookingResult(e.getErrorCode(), e.getMessage());
+                    } else {
+                        throw new CompletionException(cause);
+                    }
+
+                    logger.info("Returning booking result: {}", bookingResult);
+                    return bookingResult;
+                });
+    }
+
+    /**
+     * Performs the bookings of a batch of booking requests. In atomic mode either all bookings
+     * are saved, or none of them. The request is processed asynchronously, like
+     * {@link #bookCar(BookingReservationDetails, String, String)}.
+     *
+     * @param bookingDetails
+     *            list of objects containing booking data
+     * @param isAtomic
+     *            <code>true</code> for all-or-nothing mode, <code>false</code> (default) to save
+     *            every successful booking
+     * @param fields
+     *            comma separated names of the fields of the booked cars to be returned
+     * @param view
+     *            {@value #FULL_VIEW} (default) or {@value #SUMMARY_VIEW} view of the booked cars,
+     *            ignored if the fields are selected
+     * @return {@link CompletableFuture} of the results of the booking processes, in the order of
+     *         the requests
+     */
+    @RequestMapping(value = "/bookCars", method = RequestMethod.POST,
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE,
+                    SmileHttpMessageConverter.APPLICATION_SMILE_VALUE})
+    public @ResponseBody CompletableFuture<List<BookingResult>> bookCars(
+            @RequestBody final List<BookingReservationDetails> bookingDetails,
+            @RequestParam(value = "atomic", defaultValue = "false") final boolean isAtomic,
+            @RequestParam(value = "fields", required = false) final String fields,
+            @RequestParam(value = "view", required = false) final String view) {
+        final Set<CarField> carFields = selectCarFields(fields, view);
+        logger.info("Received batch of {} car rental booking details (atomic={})",
+                bookingDetails.size(), isAtomic);
+        final List<BookingRequest> requests = new ArrayList<>(bookingDetails.size());
+        for (final BookingReservationDetails details : bookingDetails) {
+            requests.add(new BookingRequest(details.getVin(), details.getFromDate(),
+                    details.getToDate(), details.getForeignCountries()));
+        }
+        return carRentalService.bookCarsAsync(requests, isAtomic).thenApply(outcomes -> {
+            final List<BookingResult> bookingResults = new ArrayList<>(outcomes.size());
+            int successfulNr = 0;
+            for (final BookingOutcome outcome : outcomes) {
+                if (outcome.isSuccessful()) {
+                    bookingResults.add(
+                            new BookingResult(new BookingView(outcome.getBooking(), carFields),
+                                    BookingProcessResult.SUCCESS));
+                    successfulNr++;
+                } else {
+                    bookingResults.add(new BookingResult(outcome.getError().getErrorCode(),
+                            outcome.getError().getMessage()));
+                }
+            }
+            logger.info("Returning {} booking results, {} of them successful",
+                    bookingResults.size(), successfulNr);
+            return bookingResults;
+        });
+    }
+
+    /**
+     * Selects the fields of the cars to be returned.
+     *
+     * @param fields
+     *            comma separated names of the car fields, can be <code>null</code>
+     * @param view
+     *            name of the view, can be <code>null</code>
+     * @return selected car fields
+     * @throws InvalidFieldSelectionException
+     *             if a field or the view is unknown
+     */
+    private static Set<CarField> selectCarFields(final String fields, final String view) {
+        if (fields != null) {
+            try {
+                return CarField.parse(fields);
+            } catch (final IllegalArgumentException e) {
+                throw new InvalidFieldSelectionException(e.getMessage(), e);
+            }
+        }
+        if (view == null || FULL_VIEW.equals(view)) {
+            return CarField.ALL;
+        }
+        if (SUMMARY_VIEW.equals(view)) {
+            return CarField.SUMMARY;
+        }
+        throw new InvalidFieldSelectionException("Unknown view: " + view, null);
+    }
+
+    /**
+     * Creates the representations of cars.
+     *
+     * @param cars
+     *            car entities
+     * @param carFields
+     *            fields of the cars to be returned
+     * @return {@link List} of car representations
+     */
+    private static List<CarView> toViews(final List<Car> cars, final Set<CarField> carFields) {
+        final List<CarView> carViews = new ArrayList<>(cars.size());
+        for (final Car car : cars) {
+            carViews.add(new CarView(car, carFields));
+        }
+        return carViews;
+    }
+
+    /**
+     * Gets the entity tag of the representation of a resource. JSON and Smile representations of
+     * the same data need different strong entity tags, so the tag of the Smile representation
+     * gets a suffix. The representation is selected like the content negotiation of Spring MVC
+     * does: the accepted media types are checked by quality and specificity, and JSON wins if
+     * both are accepted equally.
+     *
+     * @param eTag
+     *            quoted entity tag of the data
+     * @param accept
+     *            value of the <code>Accept</code> header, can be <code>null</code>
+     * @return quoted entity tag of the representation
+     */
+    private static String getRepresentationETag(final String eTag, final String accept) {
+        if (accept == null) {
+            return eTag;
+        }
+        final List<MediaType> acceptedTypes;
         try {
-            final Booking booking =
-                    carRentalService.bookCar(bookingDetails.getVin(), bookingDetails.getFromDate(),
-                            bookingDetails.getToDate(), bookingDetails.getForeignCountries());
-            bookingResult = new BookingResult(booking, BookingProcessResult.SUCCESS);
-            logger.debug("Booking of car (VIN={}) for time period ({} - {}) was successful",
-                    bookingDetails.getVin(), bookingDetails.getFromDate(),
-                    bookingDetails.getToDate());
-        } catch (final CarRentalException e) {
-            logger.error("Booking of car (VIN={}) for time period ({} - {}) failed: {}",
-                    bookingDetails.getVin(), bookingDetails.getFromDate(),
-                    bookingDetails.getToDate(), e.getMessage());
-            bookingResult = new BookingResult(e.getErrorCode(), e.getMessage());
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (final InvalidMediaTypeException e) {
+            return eTag;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (final MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return eTag;
+            }
+            if (acceptedType.isCompatibleWith(SmileHttpMessageConverter.APPLICATION_SMILE)) {
+                return eTag.substring(0, eTag.length() - 1) + "-smile\"";
+            }
         }
+        return eTag;
+    }
+
+    /**
+     * Checks if the <code>If-None-Match</code> header of a request holds an entity tag. Weak
+     * comparison is used, as required for the header.
+     *
+     * @param ifNoneMatch
+     *            value of the header, can be <code>null</code>
+     * @param eTag
+     *            quoted entity tag
+     * @return <code>true</code> if the header holds the tag or <code>*</code>
+     */
+    private static boolean isMatching(final String ifNoneMatch, final String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String tag : ifNoneMatch.split(",")) {
+            final String trimmedTag = tag.trim();
+            if (trimmedTag.equals("*") || trimmedTag.equals(eTag)
+                    || trimmedTag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        logger.info("Returning booking result: {}", bookingResult);
-        return bookingResult;
+    /**
+     * Creates a <code>200 OK</code> response builder with caching headers.
+     *
+     * @param eTag
+     *            quoted entity tag of the response
+     * @return response builder
+     */
+    private ResponseEntity.BodyBuilder cacheable(final String eTag) {
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates a <code>304 Not Modified</code> response.
+     *
+     * @param <T>
+     *            body type of the response
+     * @param eTag
+     *            quoted entity tag of the cached response
+     * @return response without body
+     */
+    private <T> ResponseEntity<T> notModified(final String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT)
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS)).build();
     }
 }
@@ -0,0 +1,27 @@
+package com.msci.carrental.server.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception of requests selecting unknown fields or views of the returned cars, answered with
+ * <code>400 Bad Request</code>.
+ *
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldSelectionException extends RuntimeException {
+    /** Serial version UID. */
+    private static final long serialVersionUID = -2650713374283458716L;
+
+    /**
+     * Ctor.
+     *
+     * @param message
+     *            error message
+     * @param cause
+     *            cause of the exception, can be <code>null</code>
+     */
+    public InvalidFieldSelectionException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
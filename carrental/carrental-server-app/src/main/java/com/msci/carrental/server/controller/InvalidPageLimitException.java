@@ -0,0 +1,25 @@
+package com.msci.carrental.server.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception of requests limiting the returned cars to a non-positive number, answered with
+ * <code>400 Bad Request</code>.
+ *
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageLimitException extends RuntimeException {
+    /** Serial version UID. */
+    private static final long serialVersionUID = 4617930287415528390L;
+
+    /**
+     * Ctor.
+     *
+     * @param message
+     *            error message
+     */
+    public InvalidPageLimitException(final String message) {
+        super(message);
+    }
+}
@@ -3,6 +3,9 @@ package com.msci.carrental.server.service;
 import com.msci.carrental.CountryCheckerService;
 
 import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 
 import org.slf4j.Logger;
@@ -29,24 +32,49 @@ public class CountryCheckerServiceMock implements CountryCheckerService {
     public boolean isCountriesAllowedForCar(final String vin, final String[] countries) {
         logger.info("Checking if given countries ({}) are allowed for car (VIN={})", countries,
                 vin);
+        final boolean isCarAllowed = isCarAllowed(countries == null ? 0 : countries.length);
+        pause();
+        logger.info("Car (VIN={}) is{} allowed to be used in countries: {}", vin,
+                isCarAllowed ? "" : " not", countries);
+        return isCarAllowed;
+    }
+
+    @Override
+    public Map<String, Boolean> checkCountriesForCar(
+            final String vin,
+            final Collection<String> countries) {
+        logger.info("Checking given countries ({}) one by one for car (VIN={})", countries, vin);
+        final Map<String, Boolean> permissions = new HashMap<>();
+        for (final String country : countries) {
+            permissions.put(country, isCarAllowed(1));
+        }
+        pause();
+        logger.info("Car (VIN={}) permissions for countries: {}", vin, permissions);
+        return permissions;
+    }
+
+    /**
+     * Decides if a car is allowed to go to the given number of countries.
+     *
+     * @param countryNr
+     *            number of countries
+     * @return <code>true</code> for no or even number of countries
+     */
+    private boolean isCarAllowed(final int countryNr) {
+        return countryNr % 2 == 0;
+    }
+
+    /** Pauses the checker process for a random time. */
+    private void pause() {
         int pauseTime = random.nextInt(MAX_PAUSE_TIME_LIMIT_MS);
         if (pauseTime < MIN_PAUSE_TIME_MS) {
             pauseTime = MIN_PAUSE_TIME_MS;
         }
-        boolean isCarAllowed = false;
-        if (countries == null || countries.length == 0) {
-            isCarAllowed = true;
-        } else {
-            isCarAllowed = countries.length % 2 == 0;
-        }
         try {
             Thread.sleep(pauseTime);
         } catch (final InterruptedException e) {
             logger.warn("Failed to pause checker process for {} ms due to an error: {}", pauseTime,
                     e.getMessage());
         }
-        logger.info("Car (VIN={}) is{} allowed to be used in countries: {}", vin,
-                isCarAllowed ? "" : " not", countries);
-        return isCarAllowed;
     }
 }
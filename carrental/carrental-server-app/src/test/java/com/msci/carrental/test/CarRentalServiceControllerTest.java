@@ -0,0 +1,237 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.CarRentalService;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.rest.CarView;
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
+import com.msci.carrental.server.Application;
+import com.msci.carrental.server.controller.CarRentalServiceController;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+import com.msci.carrental.version.ResourceVersions;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class of the HTTP caching, the field selection and the wire formats of the car and
+ * availability resources.
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+public class CarRentalServiceControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ResourceVersions resourceVersions;
+    @MockBean
+    private CarRentalService carRentalService;
+    @MockBean
+    private CarRepository carRepository;
+
+    @Test
+    public void testCarDetailsAreTagged() throws Exception {
+        final Car car = new Car();
+        car.setVin("vin1");
+        Mockito.when(carRentalService.getCarDetails("vin1")).thenReturn(car);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/carDetails/vin1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG,
+                        resourceVersions.getCarETag("vin1")))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CACHE_CONTROL,
+                        "max-age=0"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.vin").value("vin1"));
+    }
+
+    @Test
+    public void testNotModifiedCarDetailsSkipServiceAndRepository() throws Exception {
+        final String eTag = resourceVersions.getCarETag("vin1");
+        mockMvc.perform(MockMvcRequestBuilders.get("/carDetails/vin1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        Mockito.verifyZeroInteractions(carRentalService, carRepository);
+    }
+
+    @Test
+    public void testNotModifiedAvailableCarsSkipServiceAndRepository() throws Exception {
+        final String eTag = resourceVersions.getAvailabilityETag();
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCarsForPeriod")
+                .param("from", "2030-01-01").param("to", "2030-01-05")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        Mockito.verifyZeroInteractions(carRentalService, carRepository);
+    }
+
+    @Test
+    public void testChangedAvailabilityIsReturned() throws Exception {
+        final String eTag = resourceVersions.getAvailabilityETag();
+        resourceVersions.bookingsSaved();
+        final String newETag = resourceVersions.getAvailabilityETag();
+        Assert.assertNotEquals(eTag, newETag);
+        Mockito.when(carRentalService.findAvailableCars()).thenReturn(Arrays.asList(new Car()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, newETag))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+        Mockito.verify(carRentalService).findAvailableCars();
+    }
+
+    @Test
+    public void testUpdatedCarGetsNewTag() {
+        final String eTag = resourceVersions.getCarETag("vin1");
+        final String availabilityETag = resourceVersions.getAvailabilityETag();
+        resourceVersions.carUpdated("vin1");
+        Assert.assertNotEquals(eTag, resourceVersions.getCarETag("vin1"));
+        Assert.assertNotEquals(availabilityETag, resourceVersions.getAvailabilityETag());
+        final String otherETag = resourceVersions.getCarETag("vin2");
+        resourceVersions.allCarsUpdated();
+        Assert.assertNotEquals(otherETag, resourceVersions.getCarETag("vin2"));
+    }
+
+    @Test
+    public void testAvailableCarsSummaryView() throws Exception {
+        Mockito.when(carRentalService.findAvailableCars()).thenReturn(Arrays.asList(createCar()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("view", "summary"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].vin").value("vin1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].make").value("Audi"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].model").value("A4"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].category").value("SEDAN"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].plate").doesNotExist())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].yearOfproduction").doesNotExist());
+    }
+
+    @Test
+    public void testAvailableCarsFieldSelection() throws Exception {
+        Mockito.when(carRentalService.findAvailableCars(Matchers.any(CarFilter.class),
+                Matchers.isNull(String.class), Matchers.eq(0)))
+                .thenReturn(Arrays.asList(createCar()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("make", "Audi")
+                .param("fields", "vin, plate").param("view", "summary"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(
+                        "[{\"vin\":\"vin1\",\"plate\":\"AAA111\"}]", true));
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("fields", "vin,price"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("view", "tiny"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void testAvailableCarsPageLimit() throws Exception {
+        Mockito.when(carRentalService.findAvailableCars(Matchers.any(CarFilter.class),
+                Matchers.isNull(String.class), Matchers.eq(1)))
+                .thenReturn(Arrays.asList(createCar()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("limit", "1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(
+                        CarRentalServiceController.NEXT_AFTER_HEADER, "vin1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("limit", "0"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars").param("limit", "-5"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        Mockito.verify(carRentalService).findAvailableCars(Matchers.any(CarFilter.class),
+                Matchers.isNull(String.class), Matchers.anyInt());
+        Mockito.verifyNoMoreInteractions(carRentalService);
+    }
+
+    @Test
+    public void testBookingResultSummaryView() throws Exception {
+        final LocalDate fromDate = LocalDate.of(2030, 1, 1);
+        final LocalDate toDate = LocalDate.of(2030, 1, 5);
+        final Booking booking = new Booking();
+        booking.setBookingId(42);
+        booking.setFromDate(fromDate);
+        booking.setToDate(toDate);
+        booking.setBookedCar(createCar());
+        Mockito.when(carRentalService.bookCarAsync(Matchers.eq("vin1"), Matchers.eq(fromDate),
+                Matchers.eq(toDate), Matchers.any()))
+                .thenReturn(CompletableFuture.completedFuture(booking));
+
+        final MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.post("/bookCar").param("view", "summary")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"vin\":\"vin1\","
+                                + "\"fromDate\":\"2030-01-01\",\"toDate\":\"2030-01-05\"}"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.booking.bookingId").value(42))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.booking.fromDate").value("2030-01-01"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.booking.toDate").value("2030-01-05"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.booking.bookedCar.vin").value("vin1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.booking.bookedCar.plate")
+                        .doesNotExist());
+    }
+
+    @Test
+    public void testAvailableCarsInSmileFormat() throws Exception {
+        Mockito.when(carRentalService.findAvailableCars()).thenReturn(Arrays.asList(createCar()));
+        final String jsonETag = resourceVersions.getAvailabilityETag();
+
+        final MvcResult result = mockMvc
+                .perform(MockMvcRequestBuilders.get("/availableCars")
+                        .accept(SmileHttpMessageConverter.APPLICATION_SMILE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content()
+                        .contentType(SmileHttpMessageConverter.APPLICATION_SMILE))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY,
+                        HttpHeaders.ACCEPT))
+                .andReturn();
+        final String smileETag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        Assert.assertNotEquals(jsonETag, smileETag);
+        final CarView[] cars = new ObjectMapper(new SmileFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), CarView[].class);
+        Assert.assertEquals(1, cars.length);
+        Assert.assertEquals("AAA111", cars[0].getPlate());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars")
+                .accept(SmileHttpMessageConverter.APPLICATION_SMILE)
+                .header(HttpHeaders.IF_NONE_MATCH, smileETag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+        mockMvc.perform(MockMvcRequestBuilders.get("/availableCars")
+                .accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, smileETag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, jsonETag));
+    }
+
+    private Car createCar() {
+        return new Car("vin1", "Audi", "A4", 2016, Fuel.DIESEL, "AAA111", CarCategory.SEDAN);
+    }
+}
@@ -1,19 +1,26 @@
 package com.msci.carrental.test;
 
+import com.msci.carrental.BookingOutcome;
+import com.msci.carrental.BookingRequest;
 import com.msci.carrental.CarRentalService;
 import com.msci.carrental.exception.CarRentalErrorCodes;
 import com.msci.carrental.exception.CarRentalException;
 import com.msci.carrental.model.Booking;
 import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
 import com.msci.carrental.server.Application;
+import com.msci.carrental.type.CarCategory;
 import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.type.Fuel;
 
 import java.security.SecureRandom;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
-import org.apache.commons.lang3.time.DateUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,6 +43,52 @@ public class CarRentalServiceSpringTest {
         Assert.assertFalse(availableCars.isEmpty());
     }
 
+    @Test
+    public void testFindAvailableCarsWithFilter() {
+        final CarFilter filter = new CarFilter();
+        filter.setCategory(CarCategory.SUV);
+        filter.setFuelType(Fuel.DIESEL);
+        final List<Car> availableCars = carRentalService.findAvailableCars(filter, null, 0);
+        Assert.assertFalse(availableCars.isEmpty());
+        for (final Car car : availableCars) {
+            Assert.assertEquals(CarCategory.SUV, car.getCategory());
+            Assert.assertEquals(Fuel.DIESEL, car.getFuelType());
+        }
+    }
+
+    @Test
+    public void testFindAvailableCarsPaged() {
+        final List<Car> availableCars = carRentalService.findAvailableCars(null, null, 0);
+        final List<String> pagedVins = new ArrayList<>();
+        String afterVin = null;
+        List<Car> page;
+        do {
+            page = carRentalService.findAvailableCars(null, afterVin, 5);
+            Assert.assertTrue(page.size() <= 5);
+            for (final Car car : page) {
+                pagedVins.add(car.getVin());
+                afterVin = car.getVin();
+            }
+        } while (page.size() == 5);
+
+        final List<String> sortedVins = new ArrayList<>();
+        for (final Car car : availableCars) {
+            sortedVins.add(car.getVin());
+        }
+        Collections.sort(sortedVins);
+        Assert.assertEquals(sortedVins, pagedVins);
+    }
+
+    @Test
+    public void testStreamAvailableCars() {
+        final CarFilter filter = new CarFilter();
+        filter.setMake("Ford");
+        final List<Car> streamedCars = new ArrayList<>();
+        carRentalService.streamAvailableCars(filter, streamedCars::add);
+        Assert.assertEquals(carRentalService.findAvailableCars(filter, null, 0), streamedCars);
+        Assert.assertFalse(streamedCars.isEmpty());
+    }
+
     @Test(expected = Exception.class)
     public void testGetCarDetailsWithNullVin() {
         carRentalService.getCarDetails(null);
@@ -60,8 +113,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithSuccessfulBooking() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 1);
-        final Date toDate = DateUtils.addDays(new Date(), 2);
+        final LocalDate fromDate = LocalDate.now().plusDays(1);
+        final LocalDate toDate = LocalDate.now().plusDays(2);
         final Booking booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
         Assert.assertNotNull(booking);
         Assert.assertNotNull(booking.getBookingId());
@@ -75,8 +128,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithCarAlreadyBookedSamePeriod() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 3);
-        final Date toDate = DateUtils.addDays(new Date(), 4);
+        final LocalDate fromDate = LocalDate.now().plusDays(3);
+        final LocalDate toDate = LocalDate.now().plusDays(4);
         Booking booking;
         try {
             booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
@@ -103,8 +156,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithCarAlreadyBookedOnPeriodStart() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 10);
-        final Date toDate = DateUtils.addDays(new Date(), 15);
+        final LocalDate fromDate = LocalDate.now().plusDays(10);
+        final LocalDate toDate = LocalDate.now().plusDays(15);
         Booking booking;
         try {
             booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
@@ -120,8 +173,8 @@ public class CarRentalServiceSpringTest {
         Assert.assertEquals(toDate, booking.getToDate());
         Assert.assertEquals(CarUsage.DOMESTIC, booking.getUsage());
         try {
-            carRentalService.bookCar(car.getVin(), DateUtils.addDays(fromDate, -2),
-                    DateUtils.addDays(fromDate, 2), null);
+            carRentalService.bookCar(car.getVin(), fromDate.minusDays(2),
+                    fromDate.plusDays(2), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -132,8 +185,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithCarAlreadyBookedOnPeriodEnd() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 20);
-        final Date toDate = DateUtils.addDays(new Date(), 25);
+        final LocalDate fromDate = LocalDate.now().plusDays(20);
+        final LocalDate toDate = LocalDate.now().plusDays(25);
         Booking booking;
         try {
             booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
@@ -149,8 +202,8 @@ public class CarRentalServiceSpringTest {
         Assert.assertEquals(toDate, booking.getToDate());
         Assert.assertEquals(CarUsage.DOMESTIC, booking.getUsage());
         try {
-            carRentalService.bookCar(car.getVin(), DateUtils.addDays(toDate, -2),
-                    DateUtils.addDays(toDate, 2), null);
+            carRentalService.bookCar(car.getVin(), toDate.minusDays(2),
+                    toDate.plusDays(2), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -161,8 +214,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithCarAlreadyBookedWithinPeriod() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 30);
-        final Date toDate = DateUtils.addDays(new Date(), 35);
+        final LocalDate fromDate = LocalDate.now().plusDays(30);
+        final LocalDate toDate = LocalDate.now().plusDays(35);
         Booking booking;
         try {
             booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
@@ -178,8 +231,8 @@ public class CarRentalServiceSpringTest {
         Assert.assertEquals(toDate, booking.getToDate());
         Assert.assertEquals(CarUsage.DOMESTIC, booking.getUsage());
         try {
-            carRentalService.bookCar(car.getVin(), DateUtils.addDays(fromDate, 1),
-                    DateUtils.addDays(toDate, -1), null);
+            carRentalService.bookCar(car.getVin(), fromDate.plusDays(1),
+                    toDate.minusDays(1), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -190,8 +243,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithForeignCountriesAllowed() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 40);
-        final Date toDate = DateUtils.addDays(new Date(), 45);
+        final LocalDate fromDate = LocalDate.now().plusDays(40);
+        final LocalDate toDate = LocalDate.now().plusDays(45);
         final Booking booking = carRentalService.bookCar(car.getVin(), fromDate, toDate,
                 new String[] {"Italy", "Austria"});
         Assert.assertNotNull(booking);
@@ -206,8 +259,8 @@ public class CarRentalServiceSpringTest {
     @Test
     public void testBookCarWithForeignCountriesDenied() {
         final Car car = selectOneExistingCar();
-        final Date fromDate = DateUtils.addDays(new Date(), 50);
-        final Date toDate = DateUtils.addDays(new Date(), 55);
+        final LocalDate fromDate = LocalDate.now().plusDays(50);
+        final LocalDate toDate = LocalDate.now().plusDays(55);
         try {
             carRentalService.bookCar(car.getVin(), fromDate, toDate, new String[] {"Russia"});
             Assert.fail();
@@ -218,6 +271,74 @@ public class CarRentalServiceSpringTest {
         }
     }
 
+    @Test
+    public void testFindAvailableCarsForPeriod() {
+        final Car car = selectOneExistingCar();
+        final LocalDate fromDate = LocalDate.now().plusDays(60);
+        final LocalDate toDate = LocalDate.now().plusDays(65);
+        final CarFilter filter = new CarFilter();
+        filter.setCategory(car.getCategory());
+        Assert.assertTrue(
+                carRentalService.findAvailableCars(fromDate, toDate, filter).contains(car));
+
+        carRentalService.bookCar(car.getVin(), fromDate.plusDays(2),
+                toDate.plusDays(2), null);
+        final List<Car> availableCars =
+                carRentalService.findAvailableCars(fromDate, toDate, filter);
+        Assert.assertFalse(availableCars.contains(car));
+        for (final Car availableCar : availableCars) {
+            Assert.assertEquals(car.getCategory(), availableCar.getCategory());
+        }
+        Assert.assertTrue(carRentalService.findAvailableCars(toDate.plusDays(2),
+                toDate.plusDays(5), filter).contains(car));
+    }
+
+    @Test
+    public void testFindAvailableCarsForInvalidPeriod() {
+        try {
+            carRentalService.findAvailableCars(LocalDate.now().plusDays(5), LocalDate.now(), null);
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_TO_DATE_BEFORE_FROM_DATE,
+                    e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testBookCarsPartialMode() {
+        final Car car = selectOneExistingCar();
+        final LocalDate fromDate = LocalDate.now().plusDays(70);
+        final LocalDate toDate = LocalDate.now().plusDays(72);
+        final List<BookingOutcome> outcomes = carRentalService.bookCars(Arrays.asList(
+                new BookingRequest(car.getVin(), fromDate, toDate, null),
+                new BookingRequest(car.getVin(), fromDate.plusDays(1), toDate, null),
+                new BookingRequest(car.getVin(), toDate, toDate.plusDays(1), null)),
+                false);
+        Assert.assertTrue(outcomes.get(0).isSuccessful());
+        Assert.assertTrue(outcomes.get(0).getBooking().getBookingId() > 0);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
+                outcomes.get(1).getError().getErrorCode());
+        Assert.assertTrue(outcomes.get(2).isSuccessful());
+    }
+
+    @Test
+    public void testBookCarsAtomicMode() {
+        final Car car = selectOneExistingCar();
+        final LocalDate fromDate = LocalDate.now().plusDays(80);
+        final LocalDate toDate = LocalDate.now().plusDays(82);
+        final List<BookingOutcome> outcomes = carRentalService.bookCars(Arrays.asList(
+                new BookingRequest(car.getVin(), fromDate, toDate, null),
+                new BookingRequest(car.getVin(), fromDate, toDate, new String[] {"Russia"})),
+                true);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                outcomes.get(0).getError().getErrorCode());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_FORBIDDEN_FOREIGN_COUNTRY_USAGE,
+                outcomes.get(1).getError().getErrorCode());
+
+        final Booking booking = carRentalService.bookCar(car.getVin(), fromDate, toDate, null);
+        Assert.assertNotNull(booking);
+    }
+
     private Car selectOneExistingCar() {
         final List<Car> availableCars = carRentalService.findAvailableCars();
         Assert.assertNotNull(availableCars);
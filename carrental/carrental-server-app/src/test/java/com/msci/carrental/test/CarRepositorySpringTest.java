@@ -0,0 +1,154 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.AvailableCar;
+import com.msci.carrental.repository.projection.BookingPeriod;
+import com.msci.carrental.server.Application;
+import com.msci.carrental.type.CarUsage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Test class of the projection queries of the repositories. The results are compared to the ones
+ * derived from the entities. Every test runs in a transaction rolled back at its end.
+ *
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@Transactional
+public class CarRepositorySpringTest {
+    @Autowired
+    private CarRepository carRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private final LocalDate date = LocalDate.now().plusYears(5);
+    private List<Car> cars;
+
+    @Before
+    public void init() {
+        cars = carRepository.findAll();
+        cars.sort(Comparator.comparing(Car::getVin));
+        bookingRepository.save(createBooking(cars.get(0), date.minusDays(1), date.plusDays(1)));
+        bookingRepository.save(createBooking(cars.get(1), date.plusDays(1), date.plusDays(2)));
+    }
+
+    @Test
+    public void testFindAllAvailableCarsAtDate() {
+        final List<AvailableCar> availableCars = carRepository.findAllAvailableCarsAtDate(date);
+        availableCars.sort(Comparator.comparing(AvailableCar::getVin));
+        final List<Car> expectedCars = getAvailableCars(car -> true);
+        Assert.assertEquals(cars.size() - 1, expectedCars.size());
+        assertSameCars(expectedCars, availableCars);
+    }
+
+    @Test
+    public void testFindAvailableCarsAtDateWithFilter() {
+        final CarFilter filter = new CarFilter();
+        filter.setCategory(cars.get(1).getCategory());
+        filter.setFuelType(cars.get(1).getFuelType());
+        final List<Car> expectedCars = getAvailableCars(car -> car.getCategory()
+                .equals(filter.getCategory()) && car.getFuelType().equals(filter.getFuelType()));
+        Assert.assertFalse(expectedCars.isEmpty());
+        assertSameCars(expectedCars, carRepository.findAvailableCarsAtDate(date, filter, null, 0));
+    }
+
+    @Test
+    public void testFindAvailableCarsAtDatePaged() {
+        final List<Car> expectedCars = getAvailableCars(car -> true);
+        assertSameCars(expectedCars.subList(0, 2),
+                carRepository.findAvailableCarsAtDate(date, null, null, 2));
+        assertSameCars(expectedCars.subList(2, 5), carRepository.findAvailableCarsAtDate(date,
+                null, expectedCars.get(1).getVin(), 3));
+    }
+
+    @Test(expected = InvalidDataAccessApiUsageException.class)
+    public void testFindAvailableCarsAtDateRejectsNegativeLimit() {
+        carRepository.findAvailableCarsAtDate(date, null, null, -5);
+    }
+
+    @Test
+    public void testStreamAvailableCarsAtDate() {
+        final CarFilter filter = new CarFilter();
+        filter.setMake(cars.get(1).getMake());
+        final List<AvailableCar> streamedCars;
+        try (Stream<AvailableCar> availableCars =
+                carRepository.streamAvailableCarsAtDate(date, filter)) {
+            streamedCars = availableCars.collect(Collectors.toList());
+        }
+        assertSameCars(getAvailableCars(car -> car.getMake().equals(filter.getMake())),
+                streamedCars);
+    }
+
+    @Test
+    public void testFindAllBookingPeriodsEndingFromDate() {
+        final List<String> expectedPeriods = new ArrayList<>();
+        for (final Booking booking : bookingRepository.findAll()) {
+            if (!booking.getToDate().isBefore(date.plusDays(1))) {
+                expectedPeriods.add(booking.getBookedCar().getVin() + " " + booking.getFromDate()
+                        + " " + booking.getToDate());
+            }
+        }
+        final List<String> periods = new ArrayList<>();
+        for (final BookingPeriod period : bookingRepository
+                .findAllBookingPeriodsEndingFromDate(date.plusDays(1))) {
+            periods.add(period.getVin() + " " + period.getFromDate() + " " + period.getToDate());
+        }
+        expectedPeriods.sort(null);
+        periods.sort(null);
+        Assert.assertEquals(2, periods.size());
+        Assert.assertEquals(expectedPeriods, periods);
+    }
+
+    /**
+     * Gets the cars available at the tested date from the car and booking entities.
+     *
+     * @param filter
+     *            filter of the cars
+     * @return available cars ordered by VIN
+     */
+    private List<Car> getAvailableCars(final Predicate<Car> filter) {
+        final List<Car> availableCars = new ArrayList<>(cars);
+        for (final Booking booking : bookingRepository.findAll()) {
+            if (!booking.getFromDate().isAfter(date) && !booking.getToDate().isBefore(date)) {
+                availableCars.remove(booking.getBookedCar());
+            }
+        }
+        availableCars.removeIf(filter.negate());
+        return availableCars;
+    }
+
+    private void assertSameCars(final List<Car> expectedCars, final List<AvailableCar> cars) {
+        Assert.assertEquals(expectedCars.stream().map(Car::toString).collect(Collectors.toList()),
+                cars.stream().map(car -> car.toCar().toString()).collect(Collectors.toList()));
+    }
+
+    private Booking createBooking(final Car car, final LocalDate fromDate, final LocalDate toDate) {
+        final Booking booking = new Booking();
+        booking.setBookedCar(car);
+        booking.setFromDate(fromDate);
+        booking.setToDate(toDate);
+        booking.setUsage(CarUsage.DOMESTIC);
+        return booking;
+    }
+}
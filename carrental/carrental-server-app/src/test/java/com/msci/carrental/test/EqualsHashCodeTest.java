@@ -0,0 +1,172 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.rest.BookingResult;
+import com.msci.carrental.rest.BookingResult.BookingProcessResult;
+import com.msci.carrental.rest.BookingView;
+import com.msci.carrental.rest.CarField;
+import com.msci.carrental.rest.CarView;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.type.Fuel;
+
+import java.time.LocalDate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test class of the <code>equals</code> and <code>hashCode</code> contracts of the entities,
+ * the filter and the REST representations.
+ *
+ */
+public class EqualsHashCodeTest {
+    @Test
+    public void testCarsAreEqualByVin() {
+        final Car car = createCar("vin1", "AAA111");
+        final Car sameCar = createCar("vin1", "BBB222");
+        assertEqual(car, sameCar);
+        assertNotEqual(car, createCar("vin2", "AAA111"));
+        Assert.assertNotEquals(car, null);
+        Assert.assertNotEquals(car, "vin1");
+    }
+
+    @Test
+    public void testCarsWithoutVinAreEqualToThemselvesOnly() {
+        final Car car = createCar(null, "AAA111");
+        assertEqual(car, car);
+        assertNotEqual(car, createCar(null, "AAA111"));
+        assertNotEqual(car, createCar("vin1", "AAA111"));
+    }
+
+    @Test
+    public void testSavedBookingsAreEqualById() {
+        final Booking booking = createBooking(1, "vin1");
+        assertEqual(booking, createBooking(1, "vin2"));
+        assertNotEqual(booking, createBooking(2, "vin1"));
+        Assert.assertNotEquals(booking, null);
+    }
+
+    @Test
+    public void testUnsavedBookingsAreEqualToThemselvesOnly() {
+        final Booking booking = createBooking(0, "vin1");
+        assertEqual(booking, booking);
+        assertNotEqual(booking, createBooking(0, "vin1"));
+        assertNotEqual(booking, createBooking(1, "vin1"));
+
+        // The hash code changes when the booking gets saved, so unsaved bookings shouldn't be
+        // kept in hash based collections
+        final int unsavedHashCode = booking.hashCode();
+        booking.setBookingId(1);
+        Assert.assertNotEquals(unsavedHashCode, booking.hashCode());
+        assertEqual(booking, createBooking(1, "vin1"));
+    }
+
+    @Test
+    public void testCarFiltersAreEqualByCriteria() {
+        final CarFilter filter = createFilter(CarCategory.SUV, Fuel.DIESEL, 2016, "Audi");
+        assertEqual(filter, createFilter(CarCategory.SUV, Fuel.DIESEL, 2016, "Audi"));
+        assertEqual(new CarFilter(), new CarFilter());
+        assertNotEqual(filter, createFilter(CarCategory.SEDAN, Fuel.DIESEL, 2016, "Audi"));
+        assertNotEqual(filter, createFilter(CarCategory.SUV, Fuel.PETROL, 2016, "Audi"));
+        assertNotEqual(filter, createFilter(CarCategory.SUV, Fuel.DIESEL, 2017, "Audi"));
+        assertNotEqual(filter, createFilter(CarCategory.SUV, Fuel.DIESEL, 2016, null));
+        Assert.assertNotEquals(filter, null);
+    }
+
+    @Test
+    public void testCarViewsAreEqualByAllFields() {
+        final CarView view = new CarView(createCar("vin1", "AAA111"), CarField.ALL);
+        assertEqual(view, new CarView(createCar("vin1", "AAA111"), CarField.ALL));
+        assertNotEqual(view, new CarView(createCar("vin1", "BBB222"), CarField.ALL));
+        assertNotEqual(view, new CarView(createCar("vin2", "AAA111"), CarField.ALL));
+        assertNotEqual(view, new CarView(createCar("vin1", "AAA111"), CarField.SUMMARY));
+        assertEqual(new CarView(), new CarView());
+    }
+
+    @Test
+    public void testBookingViewsAreEqualByAllFields() {
+        final BookingView view = new BookingView(createBooking(1, "vin1"), CarField.ALL);
+        assertEqual(view, new BookingView(createBooking(1, "vin1"), CarField.ALL));
+        assertNotEqual(view, new BookingView(createBooking(1, "vin2"), CarField.ALL));
+        assertNotEqual(view, new BookingView(createBooking(2, "vin1"), CarField.ALL));
+        // Unsaved bookings have no identity in their representations
+        assertEqual(new BookingView(createBooking(0, "vin1"), CarField.ALL),
+                new BookingView(createBooking(0, "vin1"), CarField.ALL));
+    }
+
+    @Test
+    public void testBookingResultsAreEqualByAllFields() {
+        final BookingResult result = new BookingResult(
+                new BookingView(createBooking(1, "vin1"), CarField.ALL),
+                BookingProcessResult.SUCCESS);
+        assertEqual(result, new BookingResult(
+                new BookingView(createBooking(1, "vin1"), CarField.ALL),
+                BookingProcessResult.SUCCESS));
+        assertNotEqual(result, new BookingResult(
+                new BookingView(createBooking(2, "vin1"), CarField.ALL),
+                BookingProcessResult.SUCCESS));
+
+        final BookingResult failure = new BookingResult("code", "message");
+        assertEqual(failure, new BookingResult("code", "message"));
+        assertNotEqual(failure, new BookingResult("code", "other message"));
+        assertNotEqual(failure, new BookingResult("other code", "message"));
+        assertNotEqual(failure, result);
+    }
+
+    /**
+     * Asserts that two objects are equal both ways, and have the same hash code.
+     *
+     * @param first
+     *            first object
+     * @param second
+     *            second object
+     */
+    private void assertEqual(final Object first, final Object second) {
+        Assert.assertTrue(first.equals(second));
+        Assert.assertTrue(second.equals(first));
+        Assert.assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    /**
+     * Asserts that two objects are not equal either way.
+     *
+     * @param first
+     *            first object
+     * @param second
+     *            second object
+     */
+    private void assertNotEqual(final Object first, final Object second) {
+        Assert.assertFalse(first.equals(second));
+        Assert.assertFalse(second.equals(first));
+    }
+
+    private Car createCar(final String vin, final String plate) {
+        return new Car(vin, "Audi", "A4", 2016, Fuel.DIESEL, plate, CarCategory.SEDAN);
+    }
+
+    private Booking createBooking(final long bookingId, final String vin) {
+        final Booking booking = new Booking();
+        booking.setBookingId(bookingId);
+        booking.setBookedCar(createCar(vin, "AAA111"));
+        booking.setFromDate(LocalDate.of(2017, 1, 1));
+        booking.setToDate(LocalDate.of(2017, 1, 5));
+        booking.setUsage(CarUsage.DOMESTIC);
+        return booking;
+    }
+
+    private CarFilter createFilter(
+            final CarCategory category,
+            final Fuel fuelType,
+            final Integer yearOfproduction,
+            final String make) {
+        final CarFilter filter = new CarFilter();
+        filter.setCategory(category);
+        filter.setFuelType(fuelType);
+        filter.setYearOfproduction(yearOfproduction);
+        filter.setMake(make);
+        return filter;
+    }
+}
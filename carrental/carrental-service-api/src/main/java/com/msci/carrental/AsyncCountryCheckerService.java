@@ -0,0 +1,23 @@
+package com.msci.carrental;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ *
+ * Asynchronous variant of {@link CountryCheckerService}, letting callers do other work while the
+ * (slow) external check is running.
+ */
+public interface AsyncCountryCheckerService {
+    /**
+     * Starts a check to decide if a certain car is allowed be taken to all of the countries
+     * given.
+     *
+     * @param vin
+     *            VIN of the car
+     * @param countries
+     *            array of countries
+     * @return {@link CompletableFuture} completed with <code>true</code> if the car is allowed to
+     *         go all of the countries, <code>false</code> if it isn't
+     */
+    CompletableFuture<Boolean> isCountriesAllowedForCar(String vin, String[] countries);
+}
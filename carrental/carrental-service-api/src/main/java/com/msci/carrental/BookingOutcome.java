@@ -0,0 +1,65 @@
+package com.msci.carrental;
+
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.model.Booking;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Outcome of a booking request of a booking batch: either the saved booking or the error which
+ * prevented it.
+ *
+ */
+public class BookingOutcome {
+    /** Details of the saved booking, <code>null</code> if the booking failed. */
+    private final Booking booking;
+    /** Error of the failed booking, <code>null</code> if the booking was successful. */
+    private final CarRentalException error;
+
+    /**
+     * Ctor.
+     *
+     * @param booking
+     *            details of the saved booking
+     */
+    public BookingOutcome(final Booking booking) {
+        super();
+        this.booking = booking;
+        this.error = null;
+    }
+
+    /**
+     * Ctor.
+     *
+     * @param error
+     *            error of the failed booking
+     */
+    public BookingOutcome(final CarRentalException error) {
+        super();
+        this.booking = null;
+        this.error = error;
+    }
+
+    public Booking getBooking() {
+        return booking;
+    }
+
+    public CarRentalException getError() {
+        return error;
+    }
+
+    /**
+     * Checks if the booking was saved.
+     *
+     * @return <code>true</code> if the booking was successful
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
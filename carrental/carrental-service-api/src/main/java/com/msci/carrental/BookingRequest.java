@@ -0,0 +1,67 @@
+package com.msci.carrental;
+
+import java.time.LocalDate;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Immutable data of a car booking request of a booking batch.
+ *
+ */
+public class BookingRequest {
+    /** Car VIN number. */
+    private final String vin;
+    /** Booking starting date. */
+    private final LocalDate fromDate;
+    /** Booking ending date. */
+    private final LocalDate toDate;
+    /** Array of (foreign) countries the car will be used in. */
+    private final String[] foreignCountries;
+
+    /**
+     * Ctor.
+     *
+     * @param vin
+     *            car VIN number
+     * @param fromDate
+     *            booking starting date
+     * @param toDate
+     *            booking ending date
+     * @param foreignCountries
+     *            Array of (foreign) country names the car will be driven in. Should be
+     *            <code>null</code> for domestic use only!
+     */
+    public BookingRequest(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final String[] foreignCountries) {
+        super();
+        this.vin = vin;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.foreignCountries = foreignCountries;
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public String[] getForeignCountries() {
+        return foreignCountries;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
+    }
+}
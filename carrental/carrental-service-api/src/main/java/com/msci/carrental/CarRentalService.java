@@ -3,9 +3,12 @@ package com.msci.carrental;
 import com.msci.carrental.exception.CarRentalException;
 import com.msci.carrental.model.Booking;
 import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
 
-import java.util.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Service interface for car rental related operations.
@@ -19,6 +22,49 @@ public interface CarRentalService {
      */
     List<Car> findAvailableCars();
 
+    /**
+     * Lists a page of the cars available for rental in the moment, matching the filter criteria
+     * and ordered by VIN. Pages are addressed by the last VIN of the previous page.
+     *
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @param afterVin
+     *            VIN value after which the page starts, or <code>null</code> for the first page
+     * @param limit
+     *            maximal number of cars on the page, or 0 for no limit (not negative)
+     * @return (potentially empty) {@link List} of available cars
+     */
+    List<Car> findAvailableCars(CarFilter filter, String afterVin, int limit);
+
+    /**
+     * Passes the cars available for rental in the moment, matching the filter criteria, to a
+     * consumer one by one as they are read, ordered by VIN.
+     *
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @param consumer
+     *            consumer of the cars
+     */
+    void streamAvailableCars(CarFilter filter, Consumer<Car> consumer);
+
+    /**
+     * Lists the cars matching the filter criteria which are available for rental in the whole
+     * given time period, ordered by VIN.
+     *
+     * @param fromDate
+     *            period start date
+     * @param toDate
+     *            period end date
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @return (potentially empty) {@link List} of available cars
+     * @throws CarRentalException
+     *             If the date range is invalid (missing dates, end date before start date or start
+     *             date in the past).
+     */
+    List<Car> findAvailableCars(LocalDate fromDate, LocalDate toDate, CarFilter filter)
+            throws CarRentalException;
+
     /**
      * Gets the details of a car identified by it's unique VIN number.
      *
@@ -47,6 +93,64 @@ public interface CarRentalService {
      *             is already booked for that time or it's not allowed to be driven in the countries
      *             given.
      */
-    Booking bookCar(String vin, Date fromDate, Date toDate, String[] foreignCountries)
+    Booking bookCar(String vin, LocalDate fromDate, LocalDate toDate, String[] foreignCountries)
             throws CarRentalException;
+
+    /**
+     * Asynchronous variant of {@link #bookCar(String, LocalDate, LocalDate, String[])}. The (slow)
+     * country check runs in parallel with the other checks and the booking is saved when it
+     * completes, so the calling thread isn't blocked while waiting for it.
+     *
+     * @param vin
+     *            VIN number value
+     * @param fromDate
+     *            booking start date
+     * @param toDate
+     *            booking end date
+     * @param foreignCountries
+     *            Array of (foreign) country names the car will be driven in. Should be
+     *            <code>null</code> for domestic use only!
+     * @return {@link CompletableFuture} completed with the details of successful booking, or
+     *         completed exceptionally with a {@link CarRentalException} if the booking fails
+     */
+    CompletableFuture<Booking> bookCarAsync(
+            String vin,
+            LocalDate fromDate,
+            LocalDate toDate,
+            String[] foreignCountries);
+
+    /**
+     * Books the rental of cars for a batch of booking requests. The requests are checked the same
+     * way as by {@link #bookCar(String, LocalDate, LocalDate, String[])}, and the successful
+     * bookings are saved together. Requests of the same car for conflicting periods are decided in
+     * the order of the batch.
+     * <p>
+     * In atomic mode either all bookings are saved, or none of them: if any request fails, the
+     * other ones fail with the error code
+     * {@link com.msci.carrental.exception.CarRentalErrorCodes#ERROR_BOOKING_BATCH_ABORTED}.
+     *
+     * @param requests
+     *            booking requests
+     * @param isAtomic
+     *            <code>true</code> for all-or-nothing mode, <code>false</code> to save every
+     *            successful booking
+     * @return outcomes of the requests, in the order of the requests
+     */
+    List<BookingOutcome> bookCars(List<BookingRequest> requests, boolean isAtomic);
+
+    /**
+     * Asynchronous variant of {@link #bookCars(List, boolean)}. The country checks of all
+     * requests run in parallel.
+     *
+     * @param requests
+     *            booking requests
+     * @param isAtomic
+     *            <code>true</code> for all-or-nothing mode, <code>false</code> to save every
+     *            successful booking
+     * @return {@link CompletableFuture} completed with the outcomes of the requests, in the order
+     *         of the requests
+     */
+    CompletableFuture<List<BookingOutcome>> bookCarsAsync(
+            List<BookingRequest> requests,
+            boolean isAtomic);
 }
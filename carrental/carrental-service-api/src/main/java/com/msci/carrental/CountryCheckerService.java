@@ -1,5 +1,9 @@
 package com.msci.carrental;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  *
  * Service interface for (external) country checker services.
@@ -17,4 +21,27 @@ public interface CountryCheckerService {
      *         <code>false</code> if it isn't
      */
     boolean isCountriesAllowedForCar(String vin, String[] countries);
+
+    /**
+     * Performs a bulk check to decide which of the given countries a certain car is allowed to be
+     * taken to, one by one. The default implementation checks the countries separately with
+     * {@link #isCountriesAllowedForCar(String, String[])}; services having a bulk API should
+     * override it with a single call.
+     *
+     * @param vin
+     *            VIN of the car
+     * @param countries
+     *            countries to be checked
+     * @return {@link Map} of the countries to <code>true</code> if the car is allowed to go to the
+     *         country, <code>false</code> if it isn't
+     */
+    default Map<String, Boolean> checkCountriesForCar(
+            final String vin,
+            final Collection<String> countries) {
+        final Map<String, Boolean> permissions = new HashMap<>();
+        for (final String country : countries) {
+            permissions.put(country, isCountriesAllowedForCar(vin, new String[] {country}));
+        }
+        return permissions;
+    }
 }
@@ -18,5 +18,7 @@ public final class CarRentalErrorCodes {
     public static final String ERROR_BOOKING_CAR_IS_BOOKED = "carRental.carIsBooked";
     public static final String ERROR_BOOKING_FORBIDDEN_FOREIGN_COUNTRY_USAGE =
             "carRental.forbiddenForeignCountryUsage";
+    public static final String ERROR_BOOKING_VALIDATION_FAILED = "carRental.validationFailed";
+    public static final String ERROR_BOOKING_BATCH_ABORTED = "carRental.batchAborted";
 
 }
@@ -27,6 +27,24 @@ public class CarRentalException extends RuntimeException {
         this.errorCode = errorCode;
     }
 
+    /**
+     * Ctor.
+     * 
+     * @param errorCode
+     *            error code value
+     * @param errorMessage
+     *            exception message value
+     * @param cause
+     *            cause of the error
+     */
+    public CarRentalException(
+            final String errorCode,
+            final String errorMessage,
+            final Throwable cause) {
+        super(errorMessage, cause);
+        this.errorCode = errorCode;
+    }
+
     public String getErrorCode() {
         return errorCode;
     }
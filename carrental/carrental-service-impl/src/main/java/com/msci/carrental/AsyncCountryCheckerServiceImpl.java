@@ -0,0 +1,147 @@
+package com.msci.carrental;
+
+import com.msci.carrental.country.CachingCountryCheckerService;
+import com.msci.carrental.country.CountryPermissionStore;
+import com.msci.carrental.country.DecomposingCountryCheckerService;
+import com.msci.carrental.country.TimedCountryCheckerService;
+import com.msci.carrental.metrics.CarRentalMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implementation class of {@link AsyncCountryCheckerService}. Runs the blocking checks of the
+ * {@link CountryCheckerService} bean on a dedicated thread pool, so they don't hold request
+ * processing threads.
+ * <p>
+ * Multi-country checks can be decided from single-country verdicts by a
+ * {@link DecomposingCountryCheckerService}, and check results can be cached by a
+ * {@link CachingCountryCheckerService}. Both are turned off by default. The calls of the country
+ * checker service itself are timed by a {@link TimedCountryCheckerService}.
+ *
+ */
+@Component
+public class AsyncCountryCheckerServiceImpl implements AsyncCountryCheckerService {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(AsyncCountryCheckerService.class);
+    /** Country checker service bean. */
+    @Autowired
+    private CountryCheckerService countryCheckerService;
+    /** Meter registry bean, the global registry is used if there is none. */
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    /** Number of threads running country checks in parallel. */
+    @Value("${carrental.countryChecker.threadNr:200}")
+    private int threadNr;
+    /** Flag to turn on caching of check results. */
+    @Value("${carrental.countryChecker.cache.enabled:false}")
+    private boolean isCacheEnabled;
+    /** Maximal number of cached check results. */
+    @Value("${carrental.countryChecker.cache.maximumSize:10000}")
+    private int cacheMaximumSize;
+    /** Time to live of cached check results in seconds. */
+    @Value("${carrental.countryChecker.cache.timeToLiveSeconds:3600}")
+    private long cacheTimeToLiveSeconds;
+    /** Flag to turn on deciding multi-country checks from single-country verdicts. */
+    @Value("${carrental.countryChecker.perCountry.enabled:false}")
+    private boolean isPerCountryEnabled;
+    /** Maximal number of stored single-country verdicts. */
+    @Value("${carrental.countryChecker.perCountry.maximumSize:100000}")
+    private int perCountryMaximumSize;
+    /** Time to live of single-country verdicts in seconds. */
+    @Value("${carrental.countryChecker.perCountry.timeToLiveSeconds:3600}")
+    private long perCountryTimeToLiveSeconds;
+    /** Store of single-country verdicts, <code>null</code> if decomposition is turned off. */
+    private CountryPermissionStore countryPermissionStore;
+    /** Cache of check results, <code>null</code> if caching is turned off. */
+    private CachingCountryCheckerService countryCheckerCache;
+    /** Country checker service running the checks (with the decorators turned on). */
+    private CountryCheckerService checker;
+    /** Thread pool running country checks. */
+    private ExecutorService executor;
+
+    /** Creates the thread pool running country checks. */
+    @PostConstruct
+    public void init() {
+        final AtomicInteger threadCounter = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread =
+                    new Thread(runnable, "country-checker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threadNr, threadFactory);
+        logger.info("Started country checker thread pool with {} threads", threadNr);
+
+        meterRegistry = CarRentalMetrics.getRegistry(meterRegistry);
+        checker = new TimedCountryCheckerService(countryCheckerService, meterRegistry);
+        if (isPerCountryEnabled) {
+            countryPermissionStore = new CountryPermissionStore(perCountryMaximumSize,
+                    perCountryTimeToLiveSeconds, TimeUnit.SECONDS);
+            checker = new DecomposingCountryCheckerService(checker, countryPermissionStore);
+            CarRentalMetrics.bindCache(meterRegistry, "countryPermission", countryPermissionStore,
+                    CountryPermissionStore::getHitCount, CountryPermissionStore::getMissCount,
+                    CountryPermissionStore::getEvictionCount, CountryPermissionStore::size);
+            logger.info("Storing at most {} single-country verdicts for {} seconds",
+                    perCountryMaximumSize, perCountryTimeToLiveSeconds);
+        }
+        if (isCacheEnabled) {
+            countryCheckerCache = new CachingCountryCheckerService(checker, cacheMaximumSize,
+                    cacheTimeToLiveSeconds, TimeUnit.SECONDS);
+            checker = countryCheckerCache;
+            CarRentalMetrics.bindCache(meterRegistry, "countryCheck", countryCheckerCache,
+                    CachingCountryCheckerService::getHitCount,
+                    CachingCountryCheckerService::getMissCount,
+                    CachingCountryCheckerService::getEvictionCount,
+                    CachingCountryCheckerService::size);
+            logger.info("Caching at most {} country check results for {} seconds",
+                    cacheMaximumSize, cacheTimeToLiveSeconds);
+        }
+    }
+
+    /** Shuts down the thread pool running country checks. */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public CompletableFuture<Boolean> isCountriesAllowedForCar(
+            final String vin,
+            final String[] countries) {
+        return CompletableFuture.supplyAsync(
+                () -> checker.isCountriesAllowedForCar(vin, countries), executor);
+    }
+
+    /**
+     * Gets the cache of check results.
+     *
+     * @return cache of check results, or <code>null</code> if caching is turned off
+     */
+    public CachingCountryCheckerService getCountryCheckerCache() {
+        return countryCheckerCache;
+    }
+
+    /**
+     * Gets the store of single-country verdicts.
+     *
+     * @return store of single-country verdicts, or <code>null</code> if decomposition is turned
+     *         off
+     */
+    public CountryPermissionStore getCountryPermissionStore() {
+        return countryPermissionStore;
+    }
+}
@@ -1,80 +1,336 @@
 package com.msci.carrental;
 
+import com.msci.carrental.availability.AvailabilityCalendar;
+import com.msci.carrental.availability.AvailableCarsSnapshot;
+import com.msci.carrental.car.CarCache;
 import com.msci.carrental.exception.CarRentalErrorCodes;
 import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.metrics.CarRentalMetrics;
 import com.msci.carrental.model.Booking;
 import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
 import com.msci.carrental.repository.BookingRepository;
 import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.AvailableCar;
+import com.msci.carrental.schedule.BookingScheduleIndex;
 import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.validation.BookingDetailsValidator;
+import com.msci.carrental.validation.BookingValidationContext;
+import com.msci.carrental.validation.BookingValidationPipeline;
+import com.msci.carrental.validation.BookingValidator;
+import com.msci.carrental.validation.CarAvailabilityValidator;
+import com.msci.carrental.validation.CarLookupValidator;
+import com.msci.carrental.validation.CountryCheckValidator;
+import com.msci.carrental.validation.SlotHoldValidator;
+import com.msci.carrental.version.ResourceVersions;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Implementation class of {@link CarRentalService}.
+ * Implementation class of {@link CarRentalService}. Every operation and every validation step of
+ * the bookings is timed, tagged by its result (see {@link CarRentalMetrics}).
  *
  */
 @Component
 public class CarRentalServiceImpl implements CarRentalService {
+    /** Tags of the listing of the cars available today. */
+    private static final Tags FIND_AVAILABLE_CARS_TAGS =
+            Tags.of(CarRentalMetrics.OPERATION_TAG, "findAvailableCars");
+    /** Tags of the paged listing of the cars available today. */
+    private static final Tags FIND_AVAILABLE_CARS_PAGE_TAGS =
+            Tags.of(CarRentalMetrics.OPERATION_TAG, "findAvailableCarsPage");
+    /** Tags of the streaming of the cars available today. */
+    private static final Tags STREAM_AVAILABLE_CARS_TAGS =
+            Tags.of(CarRentalMetrics.OPERATION_TAG, "streamAvailableCars");
+    /** Tags of the listing of the cars available in a period. */
+    private static final Tags FIND_AVAILABLE_CARS_IN_PERIOD_TAGS =
+            Tags.of(CarRentalMetrics.OPERATION_TAG, "findAvailableCarsInPeriod");
+    /** Tags of the car details lookups. */
+    private static final Tags GET_CAR_DETAILS_TAGS =
+            Tags.of(CarRentalMetrics.OPERATION_TAG, "getCarDetails");
+    /** Tags of the bookings. */
+    private static final Tags BOOK_CAR_TAGS = Tags.of(CarRentalMetrics.OPERATION_TAG, "bookCar");
+    /** Tags of the booking batches. */
+    private static final Tags BOOK_CARS_TAGS = Tags.of(CarRentalMetrics.OPERATION_TAG, "bookCars");
     /** {@link Logger} instance. */
     private final Logger logger = LoggerFactory.getLogger(CarRentalService.class);
-    /** Country checker service bean. */
+    /** Asynchronous country checker service bean. */
     @Autowired
-    private CountryCheckerService countryCheckerService;
+    private AsyncCountryCheckerService asyncCountryCheckerService;
     /** Car repository bean. */
     @Autowired
     private CarRepository carRepository;
     /** Booking repository bean. */
     @Autowired
     private BookingRepository bookingRepository;
+    /** Booking schedule index bean. */
+    @Autowired
+    private BookingScheduleIndex bookingScheduleIndex;
+    /** Availability calendar bean. */
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+    /** Booking journal bean. */
+    @Autowired
+    private BookingJournal bookingJournal;
+    /** Resource versions bean. */
+    @Autowired
+    private ResourceVersions resourceVersions;
+    /** Meter registry bean, the global registry is used if there is none. */
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+    /** Additional booking validation stages, <code>null</code> if there are none. */
+    @Autowired(required = false)
+    private List<BookingValidator> bookingValidators;
+
+    /** Maximal number of cached cars. */
+    @Value("${carrental.carCache.maximumSize:10000}")
+    private int carCacheMaximumSize;
+    /** Time to live of cached cars in seconds. */
+    @Value("${carrental.carCache.timeToLiveSeconds:3600}")
+    private long carCacheTimeToLiveSeconds;
+    /** Flag to turn on holding the booking period while the countries are checked. */
+    @Value("${carrental.booking.holdSlotDuringCountryCheck:false}")
+    private boolean isSlotHeldDuringCountryCheck;
+
+    /** Cache of car details. */
+    private CarCache carCache;
+    /** Validation stages of the bookings. */
+    private BookingValidationPipeline bookingValidationPipeline;
+    /** Snapshot of the cars available today. */
+    private final AvailableCarsSnapshot availableCarsSnapshot =
+            new AvailableCarsSnapshot(this::loadAvailableCars);
+
+    /**
+     * Creates the car details cache and the booking validation pipeline, and registers the meters
+     * of the caches, views and the booking journal.
+     */
+    @PostConstruct
+    public void init() {
+        meterRegistry = CarRentalMetrics.getRegistry(meterRegistry);
+        carCache = new CarCache(carCacheMaximumSize, carCacheTimeToLiveSeconds, TimeUnit.SECONDS);
+        CarRentalMetrics.bindCache(meterRegistry, "car", carCache, CarCache::getHitCount,
+                CarCache::getMissCount, CarCache::getEvictionCount, CarCache::size);
+        CarRentalMetrics.bindView(meterRegistry, "availableCarsSnapshot", availableCarsSnapshot,
+                AvailableCarsSnapshot::getRebuildCount,
+                AvailableCarsSnapshot::getLastRebuildMillis);
+        CarRentalMetrics.bindViewUpdates(meterRegistry, "availableCarsSnapshot",
+                availableCarsSnapshot, AvailableCarsSnapshot::getUpdateCount,
+                AvailableCarsSnapshot::getSnapshotAgeMillis);
+        CarRentalMetrics.bindView(meterRegistry, "availabilityCalendar", availabilityCalendar,
+                AvailabilityCalendar::getRebuildCount, AvailabilityCalendar::getLastRebuildMillis);
+        if (bookingJournal.isEnabled()) {
+            CarRentalMetrics.bindJournal(meterRegistry, bookingJournal);
+        }
+
+        bookingValidationPipeline = createBookingValidationPipeline(this::getCarDetails);
+        logger.info("Booking validation stages: {}", bookingValidationPipeline.getValidators()
+                .stream().map(BookingValidator::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * Creates the validation pipeline of bookings.
+     *
+     * @param carLookup
+     *            lookup of the cars by VIN values, returning <code>null</code> for unknown ones
+     * @return booking validation pipeline
+     */
+    private BookingValidationPipeline createBookingValidationPipeline(
+            final Function<String, Car> carLookup) {
+        // The car has to be known to exist before its schedule is checked, and the period has to
+        // be held before the country check, so the stages of equal cost are added in this order
+        final List<BookingValidator> validators = new ArrayList<>();
+        validators.add(new BookingDetailsValidator());
+        validators.add(new CarLookupValidator(carLookup));
+        validators.add(new CarAvailabilityValidator(bookingScheduleIndex));
+        if (isSlotHeldDuringCountryCheck) {
+            validators.add(new SlotHoldValidator(bookingScheduleIndex));
+        }
+        validators.add(new CountryCheckValidator(asyncCountryCheckerService));
+        if (bookingValidators != null) {
+            validators.addAll(bookingValidators);
+        }
+        return new BookingValidationPipeline(validators, meterRegistry);
+    }
 
     public List<Car> findAvailableCars() {
-        final List<String> bookedCarsAtDate = bookingRepository.findAllBookedCarsAtDate(new Date());
-        logger.debug("Found {} cars currently booked: {}", bookedCarsAtDate.size(),
-                bookedCarsAtDate);
-        List<Car> nonBookedCarsAtDate;
-        if (bookedCarsAtDate.isEmpty()) {
-            nonBookedCarsAtDate = carRepository.findAll();
-        } else {
-            nonBookedCarsAtDate = carRepository.findAllNonListedCars(bookedCarsAtDate);
+        return CarRentalMetrics.record(meterRegistry, CarRentalMetrics.SERVICE_CALLS,
+                FIND_AVAILABLE_CARS_TAGS, availableCarsSnapshot::getAvailableCars);
+    }
+
+    public List<Car> findAvailableCars(
+            final CarFilter filter,
+            final String afterVin,
+            final int limit) {
+        final List<Car> availableCars = CarRentalMetrics.record(meterRegistry,
+                CarRentalMetrics.SERVICE_CALLS, FIND_AVAILABLE_CARS_PAGE_TAGS,
+                () -> toCars(carRepository.findAvailableCarsAtDate(LocalDate.now(), filter,
+                        afterVin, limit)));
+        logger.debug("Found {} cars available currently after VIN={} matching filter: {}",
+                availableCars.size(), afterVin, filter);
+        return availableCars;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAvailableCars(final CarFilter filter, final Consumer<Car> consumer) {
+        CarRentalMetrics.record(meterRegistry, CarRentalMetrics.SERVICE_CALLS,
+                STREAM_AVAILABLE_CARS_TAGS, () -> {
+                    try (Stream<AvailableCar> availableCars =
+                            carRepository.streamAvailableCarsAtDate(LocalDate.now(), filter)) {
+                        availableCars.map(AvailableCar::toCar).forEach(consumer);
+                    }
+                });
+    }
+
+    public List<Car> findAvailableCars(
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final CarFilter filter) throws CarRentalException {
+        final List<Car> availableCars = CarRentalMetrics.record(meterRegistry,
+                CarRentalMetrics.SERVICE_CALLS, FIND_AVAILABLE_CARS_IN_PERIOD_TAGS, () -> {
+                    BookingDetailsValidator.validatePeriod(fromDate, toDate);
+                    return availabilityCalendar.findAvailableCars(fromDate, toDate, filter);
+                });
+        logger.debug("Found {} cars available in time period ({} - {}) matching filter: {}",
+                availableCars.size(), fromDate, toDate, filter);
+        return availableCars;
+    }
+
+    /**
+     * Gets the snapshot of the cars available today.
+     *
+     * @return available cars snapshot
+     */
+    public AvailableCarsSnapshot getAvailableCarsSnapshot() {
+        return availableCarsSnapshot;
+    }
+
+    /**
+     * Loads the cars available today from the database, dropping the cars booked today by
+     * journaled bookings not saved there yet.
+     *
+     * @return (potentially empty) {@link List} of available cars
+     */
+    private List<Car> loadAvailableCars() {
+        // Read before the database, so bookings saved to it in the meantime can't be missed
+        final List<Booking> unsavedBookings = bookingJournal.getUnsavedBookings();
+        final LocalDate today = LocalDate.now();
+        final List<Car> nonBookedCarsAtDate =
+                toCars(carRepository.findAllAvailableCarsAtDate(today));
+        if (!unsavedBookings.isEmpty()) {
+            final Set<String> bookedVins = new HashSet<>();
+            for (final Booking booking : unsavedBookings) {
+                if (!booking.getFromDate().isAfter(today) && !booking.getToDate().isBefore(today)) {
+                    bookedVins.add(booking.getBookedCar().getVin());
+                }
+            }
+            nonBookedCarsAtDate.removeIf(car -> bookedVins.contains(car.getVin()));
         }
         logger.debug("Found {} cars available currently: {}", nonBookedCarsAtDate.size(),
                 nonBookedCarsAtDate);
         return nonBookedCarsAtDate;
     }
 
+    /**
+     * Creates the (detached) cars of available car projections.
+     *
+     * @param availableCars
+     *            available car projections
+     * @return {@link List} of cars
+     */
+    private static List<Car> toCars(final List<AvailableCar> availableCars) {
+        final List<Car> cars = new ArrayList<>(availableCars.size());
+        for (final AvailableCar availableCar : availableCars) {
+            cars.add(availableCar.toCar());
+        }
+        return cars;
+    }
+
     public Car getCarDetails(final String vin) {
-        return carRepository.findOne(vin);
+        return CarRentalMetrics.record(meterRegistry, CarRentalMetrics.SERVICE_CALLS,
+                GET_CAR_DETAILS_TAGS, () -> carCache.get(vin, carRepository::findOne));
+    }
+
+    /**
+     * Gets the cache of car details.
+     *
+     * @return car details cache
+     */
+    public CarCache getCarCache() {
+        return carCache;
+    }
+
+    /**
+     * Drops every cached or derived data of a car. Has to be called when the data of a car has
+     * changed, or the car has been added or removed.
+     *
+     * @param vin
+     *            car VIN value
+     */
+    public void carUpdated(final String vin) {
+        carCache.invalidate(vin);
+        availableCarsSnapshot.invalidate();
+        availabilityCalendar.invalidate();
+        resourceVersions.carUpdated(vin);
+    }
+
+    /**
+     * Drops every cached or derived data of the cars. Has to be called when the data of any car
+     * may have changed, e.g. after a bulk update of the fleet.
+     */
+    public void allCarsUpdated() {
+        carCache.invalidateAll();
+        availableCarsSnapshot.invalidate();
+        availabilityCalendar.invalidate();
+        resourceVersions.allCarsUpdated();
     }
 
     public Booking bookCar(
             final String vin,
-            final Date fromDate,
-            final Date toDate,
+            final LocalDate fromDate,
+            final LocalDate toDate,
             final String[] countries) throws CarRentalException {
-        validateBooking(vin, fromDate, toDate, countries);
-
-        final Booking booking = new Booking();
-        booking.setBookedCar(getCarDetails(vin));
-        booking.setFromDate(fromDate);
-        booking.setToDate(toDate);
-        booking.setUsage(
-                countries == null || countries.length == 0 ? CarUsage.DOMESTIC : CarUsage.FOREIGN);
+        return join(bookCarAsync(vin, fromDate, toDate, countries));
+    }
 
-        return bookingRepository.save(booking);
+    public CompletableFuture<Booking> bookCarAsync(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final String[] countries) {
+        return CarRentalMetrics.recordAsync(meterRegistry, CarRentalMetrics.SERVICE_CALLS,
+                BOOK_CAR_TAGS, () -> doBookCarAsync(vin, fromDate, toDate, countries));
     }
 
     /**
-     * Validates booking data details. Every validation error results in a
-     * {@link CarRentalException}.
+     * Validates and saves a booking. The validation stages run cheapest first, so the country
+     * check is only started for bookings passing every other check.
      *
      * @param vin
      *            car VIN value
@@ -83,63 +339,365 @@ public class CarRentalServiceImpl implements CarRentalService {
      * @param toDate
      *            booking ending date
      * @param countries
-     *            array of (foreign) country names to be checked. Can be <code>null</code> value.
-     * @throws CarRentalException
-     *             If any validation fails. Appropriate error code and error message is set for
-     *             every validation error.
+     *            array of (foreign) country names. Can be <code>null</code> value.
+     * @return {@link CompletableFuture} of the saved booking, failed with a
+     *         {@link CarRentalException} if the booking is invalid
      */
-    private void validateBooking(
+    private CompletableFuture<Booking> doBookCarAsync(
             final String vin,
-            final Date fromDate,
-            final Date toDate,
-            final String[] countries) throws CarRentalException {
-        if (StringUtils.isBlank(vin)) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_VIN,
-                    "Missing VIN value");
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final String[] countries) {
+        final BookingValidationContext context =
+                new BookingValidationContext(new BookingRequest(vin, fromDate, toDate, countries));
+        return bookingValidationPipeline.validate(context)
+                .thenCompose(ignored -> saveBooking(context));
+    }
+
+    public List<BookingOutcome> bookCars(
+            final List<BookingRequest> requests,
+            final boolean isAtomic) {
+        return join(bookCarsAsync(requests, isAtomic));
+    }
+
+    public CompletableFuture<List<BookingOutcome>> bookCarsAsync(
+            final List<BookingRequest> requests,
+            final boolean isAtomic) {
+        return CarRentalMetrics.recordAsync(meterRegistry, CarRentalMetrics.SERVICE_CALLS,
+                BOOK_CARS_TAGS, () -> doBookCarsAsync(requests, isAtomic));
+    }
+
+    /**
+     * Validates and saves a batch of bookings. Every request runs through the stages of the
+     * booking validation pipeline, the cars of the batch being loaded with a single query. In
+     * atomic mode no more requests are started after a request is rejected without waiting for a
+     * remote check.
+     *
+     * @param requests
+     *            booking requests
+     * @param isAtomic
+     *            <code>true</code> if no booking can be saved unless all of them are
+     * @return {@link CompletableFuture} of the outcomes of the requests
+     */
+    private CompletableFuture<List<BookingOutcome>> doBookCarsAsync(
+            final List<BookingRequest> requests,
+            final boolean isAtomic) {
+        final BookingOutcome[] outcomes = new BookingOutcome[requests.size()];
+        final Map<String, Car> cars = findCars(requests);
+        final BookingValidationPipeline batchValidationPipeline =
+                createBookingValidationPipeline(cars::get);
+        final List<BookingValidationContext> contexts = new ArrayList<>(requests.size());
+        final List<CompletableFuture<BookingOutcome>> validations =
+                new ArrayList<>(requests.size());
+        for (final BookingRequest request : requests) {
+            final BookingValidationContext context = new BookingValidationContext(request);
+            contexts.add(context);
+            // The outcome futures never fail, so a failed validation only fails its own request
+            final CompletableFuture<BookingOutcome> validation = batchValidationPipeline
+                    .validate(context).handle((ignored, e) -> getValidationOutcome(context, e));
+            validations.add(validation);
+            if (isAtomic && validation.isDone() && validation.join() != null) {
+                break;
+            }
         }
 
-        if (fromDate == null) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_FROM_DATE,
-                    "Missing rental opening date value");
+        return CompletableFuture.allOf(validations.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> {
+                    for (int i = 0; i < validations.size(); i++) {
+                        outcomes[i] = validations.get(i).join();
+                    }
+                    return saveBookings(contexts, outcomes, isAtomic);
+                });
+    }
+
+    /**
+     * Gets the outcome of the validation of a request of a batch.
+     *
+     * @param context
+     *            validation context of the booking request
+     * @param exception
+     *            failure of the validation, <code>null</code> if the request passed it
+     * @return failed outcome if the request was rejected or a stage failed, <code>null</code> if
+     *         the request passed every stage
+     */
+    private static BookingOutcome getValidationOutcome(
+            final BookingValidationContext context,
+            final Throwable exception) {
+        if (exception == null) {
+            return null;
+        }
+        final Throwable cause = exception instanceof CompletionException
+                && exception.getCause() != null ? exception.getCause() : exception;
+        if (cause instanceof CarRentalException) {
+            return new BookingOutcome((CarRentalException) cause);
         }
+        return new BookingOutcome(new CarRentalException(
+                CarRentalErrorCodes.ERROR_BOOKING_VALIDATION_FAILED,
+                "Validation of booking of car (VIN=" + context.getRequest().getVin() + ") failed",
+                cause));
+    }
 
-        if (toDate == null) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_TO_DATE,
-                    "Missing rental ending date value");
+    /**
+     * Saves the validated bookings of a batch in a single transaction (or appends them to the
+     * booking journal). The booking periods not held during the validation are reserved in the
+     * schedules of the cars first, in the order of the batch. Every period is released if the
+     * batch is aborted or saving the bookings fails.
+     *
+     * @param contexts
+     *            validation contexts of the booking requests
+     * @param outcomes
+     *            outcomes of the requests, <code>null</code> for the validated ones and the ones
+     *            not validated at all
+     * @param isAtomic
+     *            <code>true</code> if no booking can be saved unless all of them are
+     * @return {@link CompletableFuture} of the outcomes of the requests
+     */
+    private CompletableFuture<List<BookingOutcome>> saveBookings(
+            final List<BookingValidationContext> contexts,
+            final BookingOutcome[] outcomes,
+            final boolean isAtomic) {
+        final List<Integer> reservedIndexes = new ArrayList<>();
+        for (int i = 0; i < contexts.size(); i++) {
+            if (outcomes[i] == null && contexts.get(i).isSlotHeld()) {
+                reservedIndexes.add(i);
+            }
+        }
+        if (isAtomic && isAnyFailed(outcomes)) {
+            releaseReservations(contexts, reservedIndexes);
+            return CompletableFuture.completedFuture(abortBatch(outcomes));
         }
 
-        if (toDate.before(fromDate)) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_TO_DATE_BEFORE_FROM_DATE,
-                    "Rental ending date (" + toDate + ") if earlier than opening date (" + fromDate
-                            + ")");
+        for (int i = 0; i < contexts.size(); i++) {
+            final BookingValidationContext context = contexts.get(i);
+            final BookingRequest request = context.getRequest();
+            if (outcomes[i] != null || context.isSlotHeld()) {
+                continue;
+            }
+            if (bookingScheduleIndex.reserve(request.getVin(), request.getFromDate(),
+                    request.getToDate())) {
+                reservedIndexes.add(i);
+            } else {
+                outcomes[i] = new BookingOutcome(CarAvailabilityValidator
+                        .createCarIsBookedException(request.getVin(), request.getFromDate(),
+                                request.getToDate()));
+                if (isAtomic) {
+                    releaseReservations(contexts, reservedIndexes);
+                    return CompletableFuture.completedFuture(abortBatch(outcomes));
+                }
+            }
+        }
+        if (reservedIndexes.isEmpty()) {
+            return CompletableFuture.completedFuture(Arrays.asList(outcomes));
         }
 
-        final Date today = new Date();
-        if (fromDate.before(today)) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_INVALID_FROM_DATE,
-                    "Rental opening date can't be earlier than today");
+        final List<Booking> bookings = new ArrayList<>(reservedIndexes.size());
+        for (final int index : reservedIndexes) {
+            final BookingValidationContext context = contexts.get(index);
+            final BookingRequest request = context.getRequest();
+            bookings.add(createBooking(context.getCar(), request.getFromDate(),
+                    request.getToDate(), request.getForeignCountries()));
+        }
+        final CompletableFuture<List<Booking>> savedBookings;
+        try {
+            savedBookings = persistBookings(bookings);
+        } catch (final RuntimeException e) {
+            releaseReservations(contexts, reservedIndexes);
+            throw e;
         }
+        return savedBookings.whenComplete((saved, e) -> {
+            if (e != null) {
+                releaseReservations(contexts, reservedIndexes);
+            }
+        }).thenApply(saved -> {
+            for (int i = 0; i < reservedIndexes.size(); i++) {
+                final BookingRequest request = contexts.get(reservedIndexes.get(i)).getRequest();
+                outcomes[reservedIndexes.get(i)] = new BookingOutcome(saved.get(i));
+                availableCarsSnapshot.bookingSaved(request.getVin(), request.getFromDate(),
+                        request.getToDate());
+                availabilityCalendar.bookingSaved(request.getVin(), request.getFromDate(),
+                        request.getToDate());
+            }
+            resourceVersions.bookingsSaved();
+            logger.debug("Saved {} bookings of a batch of {} requests", saved.size(),
+                    outcomes.length);
+            return Arrays.asList(outcomes);
+        });
+    }
 
-        final Car carDetails = getCarDetails(vin);
-        if (carDetails == null) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
-                    "No car was found for VIN=" + vin);
+    /**
+     * Persists bookings with the booking repository in a single transaction, or appends them to
+     * the booking journal as a unit if write-behind persistence is turned on. Either way every
+     * booking is persisted, or none of them.
+     *
+     * @param bookings
+     *            bookings to be persisted
+     * @return {@link CompletableFuture} of the persisted bookings
+     */
+    private CompletableFuture<List<Booking>> persistBookings(final List<Booking> bookings) {
+        return bookingJournal.isEnabled() ? bookingJournal.appendAll(bookings)
+                : CompletableFuture.completedFuture(bookingRepository.save(bookings));
+    }
+
+    /**
+     * Loads the cars of booking requests with a single query.
+     *
+     * @param requests
+     *            booking requests
+     * @return existing cars mapped by VIN values
+     */
+    private Map<String, Car> findCars(final List<BookingRequest> requests) {
+        final Set<String> vins = new HashSet<>();
+        for (final BookingRequest request : requests) {
+            if (StringUtils.isNotBlank(request.getVin())) {
+                vins.add(request.getVin());
+            }
         }
+        final Map<String, Car> cars = new HashMap<>();
+        if (!vins.isEmpty()) {
+            for (final Car car : carRepository.findAll(vins)) {
+                cars.put(car.getVin(), car);
+            }
+        }
+        return cars;
+    }
 
-        final List<Booking> booking =
-                bookingRepository.findBookingOfCarInDatePeriod(vin, fromDate, toDate);
-        if (booking != null && !booking.isEmpty()) {
-            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
-                    "Car (VIN=" + vin + ") is booked in time period: " + fromDate + " - " + toDate);
+    /**
+     * Releases the reserved (or held) booking periods of a batch.
+     *
+     * @param contexts
+     *            validation contexts of the booking requests
+     * @param reservedIndexes
+     *            indexes of the requests whose period has been reserved
+     */
+    private void releaseReservations(
+            final List<BookingValidationContext> contexts,
+            final List<Integer> reservedIndexes) {
+        for (final int index : reservedIndexes) {
+            final BookingRequest request = contexts.get(index).getRequest();
+            bookingScheduleIndex.release(request.getVin(), request.getFromDate(),
+                    request.getToDate());
         }
+    }
 
-        final boolean isCarAllowedToCountries =
-                countryCheckerService.isCountriesAllowedForCar(vin, countries);
-        if (!isCarAllowedToCountries) {
-            throw new CarRentalException(
-                    CarRentalErrorCodes.ERROR_BOOKING_FORBIDDEN_FOREIGN_COUNTRY_USAGE,
-                    "Car (VIN=" + vin + ") is not allowed to be used in foreign countries: "
-                            + Arrays.toString(countries));
+    /**
+     * Checks if any request of a batch has failed.
+     *
+     * @param outcomes
+     *            outcomes of the requests, <code>null</code> for the undecided ones
+     * @return <code>true</code> if there is a failed request
+     */
+    private static boolean isAnyFailed(final BookingOutcome[] outcomes) {
+        for (final BookingOutcome outcome : outcomes) {
+            if (outcome != null && !outcome.isSuccessful()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fails every not yet failed request of an aborted batch.
+     *
+     * @param outcomes
+     *            outcomes of the requests
+     * @return outcomes of the requests
+     */
+    private static List<BookingOutcome> abortBatch(final BookingOutcome[] outcomes) {
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null || outcomes[i].isSuccessful()) {
+                outcomes[i] = new BookingOutcome(new CarRentalException(
+                        CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                        "Booking batch was aborted, as another booking of the batch failed"));
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Saves a validated booking. The booking period is reserved in the schedule of the car first
+     * (unless it has been held during the validation), as concurrent bookings may have taken it
+     * since the validation. The period is released if saving the booking fails.
+     *
+     * @param context
+     *            validation context of the booking
+     * @return {@link CompletableFuture} of the saved booking, completed when the booking is saved
+     *         to the database or forced to disk in the booking journal
+     * @throws CarRentalException
+     *             If the car has been booked for the period in the meantime.
+     */
+    private CompletableFuture<Booking> saveBooking(final BookingValidationContext context)
+            throws CarRentalException {
+        final String vin = context.getCar().getVin();
+        final LocalDate fromDate = context.getRequest().getFromDate();
+        final LocalDate toDate = context.getRequest().getToDate();
+        final Booking booking = createBooking(context.getCar(), fromDate, toDate,
+                context.getRequest().getForeignCountries());
+        if (!context.isSlotHeld() && !bookingScheduleIndex.reserve(vin, fromDate, toDate)) {
+            throw CarAvailabilityValidator.createCarIsBookedException(vin, fromDate, toDate);
+        }
+        final CompletableFuture<Booking> savedBooking;
+        try {
+            savedBooking = bookingJournal.isEnabled() ? bookingJournal.append(booking)
+                    : CompletableFuture.completedFuture(bookingRepository.save(booking));
+        } catch (final RuntimeException e) {
+            bookingScheduleIndex.release(vin, fromDate, toDate);
+            throw e;
+        }
+        return savedBooking.whenComplete((saved, e) -> {
+            if (e != null) {
+                bookingScheduleIndex.release(vin, fromDate, toDate);
+            }
+        }).thenApply(saved -> {
+            availableCarsSnapshot.bookingSaved(vin, fromDate, toDate);
+            availabilityCalendar.bookingSaved(vin, fromDate, toDate);
+            resourceVersions.bookingsSaved();
+            return saved;
+        });
+    }
+
+    /**
+     * Creates a booking entity.
+     *
+     * @param car
+     *            booked car
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     * @param countries
+     *            array of (foreign) country names. Can be <code>null</code> value.
+     * @return new booking
+     */
+    private Booking createBooking(
+            final Car car,
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final String[] countries) {
+        final Booking booking = new Booking();
+        booking.setBookedCar(car);
+        booking.setFromDate(fromDate);
+        booking.setToDate(toDate);
+        booking.setUsage(
+                countries == null || countries.length == 0 ? CarUsage.DOMESTIC : CarUsage.FOREIGN);
+        return booking;
+    }
+
+    /**
+     * Waits for the result of a {@link CompletableFuture}, rethrowing the runtime exception it
+     * was completed with.
+     *
+     * @param future
+     *            future to wait for
+     * @return result of the future
+     */
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 }
@@ -0,0 +1,344 @@
+package com.msci.carrental.availability;
+
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.BookingPeriod;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calendar of the booked days of all cars, answering which cars are free in a date period
+ * without querying the database. Every car has a bitmap of the days of a rolling horizon starting
+ * today, so checking a period is a masked test of a few words per car.
+ * <p>
+ * A booking occupies the days from its opening date until the day before its ending date (a new
+ * booking may start on the day an existing one ends), or its single day if it starts and ends on
+ * the same day. This matches the conflict rule of the {@link BookingScheduleIndex}.
+ * <p>
+ * The calendar is rebuilt from the database (adding the bookings of the {@link BookingJournal} not
+ * saved there yet) on the first search of a new day, and updated incrementally when a booking is
+ * saved. Periods ending beyond the horizon are checked against
+ * the {@link BookingScheduleIndex} instead.
+ *
+ */
+@Component
+public class AvailabilityCalendar {
+    /** Number of days covered by a bitmap word. */
+    private static final int DAYS_PER_WORD = Long.SIZE;
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(AvailabilityCalendar.class);
+    /** Number of days covered by the calendar, starting today. */
+    @Value("${carrental.availabilityCalendar.horizonDays:730}")
+    private int horizonDays;
+    /** Car repository bean. */
+    @Autowired
+    private CarRepository carRepository;
+    /** Booking repository bean. */
+    @Autowired
+    private BookingRepository bookingRepository;
+    /** Booking schedule index bean. */
+    @Autowired
+    private BookingScheduleIndex bookingScheduleIndex;
+    /** Booking journal bean. */
+    @Autowired
+    private BookingJournal bookingJournal;
+    /** Current calendar, <code>null</code> if it has to be rebuilt. */
+    private volatile Calendar calendar;
+    /** Number of rebuilds. */
+    private final AtomicLong rebuildCount = new AtomicLong();
+    /** Duration of the last rebuild in nanoseconds. */
+    private volatile long lastRebuildNanos;
+
+    /**
+     * Lists the cars matching the filter criteria which are free in the given period.
+     *
+     * @param fromDate
+     *            period opening date, not earlier than today
+     * @param toDate
+     *            period ending date, not earlier than the opening date
+     * @param filter
+     *            filter criteria of the cars, can be <code>null</code>
+     * @return (potentially empty) {@link List} of available cars ordered by VIN
+     */
+    public List<Car> findAvailableCars(
+            final LocalDate fromDate,
+            final LocalDate toDate,
+            final CarFilter filter) {
+        final long today = LocalDate.now().toEpochDay();
+        Calendar currentCalendar = calendar;
+        if (currentCalendar == null || currentCalendar.baseDay != today) {
+            currentCalendar = rebuild(today);
+        }
+
+        final long fromDay = fromDate.toEpochDay();
+        final long toDay = toDate.toEpochDay();
+        final boolean isCovered = currentCalendar.isCovering(toDay);
+        final BitSet candidates = currentCalendar.getCandidates(filter);
+        final List<Car> availableCars = new ArrayList<>();
+        for (int car = candidates.nextSetBit(0); car >= 0; car = candidates.nextSetBit(car + 1)) {
+            final Car carDetails = currentCalendar.cars[car];
+            final boolean isAvailable = isCovered ? currentCalendar.isFree(car, fromDay, toDay)
+                    : bookingScheduleIndex.isCarAvailable(carDetails.getVin(), fromDate, toDate);
+            if (isAvailable) {
+                availableCars.add(carDetails);
+            }
+        }
+        return availableCars;
+    }
+
+    /**
+     * Updates the calendar with a saved booking.
+     *
+     * @param vin
+     *            VIN of the booked car
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     */
+    public synchronized void bookingSaved(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) {
+        final Calendar currentCalendar = calendar;
+        if (currentCalendar != null) {
+            currentCalendar.addBooking(vin, fromDate.toEpochDay(), toDate.toEpochDay());
+        }
+    }
+
+    /** Invalidates the calendar, so it's rebuilt on the next search. */
+    public synchronized void invalidate() {
+        calendar = null;
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    /**
+     * Gets the duration of the last rebuild.
+     *
+     * @return duration of the last rebuild in milliseconds
+     */
+    public long getLastRebuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastRebuildNanos);
+    }
+
+    /**
+     * Rebuilds the calendar from the database, unless a concurrent rebuild has already done it.
+     * Runs under the same lock as {@link #bookingSaved(String, LocalDate, LocalDate)}, so bookings
+     * saved while the database is read are added to the new calendar.
+     *
+     * @param today
+     *            epoch day of today
+     * @return current calendar
+     */
+    private synchronized Calendar rebuild(final long today) {
+        final Calendar currentCalendar = calendar;
+        if (currentCalendar != null && currentCalendar.baseDay == today) {
+            return currentCalendar;
+        }
+        final long startTime = System.nanoTime();
+        // Read before the database, so bookings saved to it in the meantime can't be missed
+        final List<Booking> unsavedBookings = bookingJournal.getUnsavedBookings();
+        final List<Car> cars = carRepository.findAll(new Sort("vin"));
+        final List<BookingPeriod> bookings =
+                bookingRepository.findAllBookingPeriodsEndingFromDate(LocalDate.now());
+        final Calendar newCalendar = new Calendar(today, horizonDays, cars);
+        for (final BookingPeriod booking : bookings) {
+            newCalendar.addBooking(booking.getVin(), booking.getFromDate().toEpochDay(),
+                    booking.getToDate().toEpochDay());
+        }
+        for (final Booking booking : unsavedBookings) {
+            newCalendar.addBooking(booking.getBookedCar().getVin(),
+                    booking.getFromDate().toEpochDay(), booking.getToDate().toEpochDay());
+        }
+        lastRebuildNanos = System.nanoTime() - startTime;
+        rebuildCount.incrementAndGet();
+        logger.info("Rebuilt availability calendar of {} cars with {} bookings in {} ms",
+                cars.size(), bookings.size() + unsavedBookings.size(), getLastRebuildMillis());
+        calendar = newCalendar;
+        return newCalendar;
+    }
+
+    /**
+     * Calendar data of a day. The set of cars is fixed, only the bitmaps of booked days change.
+     *
+     */
+    private static final class Calendar {
+        /** Epoch day of the first bit of the bitmaps. */
+        private final long baseDay;
+        /** Number of bitmap words per car. */
+        private final int wordsPerCar;
+        /** Cars ordered by VIN. */
+        private final Car[] cars;
+        /** Indexes of the cars mapped by VIN values. */
+        private final Map<String, Integer> carIndexes;
+        /** Indexes of the cars by category. */
+        private final Map<CarCategory, BitSet> carsByCategory = new EnumMap<>(CarCategory.class);
+        /** Indexes of the cars by fuel type. */
+        private final Map<Fuel, BitSet> carsByFuelType = new EnumMap<>(Fuel.class);
+        /** Bitmaps of the booked days, {@link #wordsPerCar} consecutive words per car. */
+        private final AtomicLongArray bookedDays;
+
+        private Calendar(final long baseDay, final int horizonDays, final List<Car> cars) {
+            this.baseDay = baseDay;
+            this.wordsPerCar = (horizonDays + DAYS_PER_WORD - 1) / DAYS_PER_WORD;
+            this.cars = cars.toArray(new Car[cars.size()]);
+            this.carIndexes = new HashMap<>(cars.size() * 2);
+            for (int car = 0; car < this.cars.length; car++) {
+                carIndexes.put(this.cars[car].getVin(), car);
+                carsByCategory.computeIfAbsent(this.cars[car].getCategory(), key -> new BitSet())
+                        .set(car);
+                carsByFuelType.computeIfAbsent(this.cars[car].getFuelType(), key -> new BitSet())
+                        .set(car);
+            }
+            this.bookedDays = new AtomicLongArray(this.cars.length * wordsPerCar);
+        }
+
+        /**
+         * Checks if the bitmaps cover a day.
+         *
+         * @param day
+         *            epoch day
+         * @return <code>true</code> if the day is within the horizon
+         */
+        private boolean isCovering(final long day) {
+            return day - baseDay < (long) wordsPerCar * DAYS_PER_WORD;
+        }
+
+        /**
+         * Gets the indexes of the cars matching filter criteria.
+         *
+         * @param filter
+         *            filter criteria of the cars, can be <code>null</code>
+         * @return indexes of the matching cars
+         */
+        private BitSet getCandidates(final CarFilter filter) {
+            final BitSet candidates = new BitSet(cars.length);
+            candidates.set(0, cars.length);
+            if (filter == null) {
+                return candidates;
+            }
+            if (filter.getCategory() != null) {
+                candidates.and(carsByCategory.getOrDefault(filter.getCategory(), new BitSet()));
+            }
+            if (filter.getFuelType() != null) {
+                candidates.and(carsByFuelType.getOrDefault(filter.getFuelType(), new BitSet()));
+            }
+            if (filter.getYearOfproduction() != null || filter.getMake() != null) {
+                for (int car = candidates.nextSetBit(0); car >= 0;
+                        car = candidates.nextSetBit(car + 1)) {
+                    if (filter.getYearOfproduction() != null && !filter.getYearOfproduction()
+                            .equals(cars[car].getYearOfproduction())
+                            || filter.getMake() != null
+                                    && !filter.getMake().equals(cars[car].getMake())) {
+                        candidates.clear(car);
+                    }
+                }
+            }
+            return candidates;
+        }
+
+        /**
+         * Checks if none of the days of a period are booked for a car.
+         *
+         * @param car
+         *            index of the car
+         * @param fromDay
+         *            opening epoch day of the period
+         * @param toDay
+         *            ending epoch day of the period, within the horizon
+         * @return <code>true</code> if the car is free in the period
+         */
+        private boolean isFree(final int car, final long fromDay, final long toDay) {
+            final int first = (int) Math.max(fromDay - baseDay, 0);
+            final int last = (int) (toDay - baseDay);
+            if (last < first) {
+                return true;
+            }
+            final int offset = car * wordsPerCar;
+            final int lastWord = last / DAYS_PER_WORD;
+            for (int word = first / DAYS_PER_WORD; word <= lastWord; word++) {
+                if ((bookedDays.get(offset + word) & mask(word, first, last)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Marks the days occupied by a booking as booked. Days outside the horizon are ignored.
+         *
+         * @param vin
+         *            VIN of the booked car
+         * @param fromDay
+         *            opening epoch day of the booking
+         * @param toDay
+         *            ending epoch day of the booking
+         */
+        private void addBooking(final String vin, final long fromDay, final long toDay) {
+            final Integer car = carIndexes.get(vin);
+            if (car == null) {
+                return;
+            }
+            final long lastDay = Math.max(fromDay, toDay - 1);
+            final int first = (int) Math.max(fromDay - baseDay, 0);
+            final long last = Math.min(lastDay - baseDay, (long) wordsPerCar * DAYS_PER_WORD - 1);
+            if (last < first) {
+                return;
+            }
+            final int offset = car * wordsPerCar;
+            final int lastWord = (int) last / DAYS_PER_WORD;
+            for (int word = first / DAYS_PER_WORD; word <= lastWord; word++) {
+                final long mask = mask(word, first, (int) last);
+                bookedDays.accumulateAndGet(offset + word, mask, (bits, days) -> bits | days);
+            }
+        }
+
+        /**
+         * Creates the mask of the days of a range within a bitmap word.
+         *
+         * @param word
+         *            index of the word
+         * @param first
+         *            first day of the range relative to the base day
+         * @param last
+         *            last day of the range relative to the base day
+         * @return mask of the days of the range in the word
+         */
+        private static long mask(final int word, final int first, final int last) {
+            long mask = -1L;
+            if (word == first / DAYS_PER_WORD) {
+                mask &= -1L << (first % DAYS_PER_WORD);
+            }
+            if (word == last / DAYS_PER_WORD) {
+                mask &= -1L >>> (DAYS_PER_WORD - 1 - last % DAYS_PER_WORD);
+            }
+            return mask;
+        }
+    }
+}
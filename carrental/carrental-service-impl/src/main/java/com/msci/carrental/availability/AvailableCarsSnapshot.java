@@ -0,0 +1,168 @@
+package com.msci.carrental.availability;
+
+import com.msci.carrental.model.Car;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of the cars available for rental today. The snapshot is an immutable list read without
+ * locking. It's rebuilt by a loader on the first read of a new day (as bookings have day
+ * precision) or after being invalidated, and updated incrementally when a booking covering today
+ * is saved.
+ *
+ */
+public class AvailableCarsSnapshot {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(AvailableCarsSnapshot.class);
+    /** Loader of the cars available today. */
+    private final Supplier<List<Car>> loader;
+    /** Current snapshot, <code>null</code> if it has to be rebuilt. */
+    private volatile Snapshot snapshot;
+    /** Number of rebuilds. */
+    private final AtomicLong rebuildCount = new AtomicLong();
+    /** Number of incremental updates. */
+    private final AtomicLong updateCount = new AtomicLong();
+    /** Duration of the last rebuild in nanoseconds. */
+    private volatile long lastRebuildNanos;
+
+    /**
+     * Ctor.
+     *
+     * @param loader
+     *            loader of the cars available today
+     */
+    public AvailableCarsSnapshot(final Supplier<List<Car>> loader) {
+        super();
+        this.loader = loader;
+    }
+
+    /**
+     * Gets the cars available today, rebuilding the snapshot if needed.
+     *
+     * @return immutable {@link List} of the available cars
+     */
+    public List<Car> getAvailableCars() {
+        final long today = LocalDate.now().toEpochDay();
+        Snapshot currentSnapshot = snapshot;
+        if (currentSnapshot == null || currentSnapshot.epochDay != today) {
+            currentSnapshot = rebuild(today);
+        }
+        return currentSnapshot.cars;
+    }
+
+    /**
+     * Updates the snapshot with a saved booking. The booked car is removed from the snapshot if
+     * the booking period covers today.
+     *
+     * @param vin
+     *            VIN of the booked car
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     */
+    public synchronized void bookingSaved(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) {
+        final Snapshot currentSnapshot = snapshot;
+        if (currentSnapshot == null || fromDate.toEpochDay() > currentSnapshot.epochDay
+                || toDate.toEpochDay() < currentSnapshot.epochDay) {
+            return;
+        }
+        final List<Car> cars = new ArrayList<>(currentSnapshot.cars.size());
+        for (final Car car : currentSnapshot.cars) {
+            if (!vin.equals(car.getVin())) {
+                cars.add(car);
+            }
+        }
+        snapshot = new Snapshot(currentSnapshot.epochDay, Collections.unmodifiableList(cars),
+                currentSnapshot.creationTime);
+        updateCount.incrementAndGet();
+    }
+
+    /** Invalidates the snapshot, so it's rebuilt on the next read. */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Gets the age of the snapshot (the time since its last rebuild).
+     *
+     * @return age of the snapshot in milliseconds, or 0 if there is no snapshot
+     */
+    public long getSnapshotAgeMillis() {
+        final Snapshot currentSnapshot = snapshot;
+        return currentSnapshot != null ? System.currentTimeMillis() - currentSnapshot.creationTime
+                : 0;
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    /**
+     * Gets the duration of the last rebuild.
+     *
+     * @return duration of the last rebuild in milliseconds
+     */
+    public long getLastRebuildMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastRebuildNanos);
+    }
+
+    /**
+     * Rebuilds the snapshot, unless a concurrent rebuild has already done it.
+     *
+     * @param today
+     *            epoch day of today
+     * @return current snapshot
+     */
+    private synchronized Snapshot rebuild(final long today) {
+        final Snapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null && currentSnapshot.epochDay == today) {
+            return currentSnapshot;
+        }
+        final long startTime = System.nanoTime();
+        final Snapshot newSnapshot = new Snapshot(today,
+                Collections.unmodifiableList(new ArrayList<>(loader.get())),
+                System.currentTimeMillis());
+        lastRebuildNanos = System.nanoTime() - startTime;
+        rebuildCount.incrementAndGet();
+        logger.debug("Rebuilt snapshot of {} available cars in {} ms", newSnapshot.cars.size(),
+                getLastRebuildMillis());
+        snapshot = newSnapshot;
+        return newSnapshot;
+    }
+
+    /**
+     * Immutable snapshot data.
+     *
+     */
+    private static final class Snapshot {
+        /** Epoch day the snapshot is valid for. */
+        private final long epochDay;
+        /** Cars available on the day. */
+        private final List<Car> cars;
+        /** Creation time of the snapshot in milliseconds. */
+        private final long creationTime;
+
+        private Snapshot(final long epochDay, final List<Car> cars, final long creationTime) {
+            this.epochDay = epochDay;
+            this.cars = cars;
+            this.creationTime = creationTime;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.msci.carrental.car;
+
+import com.msci.carrental.model.Car;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of car details, keyed by VIN. Holds at most a given number of cars, evicting
+ * the least recently used one when it's full, and cars expire after a given time. Car master data
+ * rarely changes, but every change has to be followed by {@link #invalidate(String)} (or
+ * {@link #invalidateAll()}), so the cache doesn't serve stale data until expiration.
+ * <p>
+ * Missing cars aren't cached, so a car added later is found on the next lookup.
+ *
+ */
+public class CarCache {
+    /** Time to live of cached cars in nanoseconds. */
+    private final long timeToLiveNanos;
+    /** Cached cars in access order. Guarded by itself. */
+    private final LinkedHashMap<String, CachedCar> cars;
+    /** Number of invalidations, so cars loaded before an invalidation aren't cached. */
+    private long invalidationCount;
+    /** Number of cars found in the cache. */
+    private final AtomicLong hitCount = new AtomicLong();
+    /** Number of cars not found in the cache. */
+    private final AtomicLong missCount = new AtomicLong();
+    /** Number of cars evicted due to size limit or expiration. */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param maximumSize
+     *            maximal number of cached cars (0 turns caching off)
+     * @param timeToLive
+     *            time to live of cached cars
+     * @param timeUnit
+     *            unit of the time to live value
+     */
+    public CarCache(final int maximumSize, final long timeToLive, final TimeUnit timeUnit) {
+        super();
+        timeToLiveNanos = timeUnit.toNanos(timeToLive);
+        cars = new LinkedHashMap<String, CachedCar>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedCar> eldest) {
+                if (size() > maximumSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the details of a car from the cache, loading and caching them if they aren't cached
+     * (or expired).
+     *
+     * @param vin
+     *            VIN of the car
+     * @param loader
+     *            loader of the car details, returning <code>null</code> for missing cars
+     * @return details of the car, or <code>null</code> if there is no car for the VIN
+     */
+    public Car get(final String vin, final Function<String, Car> loader) {
+        final long loadedInvalidationCount;
+        synchronized (cars) {
+            final CachedCar cachedCar = cars.get(vin);
+            if (cachedCar != null) {
+                if (System.nanoTime() - cachedCar.expirationTime < 0) {
+                    hitCount.incrementAndGet();
+                    return cachedCar.car;
+                }
+                cars.remove(vin);
+                evictionCount.incrementAndGet();
+            }
+            loadedInvalidationCount = invalidationCount;
+        }
+        missCount.incrementAndGet();
+        final Car car = loader.apply(vin);
+        if (car != null) {
+            final CachedCar cachedCar = new CachedCar(car, System.nanoTime() + timeToLiveNanos);
+            synchronized (cars) {
+                if (invalidationCount == loadedInvalidationCount) {
+                    cars.put(vin, cachedCar);
+                }
+            }
+        }
+        return car;
+    }
+
+    /**
+     * Removes a car from the cache.
+     *
+     * @param vin
+     *            VIN of the car
+     */
+    public void invalidate(final String vin) {
+        synchronized (cars) {
+            cars.remove(vin);
+            invalidationCount++;
+        }
+    }
+
+    /** Removes every car from the cache. */
+    public void invalidateAll() {
+        synchronized (cars) {
+            cars.clear();
+            invalidationCount++;
+        }
+    }
+
+    /**
+     * Gets the number of cached cars.
+     *
+     * @return number of cars
+     */
+    public int size() {
+        synchronized (cars) {
+            return cars.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Cached car.
+     *
+     */
+    private static final class CachedCar {
+        /** Details of the car. */
+        private final Car car;
+        /** Expiration time of the entry ({@link System#nanoTime()} based). */
+        private final long expirationTime;
+
+        private CachedCar(final Car car, final long expirationTime) {
+            this.car = car;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.msci.carrental.country;
+
+import com.msci.carrental.CountryCheckerService;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caching decorator of a {@link CountryCheckerService}. Results are cached by
+ * {@link CountryCheckKey} (car VIN and normalized set of countries), so the decorated service is
+ * called with the sorted, deduplicated countries.
+ * <p>
+ * The cache holds at most a given number of results, evicting the least recently used one when
+ * it's full, and results expire after a given time. Concurrent checks of the same key are
+ * coalesced into one call of the decorated service. Failed checks aren't cached.
+ *
+ */
+public class CachingCountryCheckerService implements CountryCheckerService {
+    /** Decorated country checker service. */
+    private final CountryCheckerService countryCheckerService;
+    /** Time to live of cached results in nanoseconds. */
+    private final long timeToLiveNanos;
+    /** Cached (or pending) results in access order. Guarded by itself. */
+    private final LinkedHashMap<CountryCheckKey, CacheEntry> entries;
+    /** Number of checks answered from the cache. */
+    private final AtomicLong hitCount = new AtomicLong();
+    /** Number of checks passed to the decorated service. */
+    private final AtomicLong missCount = new AtomicLong();
+    /** Number of results evicted due to size limit or expiration. */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param countryCheckerService
+     *            country checker service to be decorated
+     * @param maximumSize
+     *            maximal number of cached results
+     * @param timeToLive
+     *            time to live of cached results
+     * @param timeUnit
+     *            unit of the time to live value
+     */
+    public CachingCountryCheckerService(
+            final CountryCheckerService countryCheckerService,
+            final int maximumSize,
+            final long timeToLive,
+            final TimeUnit timeUnit) {
+        super();
+        this.countryCheckerService = countryCheckerService;
+        timeToLiveNanos = timeUnit.toNanos(timeToLive);
+        entries = new LinkedHashMap<CountryCheckKey, CacheEntry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<CountryCheckKey, CacheEntry> eldest) {
+                if (size() > maximumSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isCountriesAllowedForCar(final String vin, final String[] countries) {
+        final CountryCheckKey key = new CountryCheckKey(vin, countries);
+        CacheEntry entry;
+        boolean isLoader = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                evictionCount.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new CacheEntry();
+                entries.put(key, entry);
+                isLoader = true;
+            }
+        }
+
+        if (!isLoader) {
+            hitCount.incrementAndGet();
+            try {
+                return entry.result.join();
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                        : e;
+            }
+        }
+
+        missCount.incrementAndGet();
+        try {
+            final boolean isAllowed =
+                    countryCheckerService.isCountriesAllowedForCar(vin, key.getCountries());
+            entry.expirationTime = System.nanoTime() + timeToLiveNanos;
+            entry.result.complete(isAllowed);
+            return isAllowed;
+        } catch (final RuntimeException | Error e) {
+            // Waiting callers are released on any failure, and the next call checks again
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /** Removes all cached results. */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /** Removes the expired results. */
+    public void cleanUp() {
+        final long now = System.nanoTime();
+        synchronized (entries) {
+            final Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cached (or pending) results.
+     *
+     * @return number of results
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Cached result of a country check.
+     *
+     */
+    private static class CacheEntry {
+        /** Result of the check, completed when the decorated service returns. */
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        /** Expiration time of the result ({@link System#nanoTime()} based). */
+        private volatile long expirationTime;
+
+        /**
+         * Checks if the result is expired. Pending results never expire.
+         *
+         * @param now
+         *            current {@link System#nanoTime()} value
+         * @return <code>true</code> if the result is expired
+         */
+        private boolean isExpired(final long now) {
+            return result.isDone() && now - expirationTime >= 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.msci.carrental.country;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Key of a country check: car VIN value and the normalized (sorted, deduplicated) set of
+ * countries. Country arrays listing the same countries in any order result in equal keys.
+ *
+ */
+public final class CountryCheckKey {
+    /** No countries (domestic usage). */
+    private static final String[] NO_COUNTRIES = new String[0];
+    /** VIN of the car. */
+    private final String vin;
+    /** Sorted, deduplicated countries. */
+    private final String[] countries;
+    /** Cached hash code value. */
+    private final int hashCode;
+
+    /**
+     * Ctor.
+     *
+     * @param vin
+     *            VIN of the car
+     * @param countries
+     *            array of countries, can be <code>null</code>
+     */
+    public CountryCheckKey(final String vin, final String[] countries) {
+        this.vin = vin;
+        this.countries = countries == null || countries.length == 0 ? NO_COUNTRIES
+                : new TreeSet<>(Arrays.asList(countries)).toArray(NO_COUNTRIES);
+        hashCode = 31 * Objects.hashCode(vin) + Arrays.hashCode(this.countries);
+    }
+
+    public String getVin() {
+        return vin;
+    }
+
+    /**
+     * Gets the normalized countries of the key.
+     *
+     * @return sorted, deduplicated array of countries, or <code>null</code> if there are no
+     *         countries (domestic usage)
+     */
+    public String[] getCountries() {
+        return countries.length == 0 ? null : countries.clone();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CountryCheckKey)) {
+            return false;
+        }
+        final CountryCheckKey other = (CountryCheckKey) obj;
+        return hashCode == other.hashCode && Objects.equals(vin, other.vin)
+                && Arrays.equals(countries, other.countries);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return vin + Arrays.toString(countries);
+    }
+}
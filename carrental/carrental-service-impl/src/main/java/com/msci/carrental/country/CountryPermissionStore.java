@@ -0,0 +1,172 @@
+package com.msci.carrental.country;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store of single-country permission verdicts of cars, keyed by VIN and country. Holds at most a
+ * given number of verdicts, evicting the least recently used one when it's full, and verdicts
+ * expire after a given time.
+ *
+ */
+public class CountryPermissionStore {
+    /** Time to live of verdicts in nanoseconds. */
+    private final long timeToLiveNanos;
+    /** Stored verdicts in access order. Guarded by itself. */
+    private final LinkedHashMap<PermissionKey, Permission> permissions;
+    /** Number of verdicts found in the store. */
+    private final AtomicLong hitCount = new AtomicLong();
+    /** Number of verdicts not found in the store. */
+    private final AtomicLong missCount = new AtomicLong();
+    /** Number of verdicts evicted due to size limit or expiration. */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Ctor.
+     *
+     * @param maximumSize
+     *            maximal number of stored verdicts
+     * @param timeToLive
+     *            time to live of verdicts
+     * @param timeUnit
+     *            unit of the time to live value
+     */
+    public CountryPermissionStore(
+            final int maximumSize,
+            final long timeToLive,
+            final TimeUnit timeUnit) {
+        super();
+        timeToLiveNanos = timeUnit.toNanos(timeToLive);
+        permissions = new LinkedHashMap<PermissionKey, Permission>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<PermissionKey, Permission> eldest) {
+                if (size() > maximumSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the stored verdict of a car for a country.
+     *
+     * @param vin
+     *            VIN of the car
+     * @param country
+     *            country name
+     * @return <code>true</code> if the car is allowed to go to the country, <code>false</code>
+     *         if it isn't, or <code>null</code> if there is no (unexpired) verdict stored
+     */
+    public Boolean get(final String vin, final String country) {
+        final PermissionKey key = new PermissionKey(vin, country);
+        Boolean isAllowed = null;
+        synchronized (permissions) {
+            final Permission permission = permissions.get(key);
+            if (permission != null) {
+                if (System.nanoTime() - permission.expirationTime >= 0) {
+                    permissions.remove(key);
+                    evictionCount.incrementAndGet();
+                } else {
+                    isAllowed = permission.isAllowed;
+                }
+            }
+        }
+        (isAllowed != null ? hitCount : missCount).incrementAndGet();
+        return isAllowed;
+    }
+
+    /**
+     * Stores the verdict of a car for a country.
+     *
+     * @param vin
+     *            VIN of the car
+     * @param country
+     *            country name
+     * @param isAllowed
+     *            <code>true</code> if the car is allowed to go to the country
+     */
+    public void put(final String vin, final String country, final boolean isAllowed) {
+        final Permission permission =
+                new Permission(isAllowed, System.nanoTime() + timeToLiveNanos);
+        synchronized (permissions) {
+            permissions.put(new PermissionKey(vin, country), permission);
+        }
+    }
+
+    /**
+     * Gets the number of stored verdicts.
+     *
+     * @return number of verdicts
+     */
+    public int size() {
+        synchronized (permissions) {
+            return permissions.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Key of a verdict: car VIN and country.
+     *
+     */
+    private static final class PermissionKey {
+        /** VIN of the car. */
+        private final String vin;
+        /** Country name. */
+        private final String country;
+
+        private PermissionKey(final String vin, final String country) {
+            this.vin = vin;
+            this.country = country;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof PermissionKey)) {
+                return false;
+            }
+            final PermissionKey other = (PermissionKey) obj;
+            return Objects.equals(vin, other.vin) && Objects.equals(country, other.country);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(vin) + Objects.hashCode(country);
+        }
+    }
+
+    /**
+     * Stored verdict.
+     *
+     */
+    private static final class Permission {
+        /** Verdict value. */
+        private final boolean isAllowed;
+        /** Expiration time of the verdict ({@link System#nanoTime()} based). */
+        private final long expirationTime;
+
+        private Permission(final boolean isAllowed, final long expirationTime) {
+            this.isAllowed = isAllowed;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
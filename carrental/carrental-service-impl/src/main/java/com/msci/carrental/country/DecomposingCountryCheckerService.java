@@ -0,0 +1,82 @@
+package com.msci.carrental.country;
+
+import com.msci.carrental.CountryCheckerService;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorator of a {@link CountryCheckerService} deciding multi-country checks from single-country
+ * verdicts. A car is allowed to go to a set of countries if it's allowed to go to each of them.
+ * Known verdicts are taken from a {@link CountryPermissionStore}, and only the unknown countries
+ * are sent to the decorated service in one
+ * {@link CountryCheckerService#checkCountriesForCar(String, java.util.Collection) bulk check}.
+ * <p>
+ * Checks without countries (domestic usage) are passed to the decorated service as they are.
+ *
+ */
+public class DecomposingCountryCheckerService implements CountryCheckerService {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(DecomposingCountryCheckerService.class);
+    /** Decorated country checker service. */
+    private final CountryCheckerService countryCheckerService;
+    /** Store of single-country verdicts. */
+    private final CountryPermissionStore countryPermissionStore;
+
+    /**
+     * Ctor.
+     *
+     * @param countryCheckerService
+     *            country checker service to be decorated
+     * @param countryPermissionStore
+     *            store of single-country verdicts
+     */
+    public DecomposingCountryCheckerService(
+            final CountryCheckerService countryCheckerService,
+            final CountryPermissionStore countryPermissionStore) {
+        super();
+        this.countryCheckerService = countryCheckerService;
+        this.countryPermissionStore = countryPermissionStore;
+    }
+
+    public boolean isCountriesAllowedForCar(final String vin, final String[] countries) {
+        if (countries == null || countries.length == 0) {
+            return countryCheckerService.isCountriesAllowedForCar(vin, countries);
+        }
+
+        final Set<String> unknownCountries = new LinkedHashSet<>();
+        for (final String country : countries) {
+            final Boolean isAllowed = countryPermissionStore.get(vin, country);
+            if (isAllowed == null) {
+                unknownCountries.add(country);
+            } else if (!isAllowed) {
+                logger.debug("Car (VIN={}) is known to be not allowed in country: {}", vin,
+                        country);
+                return false;
+            }
+        }
+        if (unknownCountries.isEmpty()) {
+            return true;
+        }
+
+        logger.debug("Checking unknown countries ({}) for car (VIN={})", unknownCountries, vin);
+        final Map<String, Boolean> permissions =
+                countryCheckerService.checkCountriesForCar(vin, unknownCountries);
+        boolean isAllowedToAll = true;
+        for (final String country : unknownCountries) {
+            final Boolean isAllowed = permissions.get(country);
+            if (isAllowed == null) {
+                logger.warn("No verdict received for car (VIN={}) in country: {}", vin, country);
+                isAllowedToAll = false;
+            } else {
+                countryPermissionStore.put(vin, country, isAllowed);
+                isAllowedToAll &= isAllowed;
+            }
+        }
+        return isAllowedToAll;
+    }
+}
@@ -0,0 +1,73 @@
+package com.msci.carrental.country;
+
+import com.msci.carrental.CountryCheckerService;
+import com.msci.carrental.metrics.CarRentalMetrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timing decorator of a {@link CountryCheckerService}. Every call of the decorated service is
+ * recorded by the {@link CarRentalMetrics#COUNTRY_CHECKER_CALLS} timer, tagged by the method and
+ * the verdict (<code>allowed</code> or <code>forbidden</code>, or the exception of a failed
+ * call).
+ *
+ */
+public class TimedCountryCheckerService implements CountryCheckerService {
+    /** Tags of the single checks. */
+    private static final Tags CHECK_TAGS =
+            Tags.of(CarRentalMetrics.METHOD_TAG, "isCountriesAllowedForCar");
+    /** Tags of the bulk checks. */
+    private static final Tags BULK_CHECK_TAGS =
+            Tags.of(CarRentalMetrics.METHOD_TAG, "checkCountriesForCar");
+    /** Decorated country checker service. */
+    private final CountryCheckerService countryCheckerService;
+    /** Meter registry. */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Ctor.
+     *
+     * @param countryCheckerService
+     *            country checker service to be decorated
+     * @param meterRegistry
+     *            meter registry
+     */
+    public TimedCountryCheckerService(
+            final CountryCheckerService countryCheckerService,
+            final MeterRegistry meterRegistry) {
+        super();
+        this.countryCheckerService = countryCheckerService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isCountriesAllowedForCar(final String vin, final String[] countries) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "forbidden";
+        try {
+            final boolean isAllowed = countryCheckerService.isCountriesAllowedForCar(vin, countries);
+            if (isAllowed) {
+                result = "allowed";
+            }
+            return isAllowed;
+        } catch (final RuntimeException e) {
+            result = CarRentalMetrics.getResult(e);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer(CarRentalMetrics.COUNTRY_CHECKER_CALLS,
+                    CHECK_TAGS.and(CarRentalMetrics.RESULT_TAG, result)));
+        }
+    }
+
+    @Override
+    public Map<String, Boolean> checkCountriesForCar(
+            final String vin,
+            final Collection<String> countries) {
+        return CarRentalMetrics.record(meterRegistry, CarRentalMetrics.COUNTRY_CHECKER_CALLS,
+                BULK_CHECK_TAGS, () -> countryCheckerService.checkCountriesForCar(vin, countries));
+    }
+}
@@ -0,0 +1,860 @@
+package com.msci.carrental.journal;
+
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.version.ResourceVersions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind journal of accepted bookings (turned off by default). Instead of a database
+ * transaction per booking, bookings are appended to a memory-mapped local journal file, and a
+ * background flusher saves them to the {@link BookingRepository} in batches.
+ * <p>
+ * Durability: a booking is acknowledged (its future completes) only after the journal record has
+ * been forced to disk. Records are forced in groups: a committer thread forces the journal every
+ * few milliseconds, or as soon as enough records are waiting. The records of a batch are always
+ * forced in the same group, so a batch is acknowledged or failed as a whole. Acknowledged bookings are saved to
+ * the database with a delay (the flush lag) and have no booking ID until then. Views rebuilt from
+ * the database add them from {@link #getUnsavedBookings()} meanwhile. Journal records
+ * not yet saved to the database are replayed on startup; bookings already saved by the time of a
+ * crash are recognized by their car and period, so they aren't saved twice.
+ * <p>
+ * The journal file is a ring buffer behind a header holding the offset up to which records have
+ * been saved. Offsets grow monotonously, and every record holds its own offset and a CRC32
+ * checksum, so stale records of a previous round can't be replayed. Appending blocks while the
+ * journal is full of unsaved records.
+ * <p>
+ * If forcing the journal to disk fails, the waiting bookings are failed, and the journal stops
+ * accepting bookings: later appends fail fast until the application is restarted.
+ *
+ */
+@Component
+public class BookingJournal {
+    /** Magic number of journal files, changed whenever the record format changes. */
+    private static final int MAGIC = 0x424a5232;
+    /** Size of the file header: magic, data capacity and saved offset. */
+    private static final int HEADER_SIZE = 16;
+    /** Position of the saved offset in the header. */
+    private static final int SAVED_OFFSET_POSITION = 8;
+    /** Size of a record besides its payload: length, offset and checksum. */
+    private static final int RECORD_OVERHEAD = 16;
+    /** Length value marking the end of the data of a round. */
+    private static final int WRAP_MARKER = -1;
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(BookingJournal.class);
+    /** Flag to turn on write-behind booking persistence. */
+    @Value("${carrental.bookingJournal.enabled:false}")
+    private boolean isEnabled;
+    /** Path of the journal file. */
+    @Value("${carrental.bookingJournal.path:booking.journal}")
+    private String path;
+    /** Capacity of the journal file (besides its header) in bytes. */
+    @Value("${carrental.bookingJournal.capacityBytes:67108864}")
+    private int capacityBytes;
+    /** Maximal time to wait for more records before forcing the journal to disk. */
+    @Value("${carrental.bookingJournal.groupCommitMillis:5}")
+    private long groupCommitMillis;
+    /** Number of waiting records forcing the journal to disk immediately. */
+    @Value("${carrental.bookingJournal.groupCommitRecords:256}")
+    private int groupCommitRecords;
+    /** Delay between the runs of the flusher saving records to the database. */
+    @Value("${carrental.bookingJournal.flushIntervalMillis:100}")
+    private long flushIntervalMillis;
+    /** Maximal number of bookings saved in one transaction. */
+    @Value("${carrental.bookingJournal.flushBatchSize:500}")
+    private int flushBatchSize;
+    /** Car repository bean. */
+    @Autowired
+    private CarRepository carRepository;
+    /** Booking repository bean. */
+    @Autowired
+    private BookingRepository bookingRepository;
+    /** Booking schedule index bean. */
+    @Autowired
+    private BookingScheduleIndex bookingScheduleIndex;
+    /** Resource versions bean. */
+    @Autowired
+    private ResourceVersions resourceVersions;
+
+    /** Lock guarding the journal state. */
+    private final Object lock = new Object();
+    /** Journal file channel. */
+    private FileChannel channel;
+    /** Memory-mapped journal file. */
+    private MappedByteBuffer buffer;
+    /** Capacity of the data region of the journal file. */
+    private int capacity;
+    /** Offset of the next record. */
+    private long writeOffset;
+    /** Offset up to which records have been forced to disk. */
+    private long durableOffset;
+    /** Offset up to which records have been saved to the database. */
+    private long savedOffset;
+    /** Records appended, but not forced to disk yet. */
+    private final ArrayDeque<JournalRecord> uncommittedRecords = new ArrayDeque<>();
+    /** Records forced to disk, but not saved to the database yet. */
+    private final ArrayDeque<JournalRecord> unsavedRecords = new ArrayDeque<>();
+    /** Flag of the running committer. */
+    private boolean isRunning;
+    /** Thread forcing the journal to disk. */
+    private Thread committer;
+    /** Executor of the flusher. */
+    private ScheduledExecutorService flusher;
+    /** Number of appended records. */
+    private long appendedCount;
+    /** Number of records forced to disk. */
+    private long committedCount;
+    /** Number of group commits. */
+    private long groupCommitCount;
+    /** Number of records saved to the database. */
+    private long savedCount;
+    /** Duration of the last group commit in nanoseconds. */
+    private volatile long lastGroupCommitNanos;
+    /** Failure of forcing the journal to disk, <code>null</code> if there was none. */
+    private RuntimeException failure;
+
+    /**
+     * Opens the journal file, saves the records not saved yet to the database, and starts the
+     * committer and the flusher.
+     *
+     * @throws IOException
+     *             If the journal file can't be opened.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!isEnabled) {
+            return;
+        }
+        open(Paths.get(path));
+        replay();
+
+        isRunning = true;
+        committer = new Thread(this::commitLoop, "booking-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "booking-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis,
+                flushIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Started booking journal {} with {} bytes capacity", path, capacity);
+    }
+
+    /**
+     * Stops the committer and the flusher, and saves the pending records to the database.
+     *
+     * @throws IOException
+     *             If the journal file can't be closed.
+     */
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!isEnabled || channel == null) {
+            return;
+        }
+        flusher.shutdown();
+        synchronized (lock) {
+            isRunning = false;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        flushQuietly();
+        buffer.force();
+        channel.close();
+        channel = null;
+        logger.info("Closed booking journal {} with {} unsaved records", path,
+                getUnsavedRecordNr());
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Appends a booking to the journal. Blocks while the journal is full of unsaved records.
+     *
+     * @param booking
+     *            booking to be saved
+     * @return {@link CompletableFuture} completed with the booking when it's forced to disk, or
+     *         failed if forcing the journal fails
+     * @throws IllegalStateException
+     *             If the journal isn't running, or forcing it to disk has failed before.
+     */
+    public CompletableFuture<Booking> append(final Booking booking) {
+        return appendRecords(Collections.singletonList(booking)).get(0).future;
+    }
+
+    /**
+     * Appends the bookings of a batch to the journal as a unit: their records are forced to disk
+     * in the same group commit, so either every booking of the batch is acknowledged, or every
+     * one is failed. Blocks while the journal hasn't room for the whole batch.
+     *
+     * @param bookings
+     *            bookings to be saved
+     * @return {@link CompletableFuture} completed with the bookings when they are forced to disk,
+     *         or failed if forcing the journal fails
+     * @throws IllegalStateException
+     *             If the journal isn't running, or forcing it to disk has failed before.
+     */
+    public CompletableFuture<List<Booking>> appendAll(final List<Booking> bookings) {
+        final List<JournalRecord> records = appendRecords(bookings);
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = records.get(i).future;
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignored -> {
+            final List<Booking> journaledBookings = new ArrayList<>(records.size());
+            for (final JournalRecord record : records) {
+                journaledBookings.add(record.future.join());
+            }
+            return journaledBookings;
+        });
+    }
+
+    /**
+     * Writes the records of bookings into the journal, while holding the lock, so no group commit
+     * can split them.
+     *
+     * @param bookings
+     *            bookings to be saved
+     * @return appended records
+     * @throws IllegalArgumentException
+     *             If the records don't fit in the journal.
+     * @throws IllegalStateException
+     *             If the journal isn't running, or forcing it to disk has failed before.
+     */
+    private List<JournalRecord> appendRecords(final List<Booking> bookings) {
+        final List<byte[]> payloads = new ArrayList<>(bookings.size());
+        long recordsSize = 0;
+        for (final Booking booking : bookings) {
+            final byte[] payload = encode(booking);
+            payloads.add(payload);
+            recordsSize += RECORD_OVERHEAD + payload.length;
+        }
+        final List<JournalRecord> records = new ArrayList<>(bookings.size());
+        synchronized (lock) {
+            checkRunning();
+            while (getEndOffset(writeOffset, payloads) - savedOffset > capacity) {
+                // Nothing left to be saved could make room for the records
+                if (recordsSize > capacity || writeOffset == savedOffset) {
+                    throw new IllegalArgumentException("Booking records don't fit in journal");
+                }
+                try {
+                    lock.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for journal", e);
+                }
+                checkRunning();
+            }
+            for (int i = 0; i < payloads.size(); i++) {
+                final byte[] payload = payloads.get(i);
+                final int recordSize = RECORD_OVERHEAD + payload.length;
+                final int position = getPosition(writeOffset);
+                final int wrapSize = getWrapSize(position, recordSize);
+                if (wrapSize >= Integer.BYTES) {
+                    buffer.putInt(HEADER_SIZE + position, WRAP_MARKER);
+                }
+                writeOffset += wrapSize;
+                final long startOffset = writeOffset;
+                writeRecord(startOffset, payload);
+                writeOffset += recordSize;
+                final JournalRecord record =
+                        new JournalRecord(startOffset, writeOffset, copy(bookings.get(i)));
+                uncommittedRecords.add(record);
+                records.add(record);
+            }
+            appendedCount += records.size();
+            if (uncommittedRecords.size() == records.size()
+                    || uncommittedRecords.size() >= groupCommitRecords) {
+                lock.notifyAll();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Checks that the journal accepts records. Has to be called holding the lock.
+     *
+     * @throws IllegalStateException
+     *             If the journal isn't running, or forcing it to disk has failed.
+     */
+    private void checkRunning() {
+        if (failure != null) {
+            throw new IllegalStateException("Booking journal failed", failure);
+        }
+        if (!isRunning) {
+            throw new IllegalStateException("Booking journal is not running");
+        }
+    }
+
+    /**
+     * Saves the records forced to disk to the database in batches.
+     */
+    public void flush() {
+        while (true) {
+            final List<JournalRecord> batch = new ArrayList<>(flushBatchSize);
+            synchronized (lock) {
+                for (final JournalRecord record : unsavedRecords) {
+                    if (batch.size() == flushBatchSize) {
+                        break;
+                    }
+                    batch.add(record);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final List<Booking> bookings = new ArrayList<>(batch.size());
+            for (final JournalRecord record : batch) {
+                bookings.add(copy(record.booking));
+            }
+            bookingRepository.save(bookings);
+
+            synchronized (lock) {
+                for (int i = 0; i < batch.size(); i++) {
+                    unsavedRecords.poll();
+                }
+                savedOffset = batch.get(batch.size() - 1).endOffset;
+                buffer.putLong(SAVED_OFFSET_POSITION, savedOffset);
+                savedCount += batch.size();
+                lock.notifyAll();
+            }
+            // Availability queries reading the database see the bookings from now on
+            resourceVersions.bookingsSaved();
+            logger.debug("Saved {} journaled bookings to the database", batch.size());
+        }
+    }
+
+    /**
+     * Gets the acknowledged bookings not saved to the database yet. Views rebuilt from the
+     * database have to add them, as they would miss them until the flush otherwise. To miss none
+     * of them, they have to be read before the database.
+     *
+     * @return (potentially empty) {@link List} of the unsaved bookings
+     */
+    public List<Booking> getUnsavedBookings() {
+        synchronized (lock) {
+            final List<Booking> bookings = new ArrayList<>(unsavedRecords.size());
+            for (final JournalRecord record : unsavedRecords) {
+                bookings.add(record.booking);
+            }
+            return bookings;
+        }
+    }
+
+    public long getAppendedCount() {
+        synchronized (lock) {
+            return appendedCount;
+        }
+    }
+
+    public long getCommittedCount() {
+        synchronized (lock) {
+            return committedCount;
+        }
+    }
+
+    public long getGroupCommitCount() {
+        synchronized (lock) {
+            return groupCommitCount;
+        }
+    }
+
+    public long getSavedCount() {
+        synchronized (lock) {
+            return savedCount;
+        }
+    }
+
+    /**
+     * Gets the number of records appended, but not saved to the database yet.
+     *
+     * @return number of unsaved records
+     */
+    public int getUnsavedRecordNr() {
+        synchronized (lock) {
+            return uncommittedRecords.size() + unsavedRecords.size();
+        }
+    }
+
+    /**
+     * Gets the flush lag: the age of the oldest record not saved to the database yet.
+     *
+     * @return age of the oldest unsaved record in milliseconds, or 0 if there is none
+     */
+    public long getFlushLagMillis() {
+        synchronized (lock) {
+            final JournalRecord oldestRecord = !unsavedRecords.isEmpty() ? unsavedRecords.peek()
+                    : uncommittedRecords.peek();
+            return oldestRecord != null ? System.currentTimeMillis() - oldestRecord.appendTime
+                    : 0;
+        }
+    }
+
+    /**
+     * Gets the duration of the last group commit.
+     *
+     * @return duration of the last group commit in microseconds
+     */
+    public long getLastGroupCommitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(lastGroupCommitNanos);
+    }
+
+    /**
+     * Opens (or creates) and maps the journal file.
+     *
+     * @param journalPath
+     *            path of the journal file
+     * @throws IOException
+     *             If the file can't be opened or mapped.
+     */
+    private void open(final Path journalPath) throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        final boolean isExisting = channel.read(header, 0) == HEADER_SIZE
+                && header.getInt(0) == MAGIC;
+        capacity = isExisting ? header.getInt(Integer.BYTES) : capacityBytes;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+        if (isExisting) {
+            savedOffset = buffer.getLong(SAVED_OFFSET_POSITION);
+        } else {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, capacity);
+            buffer.putLong(SAVED_OFFSET_POSITION, 0);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Saves the records of the journal which haven't been saved to the database yet, skipping the
+     * bookings which are there already, and adds them to the booking schedule index.
+     */
+    private void replay() {
+        final List<JournalRecord> records = new ArrayList<>();
+        final Set<String> vins = new HashSet<>();
+        long offset = savedOffset;
+        while (offset - savedOffset < capacity) {
+            final int position = getPosition(offset);
+            final int length = capacity - position >= Integer.BYTES
+                    ? buffer.getInt(HEADER_SIZE + position) : WRAP_MARKER;
+            if (length == WRAP_MARKER) {
+                offset += capacity - position;
+                continue;
+            }
+            final Booking booking = readRecord(offset, position, length);
+            if (booking == null) {
+                break;
+            }
+            records.add(new JournalRecord(offset, offset + RECORD_OVERHEAD + length, booking));
+            offset += RECORD_OVERHEAD + length;
+            vins.add(booking.getBookedCar().getVin());
+        }
+        writeOffset = offset;
+        durableOffset = offset;
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final Map<String, Car> cars = new HashMap<>();
+        for (final Car car : carRepository.findAll(vins)) {
+            cars.put(car.getVin(), car);
+        }
+        int skippedNr = 0;
+        int droppedNr = 0;
+        for (final JournalRecord record : records) {
+            final Booking booking = record.booking;
+            final String vin = booking.getBookedCar().getVin();
+            if (!cars.containsKey(vin)) {
+                logger.warn("Replayed booking of nonexistent car is dropped: {}", booking);
+                droppedNr++;
+                continue;
+            }
+            if (isSaved(booking)) {
+                skippedNr++;
+                continue;
+            }
+            booking.setBookedCar(cars.get(vin));
+            // Saving a booking overlapping another one would double book the car
+            if (!bookingScheduleIndex.reserve(vin, booking.getFromDate(), booking.getToDate())) {
+                logger.warn("Replayed booking conflicting with schedule index is dropped: {}",
+                        booking);
+                droppedNr++;
+                continue;
+            }
+            unsavedRecords.add(record);
+        }
+        logger.info("Replaying {} journaled bookings ({} of them already saved, {} dropped)",
+                records.size(), skippedNr, droppedNr);
+        flush();
+        buffer.putLong(SAVED_OFFSET_POSITION, writeOffset);
+        savedOffset = writeOffset;
+        buffer.force();
+    }
+
+    /**
+     * Checks if a replayed booking has been saved to the database already.
+     *
+     * @param booking
+     *            replayed booking
+     * @return <code>true</code> if the car has a booking of the same period
+     */
+    private boolean isSaved(final Booking booking) {
+        for (final Booking savedBooking : bookingRepository.findBookingOfCarInDatePeriod(
+                booking.getBookedCar().getVin(), booking.getFromDate(), booking.getToDate())) {
+            if (savedBooking.getFromDate().equals(booking.getFromDate())
+                    && savedBooking.getToDate().equals(booking.getToDate())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Committer loop: waits for appended records, gives concurrent appends a short time to join
+     * the group, then forces the journal to disk.
+     */
+    private void commitLoop() {
+        while (true) {
+            synchronized (lock) {
+                try {
+                    while (isRunning && uncommittedRecords.isEmpty()) {
+                        lock.wait();
+                    }
+                    if (!isRunning) {
+                        return;
+                    }
+                    if (groupCommitMillis > 0 && uncommittedRecords.size() < groupCommitRecords) {
+                        lock.wait(groupCommitMillis);
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            commit();
+        }
+    }
+
+    /**
+     * Forces the appended records to disk and completes their futures. If forcing fails, the
+     * futures of the records are failed instead.
+     */
+    private void commit() {
+        final long targetOffset;
+        synchronized (lock) {
+            if (uncommittedRecords.isEmpty()) {
+                return;
+            }
+            targetOffset = writeOffset;
+        }
+        final long startTime = System.nanoTime();
+        try {
+            force();
+        } catch (final RuntimeException e) {
+            fail(e);
+            return;
+        }
+        lastGroupCommitNanos = System.nanoTime() - startTime;
+
+        final List<JournalRecord> committedRecords = new ArrayList<>();
+        synchronized (lock) {
+            durableOffset = targetOffset;
+            while (!uncommittedRecords.isEmpty()
+                    && uncommittedRecords.peek().endOffset <= durableOffset) {
+                final JournalRecord record = uncommittedRecords.poll();
+                unsavedRecords.add(record);
+                committedRecords.add(record);
+            }
+            committedCount += committedRecords.size();
+            groupCommitCount++;
+        }
+        // Dependent actions of the futures run in the common pool, not in the committer thread
+        ForkJoinPool.commonPool().execute(() -> {
+            for (final JournalRecord record : committedRecords) {
+                record.future.complete(record.booking);
+            }
+        });
+    }
+
+    /**
+     * Forces the journal file to disk.
+     */
+    protected void force() {
+        buffer.force();
+    }
+
+    /**
+     * Fails the records not forced to disk, and makes the later appends fail. The failed records
+     * are invalidated in the journal, so they aren't replayed on startup.
+     *
+     * @param exception
+     *            failure of forcing the journal to disk
+     */
+    private void fail(final RuntimeException exception) {
+        final List<JournalRecord> failedRecords;
+        synchronized (lock) {
+            failure = exception;
+            failedRecords = new ArrayList<>(uncommittedRecords);
+            uncommittedRecords.clear();
+            // Replay stops at the first invalid record
+            buffer.putInt(HEADER_SIZE + getPosition(failedRecords.get(0).startOffset), 0);
+            writeOffset = durableOffset;
+            lock.notifyAll();
+        }
+        logger.error("Forcing the booking journal to disk failed, {} bookings are failed",
+                failedRecords.size(), exception);
+        ForkJoinPool.commonPool().execute(() -> {
+            for (final JournalRecord record : failedRecords) {
+                record.future.completeExceptionally(exception);
+            }
+        });
+    }
+
+    /**
+     * Runs the flusher, logging failures, so they are retried on the next run.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (final RuntimeException e) {
+            logger.error("Saving journaled bookings failed, {} bookings are pending",
+                    getUnsavedRecordNr(), e);
+        }
+    }
+
+    /**
+     * Gets the position of an offset in the data region of the journal.
+     *
+     * @param offset
+     *            journal offset
+     * @return position relative to the start of the data region
+     */
+    private int getPosition(final long offset) {
+        return (int) (offset % capacity);
+    }
+
+    /**
+     * Gets the offset after records appended at an offset, skipping the end of the data region
+     * where a record doesn't fit in it.
+     *
+     * @param offset
+     *            offset of the first record
+     * @param payloads
+     *            encoded bookings of the records
+     * @return offset of the end of the last record
+     */
+    private long getEndOffset(final long offset, final List<byte[]> payloads) {
+        long endOffset = offset;
+        for (final byte[] payload : payloads) {
+            final int recordSize = RECORD_OVERHEAD + payload.length;
+            endOffset += getWrapSize(getPosition(endOffset), recordSize) + recordSize;
+        }
+        return endOffset;
+    }
+
+    /**
+     * Gets the number of bytes to be skipped before a record, if it doesn't fit in the rest of the
+     * data region.
+     *
+     * @param position
+     *            position of the record
+     * @param recordSize
+     *            size of the record
+     * @return bytes to be skipped
+     */
+    private int getWrapSize(final int position, final int recordSize) {
+        return position + recordSize > capacity ? capacity - position : 0;
+    }
+
+    /**
+     * Writes a record into the journal.
+     *
+     * @param offset
+     *            offset of the record
+     * @param payload
+     *            encoded booking
+     */
+    private void writeRecord(final long offset, final byte[] payload) {
+        final ByteBuffer recordBuffer = buffer.duplicate();
+        recordBuffer.position(HEADER_SIZE + getPosition(offset));
+        recordBuffer.putInt(payload.length);
+        recordBuffer.putLong(offset);
+        recordBuffer.put(payload);
+        recordBuffer.putInt(checksum(offset, payload));
+    }
+
+    /**
+     * Reads and checks a record of the journal.
+     *
+     * @param offset
+     *            expected offset of the record
+     * @param position
+     *            position of the record
+     * @param length
+     *            length of the payload
+     * @return decoded booking, or <code>null</code> if there is no valid record at the offset
+     */
+    private Booking readRecord(final long offset, final int position, final int length) {
+        if (length <= 0 || position + RECORD_OVERHEAD + length > capacity) {
+            return null;
+        }
+        final ByteBuffer recordBuffer = buffer.duplicate();
+        recordBuffer.position(HEADER_SIZE + position + Integer.BYTES);
+        if (recordBuffer.getLong() != offset) {
+            return null;
+        }
+        final byte[] payload = new byte[length];
+        recordBuffer.get(payload);
+        if (recordBuffer.getInt() != checksum(offset, payload)) {
+            return null;
+        }
+        return decode(payload);
+    }
+
+    /**
+     * Calculates the checksum of a record.
+     *
+     * @param offset
+     *            offset of the record
+     * @param payload
+     *            encoded booking
+     * @return CRC32 checksum
+     */
+    private static int checksum(final long offset, final byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(Long.BYTES).putLong(0, offset).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Encodes a booking.
+     *
+     * @param booking
+     *            booking to be encoded
+     * @return encoded booking
+     */
+    private static byte[] encode(final Booking booking) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            final byte[] vin = booking.getBookedCar().getVin().getBytes(StandardCharsets.UTF_8);
+            output.writeShort(vin.length);
+            output.write(vin);
+            output.writeInt((int) booking.getFromDate().toEpochDay());
+            output.writeInt((int) booking.getToDate().toEpochDay());
+            output.writeByte(booking.getUsage().ordinal());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a booking. The booked car only has its VIN value set.
+     *
+     * @param payload
+     *            encoded booking
+     * @return decoded booking
+     */
+    private static Booking decode(final byte[] payload) {
+        final ByteBuffer input = ByteBuffer.wrap(payload);
+        final byte[] vin = new byte[input.getShort() & 0xffff];
+        input.get(vin);
+        final Car car = new Car();
+        car.setVin(new String(vin, StandardCharsets.UTF_8));
+        final Booking booking = new Booking();
+        booking.setBookedCar(car);
+        booking.setFromDate(LocalDate.ofEpochDay(input.getInt()));
+        booking.setToDate(LocalDate.ofEpochDay(input.getInt()));
+        booking.setUsage(CarUsage.values()[input.get()]);
+        return booking;
+    }
+
+    /**
+     * Copies the persistent fields of a booking, except its ID.
+     *
+     * @param booking
+     *            booking to be copied
+     * @return new booking
+     */
+    private static Booking copy(final Booking booking) {
+        final Booking bookingCopy = new Booking();
+        bookingCopy.setBookedCar(booking.getBookedCar());
+        bookingCopy.setFromDate(booking.getFromDate());
+        bookingCopy.setToDate(booking.getToDate());
+        bookingCopy.setUsage(booking.getUsage());
+        return bookingCopy;
+    }
+
+    /**
+     * Booking record of the journal.
+     *
+     */
+    private static final class JournalRecord {
+        /** Offset of the start of the record. */
+        private final long startOffset;
+        /** Offset of the end of the record. */
+        private final long endOffset;
+        /** Journaled booking. */
+        private final Booking booking;
+        /** Time of appending in milliseconds. */
+        private final long appendTime = System.currentTimeMillis();
+        /** Future completed when the record is forced to disk. */
+        private final CompletableFuture<Booking> future = new CompletableFuture<>();
+
+        private JournalRecord(final long startOffset, final long endOffset, final Booking booking) {
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.booking = booking;
+        }
+    }
+}
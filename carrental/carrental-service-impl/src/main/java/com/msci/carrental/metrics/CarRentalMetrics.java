@@ -0,0 +1,320 @@
+package com.msci.carrental.metrics;
+
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.journal.BookingJournal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Names, tags and recording helpers of the car rental meters. Every call is recorded by a timer
+ * tagged with its result: {@link #SUCCESS}, the error code of a {@link CarRentalException}, or the
+ * class name of any other exception. Timers count the calls as well, so no separate counters are
+ * needed.
+ * <p>
+ * The meters are named with the <code>carrental</code> prefix, so percentile histograms can be
+ * turned on for all of them at once by the meter registry configuration.
+ *
+ */
+public final class CarRentalMetrics {
+    /** Timer of the car rental service operations. */
+    public static final String SERVICE_CALLS = "carrental.service.calls";
+    /** Timer of the validation steps of bookings. */
+    public static final String VALIDATION_STEPS = "carrental.booking.validations";
+    /** Timer of the repository calls. */
+    public static final String REPOSITORY_CALLS = "carrental.repository.calls";
+    /** Timer of the calls of the (external) country checker service. */
+    public static final String COUNTRY_CHECKER_CALLS = "carrental.countryChecker.calls";
+    /** Function counter of the cache lookups. */
+    public static final String CACHE_GETS = "carrental.cache.gets";
+    /** Function counter of the cache evictions. */
+    public static final String CACHE_EVICTIONS = "carrental.cache.evictions";
+    /** Gauge of the cache sizes. */
+    public static final String CACHE_SIZE = "carrental.cache.size";
+    /** Function counter of the rebuilds of derived views. */
+    public static final String VIEW_REBUILDS = "carrental.view.rebuilds";
+    /** Gauge of the duration of the last rebuild of derived views. */
+    public static final String VIEW_LAST_REBUILD = "carrental.view.lastRebuild";
+    /** Function counter of the incremental updates of derived views. */
+    public static final String VIEW_UPDATES = "carrental.view.updates";
+    /** Gauge of the age of derived views (the time since their last rebuild). */
+    public static final String VIEW_AGE = "carrental.view.age";
+    /** Function counter of the booking journal records, tagged by their state. */
+    public static final String JOURNAL_RECORDS = "carrental.journal.records";
+    /** Function counter of the group commits of the booking journal. */
+    public static final String JOURNAL_GROUP_COMMITS = "carrental.journal.groupCommits";
+    /** Gauge of the duration of the last group commit of the booking journal. */
+    public static final String JOURNAL_LAST_GROUP_COMMIT = "carrental.journal.lastGroupCommit";
+    /** Gauge of the booking journal records not saved to the database yet. */
+    public static final String JOURNAL_UNSAVED_RECORDS = "carrental.journal.unsavedRecords";
+    /** Gauge of the age of the oldest booking journal record not saved to the database yet. */
+    public static final String JOURNAL_FLUSH_LAG = "carrental.journal.flushLag";
+    /** Tag of the service operations. */
+    public static final String OPERATION_TAG = "operation";
+    /** Tag of the validation steps. */
+    public static final String STEP_TAG = "step";
+    /** Tag of the repositories. */
+    public static final String REPOSITORY_TAG = "repository";
+    /** Tag of the called methods. */
+    public static final String METHOD_TAG = "method";
+    /** Tag of the caches. */
+    public static final String CACHE_TAG = "cache";
+    /** Tag of the derived views. */
+    public static final String VIEW_TAG = "view";
+    /** Tag of the booking journal record states. */
+    public static final String STATE_TAG = "state";
+    /** Tag of the call results. */
+    public static final String RESULT_TAG = "result";
+    /** Result of successful calls. */
+    public static final String SUCCESS = "success";
+
+    /** Hidden ctor. */
+    private CarRentalMetrics() {}
+
+    /**
+     * Gets the meter registry to record to.
+     *
+     * @param meterRegistry
+     *            meter registry bean, <code>null</code> if there is none
+     * @return the meter registry bean, or the global registry if there is none
+     */
+    public static MeterRegistry getRegistry(final MeterRegistry meterRegistry) {
+        return meterRegistry == null ? Metrics.globalRegistry : meterRegistry;
+    }
+
+    /**
+     * Gets the result tag value of a failed call.
+     *
+     * @param exception
+     *            exception of the call (possibly wrapped in a {@link CompletionException})
+     * @return error code of a {@link CarRentalException}, class name of any other exception
+     */
+    public static String getResult(final Throwable exception) {
+        final Throwable cause = exception instanceof CompletionException
+                && exception.getCause() != null ? exception.getCause() : exception;
+        return cause instanceof CarRentalException ? ((CarRentalException) cause).getErrorCode()
+                : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * Records a call with a timer.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param name
+     *            timer name
+     * @param tags
+     *            tags of the call, the result tag is added to them
+     * @param call
+     *            call to be recorded
+     * @param <T>
+     *            type of the result
+     * @return result of the call
+     */
+    public static <T> T record(
+            final MeterRegistry meterRegistry,
+            final String name,
+            final Tags tags,
+            final Supplier<T> call) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String result = SUCCESS;
+        try {
+            return call.get();
+        } catch (final RuntimeException | Error e) {
+            result = getResult(e);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer(name, tags.and(RESULT_TAG, result)));
+        }
+    }
+
+    /**
+     * Records a call without result with a timer.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param name
+     *            timer name
+     * @param tags
+     *            tags of the call, the result tag is added to them
+     * @param call
+     *            call to be recorded
+     */
+    public static void record(
+            final MeterRegistry meterRegistry,
+            final String name,
+            final Tags tags,
+            final Runnable call) {
+        record(meterRegistry, name, tags, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Records an asynchronous call with a timer, stopped when the future of the call completes.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param name
+     *            timer name
+     * @param tags
+     *            tags of the call, the result tag is added to them
+     * @param call
+     *            call to be recorded
+     * @param <T>
+     *            type of the result
+     * @return future of the call
+     */
+    public static <T> CompletableFuture<T> recordAsync(
+            final MeterRegistry meterRegistry,
+            final String name,
+            final Tags tags,
+            final Supplier<CompletableFuture<T>> call) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (final RuntimeException | Error e) {
+            sample.stop(meterRegistry.timer(name, tags.and(RESULT_TAG, getResult(e))));
+            throw e;
+        }
+        future.whenComplete((result, e) -> sample.stop(meterRegistry.timer(name,
+                tags.and(RESULT_TAG, e == null ? SUCCESS : getResult(e)))));
+        return future;
+    }
+
+    /**
+     * Registers the meters of a cache: the hits, misses and evictions counted by the cache, and
+     * its size.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param cacheName
+     *            name of the cache
+     * @param cache
+     *            the cache
+     * @param hitCount
+     *            function getting the number of hits
+     * @param missCount
+     *            function getting the number of misses
+     * @param evictionCount
+     *            function getting the number of evictions
+     * @param size
+     *            function getting the size
+     * @param <T>
+     *            type of the cache
+     */
+    public static <T> void bindCache(
+            final MeterRegistry meterRegistry,
+            final String cacheName,
+            final T cache,
+            final ToDoubleFunction<T> hitCount,
+            final ToDoubleFunction<T> missCount,
+            final ToDoubleFunction<T> evictionCount,
+            final ToDoubleFunction<T> size) {
+        FunctionCounter.builder(CACHE_GETS, cache, hitCount).tags(CACHE_TAG, cacheName)
+                .tags(RESULT_TAG, "hit").register(meterRegistry);
+        FunctionCounter.builder(CACHE_GETS, cache, missCount).tags(CACHE_TAG, cacheName)
+                .tags(RESULT_TAG, "miss").register(meterRegistry);
+        FunctionCounter.builder(CACHE_EVICTIONS, cache, evictionCount).tags(CACHE_TAG, cacheName)
+                .register(meterRegistry);
+        Gauge.builder(CACHE_SIZE, cache, size).tags(CACHE_TAG, cacheName).register(meterRegistry);
+    }
+
+    /**
+     * Registers the meters of a view derived from the database: the number of its rebuilds, and
+     * the duration of the last one.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param viewName
+     *            name of the view
+     * @param view
+     *            the view
+     * @param rebuildCount
+     *            function getting the number of rebuilds
+     * @param lastRebuildMillis
+     *            function getting the duration of the last rebuild in milliseconds
+     * @param <T>
+     *            type of the view
+     */
+    public static <T> void bindView(
+            final MeterRegistry meterRegistry,
+            final String viewName,
+            final T view,
+            final ToDoubleFunction<T> rebuildCount,
+            final ToDoubleFunction<T> lastRebuildMillis) {
+        FunctionCounter.builder(VIEW_REBUILDS, view, rebuildCount).tags(VIEW_TAG, viewName)
+                .register(meterRegistry);
+        Gauge.builder(VIEW_LAST_REBUILD, view, lastRebuildMillis).tags(VIEW_TAG, viewName)
+                .baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    /**
+     * Registers the meters of a derived view updated incrementally between its rebuilds: the
+     * number of its incremental updates, and its age.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param viewName
+     *            name of the view
+     * @param view
+     *            the view
+     * @param updateCount
+     *            function getting the number of incremental updates
+     * @param ageMillis
+     *            function getting the time since the last rebuild in milliseconds
+     * @param <T>
+     *            type of the view
+     */
+    public static <T> void bindViewUpdates(
+            final MeterRegistry meterRegistry,
+            final String viewName,
+            final T view,
+            final ToDoubleFunction<T> updateCount,
+            final ToDoubleFunction<T> ageMillis) {
+        FunctionCounter.builder(VIEW_UPDATES, view, updateCount).tags(VIEW_TAG, viewName)
+                .register(meterRegistry);
+        Gauge.builder(VIEW_AGE, view, ageMillis).tags(VIEW_TAG, viewName).baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the meters of the booking journal: the appended, committed and saved records, the
+     * group commits and the duration of the last one, the unsaved records and the flush lag.
+     *
+     * @param meterRegistry
+     *            meter registry
+     * @param bookingJournal
+     *            booking journal
+     */
+    public static void bindJournal(
+            final MeterRegistry meterRegistry,
+            final BookingJournal bookingJournal) {
+        FunctionCounter.builder(JOURNAL_RECORDS, bookingJournal, BookingJournal::getAppendedCount)
+                .tags(STATE_TAG, "appended").register(meterRegistry);
+        FunctionCounter.builder(JOURNAL_RECORDS, bookingJournal, BookingJournal::getCommittedCount)
+                .tags(STATE_TAG, "committed").register(meterRegistry);
+        FunctionCounter.builder(JOURNAL_RECORDS, bookingJournal, BookingJournal::getSavedCount)
+                .tags(STATE_TAG, "saved").register(meterRegistry);
+        FunctionCounter.builder(JOURNAL_GROUP_COMMITS, bookingJournal,
+                BookingJournal::getGroupCommitCount).register(meterRegistry);
+        Gauge.builder(JOURNAL_LAST_GROUP_COMMIT, bookingJournal,
+                BookingJournal::getLastGroupCommitMicros).baseUnit("microseconds")
+                .register(meterRegistry);
+        Gauge.builder(JOURNAL_UNSAVED_RECORDS, bookingJournal, BookingJournal::getUnsavedRecordNr)
+                .register(meterRegistry);
+        Gauge.builder(JOURNAL_FLUSH_LAG, bookingJournal, BookingJournal::getFlushLagMillis)
+                .baseUnit("milliseconds").register(meterRegistry);
+    }
+}
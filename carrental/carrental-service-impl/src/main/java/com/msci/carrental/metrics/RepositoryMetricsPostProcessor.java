@@ -0,0 +1,111 @@
+package com.msci.carrental.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a timing interceptor to the Spring Data repository proxies, so every repository call
+ * (query, save or custom implementation method) is recorded by the
+ * {@link CarRentalMetrics#REPOSITORY_CALLS} timer, tagged by the repository interface and the
+ * method. The interceptor is the first advice of the proxy, so the time spent in transactions
+ * opened by the repository is included.
+ *
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    /** Provider of the meter registry, resolved lazily to keep it out of post-processing. */
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+    /** Meter registry, resolved on the first repository call. */
+    private volatile MeterRegistry meterRegistry;
+
+    public Object postProcessBeforeInitialization(final Object bean, final String beanName)
+            throws BeansException {
+        return bean;
+    }
+
+    public Object postProcessAfterInitialization(final Object bean, final String beanName)
+            throws BeansException {
+        if (bean instanceof Repository && bean instanceof Advised
+                && !((Advised) bean).isFrozen()) {
+            ((Advised) bean).addAdvice(0, new RepositoryTimingInterceptor(
+                    getRepositoryName(AopProxyUtils.proxiedUserInterfaces(bean))));
+        }
+        return bean;
+    }
+
+    /**
+     * Gets the name of a repository from the interfaces of its proxy.
+     *
+     * @param interfaces
+     *            interfaces implemented by the repository proxy
+     * @return simple name of the repository interface
+     */
+    private static String getRepositoryName(final Class<?>[] interfaces) {
+        for (final Class<?> repositoryInterface : interfaces) {
+            if (Repository.class.isAssignableFrom(repositoryInterface)) {
+                return repositoryInterface.getSimpleName();
+            }
+        }
+        return interfaces[0].getSimpleName();
+    }
+
+    /**
+     * Gets the meter registry bean, or the global registry if there is none.
+     *
+     * @return meter registry
+     */
+    private MeterRegistry getMeterRegistry() {
+        if (meterRegistry == null) {
+            meterRegistry = CarRentalMetrics.getRegistry(meterRegistryProvider.getIfAvailable());
+        }
+        return meterRegistry;
+    }
+
+    /**
+     * Interceptor recording the calls of a repository.
+     *
+     */
+    private class RepositoryTimingInterceptor implements MethodInterceptor {
+        /** Tags of the repository. */
+        private final Tags tags;
+
+        /**
+         * Ctor.
+         *
+         * @param repositoryName
+         *            name of the repository
+         */
+        RepositoryTimingInterceptor(final String repositoryName) {
+            tags = Tags.of(CarRentalMetrics.REPOSITORY_TAG, repositoryName);
+        }
+
+        public Object invoke(final MethodInvocation invocation) throws Throwable {
+            final Tags methodTags =
+                    tags.and(CarRentalMetrics.METHOD_TAG, invocation.getMethod().getName());
+            final MeterRegistry registry = getMeterRegistry();
+            final Timer.Sample sample = Timer.start(registry);
+            String result = CarRentalMetrics.SUCCESS;
+            try {
+                return invocation.proceed();
+            } catch (final Throwable e) {
+                result = CarRentalMetrics.getResult(e);
+                throw e;
+            } finally {
+                sample.stop(registry.timer(CarRentalMetrics.REPOSITORY_CALLS,
+                        methodTags.and(CarRentalMetrics.RESULT_TAG, result)));
+            }
+        }
+    }
+}
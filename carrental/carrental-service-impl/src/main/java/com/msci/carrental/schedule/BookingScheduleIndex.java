@@ -0,0 +1,198 @@
+package com.msci.carrental.schedule;
+
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.projection.BookingPeriod;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory index of the booking schedules of all cars. It's loaded from the
+ * {@link BookingRepository} at startup and has to be updated on every successful booking, so
+ * availability checks don't have to query the database.
+ * <p>
+ * Every car has its own schedule with its own lock, so reservations of different cars never block
+ * each other, while concurrent reservations of the same car for conflicting periods can't both
+ * succeed.
+ * <p>
+ * Only bookings ending today or later are loaded, as earlier bookings can't conflict with new
+ * ones (their opening date can't be in the past).
+ *
+ */
+@Component
+public class BookingScheduleIndex {
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(BookingScheduleIndex.class);
+    /** Booking repository bean. */
+    @Autowired
+    private BookingRepository bookingRepository;
+    /** Booking schedules mapped by car VIN values. */
+    private volatile ConcurrentMap<String, CarBookingSchedule> schedules =
+            new ConcurrentHashMap<>();
+
+    /** Loads the schedules of all cars from the database. */
+    @PostConstruct
+    public void load() {
+        final long startTime = System.currentTimeMillis();
+        final List<BookingPeriod> bookings =
+                bookingRepository.findAllBookingPeriodsEndingFromDate(LocalDate.now());
+        schedules = buildSchedules(bookings);
+        logger.info("Loaded {} bookings of {} cars into booking schedule index in {} ms",
+                bookings.size(), schedules.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Checks if a car is free in the given period.
+     *
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            period opening date
+     * @param toDate
+     *            period ending date
+     * @return <code>true</code> if the car has no booking conflicting with the period
+     */
+    public boolean isCarAvailable(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) {
+        final CarBookingSchedule schedule = schedules.get(vin);
+        return schedule == null
+                || schedule.isAvailable(fromDate.toEpochDay(), toDate.toEpochDay());
+    }
+
+    /**
+     * Atomically checks if a car is free in the given period and reserves the period if it is.
+     * The reservation has to be {@link #release(String, LocalDate, LocalDate) released} if the
+     * booking can't be saved.
+     *
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            period opening date
+     * @param toDate
+     *            period ending date
+     * @return <code>true</code> if the period was reserved, <code>false</code> if the car is
+     *         booked in the period
+     */
+    public boolean reserve(final String vin, final LocalDate fromDate, final LocalDate toDate) {
+        final CarBookingSchedule schedule =
+                schedules.computeIfAbsent(vin, key -> new CarBookingSchedule());
+        return schedule.tryReserve(fromDate.toEpochDay(), toDate.toEpochDay());
+    }
+
+    /**
+     * Releases a period reserved by {@link #reserve(String, LocalDate, LocalDate)}.
+     *
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            period opening date
+     * @param toDate
+     *            period ending date
+     */
+    public void release(final String vin, final LocalDate fromDate, final LocalDate toDate) {
+        final CarBookingSchedule schedule = schedules.get(vin);
+        if (schedule == null || !schedule.release(fromDate.toEpochDay(), toDate.toEpochDay())) {
+            logger.warn("No reservation found to release for car (VIN={}) in period: {} - {}", vin,
+                    fromDate, toDate);
+        }
+    }
+
+    /**
+     * Checks the index against the database. Reads all bookings from the
+     * {@link BookingRepository} again and compares the booked periods ending today or later car by
+     * car.
+     *
+     * @return (potentially empty) sorted {@link List} of VIN values of the cars whose schedule
+     *         differs from the database
+     */
+    public List<String> checkConsistency() {
+        final LocalDate today = LocalDate.now();
+        final long todayEpochDay = today.toEpochDay();
+        final ConcurrentMap<String, CarBookingSchedule> databaseSchedules =
+                buildSchedules(bookingRepository.findAllBookingPeriodsEndingFromDate(today));
+        final Set<String> vins = new HashSet<>(schedules.keySet());
+        vins.addAll(databaseSchedules.keySet());
+
+        final List<String> inconsistentVins = new ArrayList<>();
+        for (final String vin : vins) {
+            final long[] indexedPeriods = getPeriods(schedules, vin, todayEpochDay);
+            final long[] storedPeriods = getPeriods(databaseSchedules, vin, todayEpochDay);
+            if (!Arrays.equals(indexedPeriods, storedPeriods)) {
+                logger.warn("Booking schedule of car (VIN={}) differs from database: {} <> {}",
+                        vin, EpochDayIntervals.toString(indexedPeriods),
+                        EpochDayIntervals.toString(storedPeriods));
+                inconsistentVins.add(vin);
+            }
+        }
+        Collections.sort(inconsistentVins);
+        return inconsistentVins;
+    }
+
+    /**
+     * Builds the schedules of cars from a list of booking periods.
+     *
+     * @param bookings
+     *            booking periods to be indexed
+     * @return schedules mapped by car VIN values
+     */
+    private ConcurrentMap<String, CarBookingSchedule> buildSchedules(
+            final List<BookingPeriod> bookings) {
+        final ConcurrentMap<String, CarBookingSchedule> newSchedules = new ConcurrentHashMap<>();
+        for (final BookingPeriod booking : bookings) {
+            addBooking(newSchedules, booking);
+        }
+        return newSchedules;
+    }
+
+    /**
+     * Adds a booking period to the schedule of the booked car, creating the schedule if needed.
+     *
+     * @param carSchedules
+     *            schedules mapped by car VIN values
+     * @param booking
+     *            booking period to be added
+     */
+    private void addBooking(
+            final ConcurrentMap<String, CarBookingSchedule> carSchedules,
+            final BookingPeriod booking) {
+        final CarBookingSchedule schedule =
+                carSchedules.computeIfAbsent(booking.getVin(), vin -> new CarBookingSchedule());
+        schedule.add(booking.getFromDate().toEpochDay(), booking.getToDate().toEpochDay());
+    }
+
+    /**
+     * Gets the booked periods of a car ending on or after the given day.
+     *
+     * @param carSchedules
+     *            schedules mapped by car VIN values
+     * @param vin
+     *            car VIN value
+     * @param fromDay
+     *            first epoch day of interest
+     * @return periods packed by {@link EpochDayIntervals}, empty if the car has no schedule
+     */
+    private long[] getPeriods(
+            final Map<String, CarBookingSchedule> carSchedules,
+            final String vin,
+            final long fromDay) {
+        final CarBookingSchedule schedule = carSchedules.get(vin);
+        return schedule != null ? schedule.getPeriodsEndingFrom(fromDay) : new long[0];
+    }
+}
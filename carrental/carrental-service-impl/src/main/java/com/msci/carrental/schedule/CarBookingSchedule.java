@@ -0,0 +1,181 @@
+package com.msci.carrental.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Booking schedule of a single car. Holds the booked periods as epoch day ranges sorted by their
+ * opening day, so availability checks take O(log n) time. The periods are
+ * {@link EpochDayIntervals packed} into a primitive array, so a booked period takes 8 bytes and
+ * checks don't box.
+ * <p>
+ * Two periods conflict exactly when
+ * {@link com.msci.carrental.repository.BookingRepository#findBookingOfCarInDatePeriod} would
+ * report them: the requested period starts before the booked one ends and ends on or after the
+ * booked one starts. A booking ending on a day doesn't block a new booking starting on that very
+ * day, except for bookings starting and ending on the same day.
+ * <p>
+ * Periods stored in a schedule never conflict with each other, hence both their opening and
+ * ending days are ordered. Conflicting periods loaded from the database (e.g. double bookings made
+ * before the schedule existed) are merged into one period covering all of them.
+ *
+ */
+public class CarBookingSchedule {
+    /** Period array of empty schedules. */
+    private static final long[] NO_PERIODS = new long[0];
+    /** Capacity of the period array when the first period is added. */
+    private static final int INITIAL_CAPACITY = 4;
+    /** Booked periods packed by {@link EpochDayIntervals}, sorted by opening day. */
+    private long[] periods = NO_PERIODS;
+    /** Number of booked periods. */
+    private int size;
+
+    /**
+     * Checks if the car is free in the given period.
+     *
+     * @param fromDay
+     *            opening epoch day of the period
+     * @param toDay
+     *            ending epoch day of the period
+     * @return <code>true</code> if no booked period conflicts with the given one
+     */
+    public synchronized boolean isAvailable(final long fromDay, final long toDay) {
+        final int floor = floorIndex(toDay);
+        return floor < 0 || EpochDayIntervals.fromDay(periods[floor]) < fromDay
+                && EpochDayIntervals.toDay(periods[floor]) <= fromDay;
+    }
+
+    /**
+     * Atomically checks if the car is free in the given period and books the period if it is.
+     *
+     * @param fromDay
+     *            opening epoch day of the period
+     * @param toDay
+     *            ending epoch day of the period
+     * @return <code>true</code> if the period was booked, <code>false</code> if it conflicts with
+     *         a booked period
+     */
+    public synchronized boolean tryReserve(final long fromDay, final long toDay) {
+        if (!isAvailable(fromDay, toDay)) {
+            return false;
+        }
+        insert(floorIndex(fromDay) + 1, EpochDayIntervals.pack(fromDay, toDay));
+        return true;
+    }
+
+    /**
+     * Removes a booked period reserved by {@link #tryReserve(long, long)}.
+     *
+     * @param fromDay
+     *            opening epoch day of the period
+     * @param toDay
+     *            ending epoch day of the period
+     * @return <code>true</code> if the period was found and removed
+     */
+    public synchronized boolean release(final long fromDay, final long toDay) {
+        final int index = floorIndex(fromDay);
+        if (index < 0 || periods[index] != EpochDayIntervals.pack(fromDay, toDay)) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * Adds a booked period to the schedule. Periods conflicting with the new one are merged with
+     * it.
+     *
+     * @param fromDay
+     *            opening epoch day of the period
+     * @param toDay
+     *            ending epoch day of the period
+     */
+    public synchronized void add(final long fromDay, final long toDay) {
+        long mergedFromDay = fromDay;
+        long mergedToDay = toDay;
+        int floor = floorIndex(mergedToDay);
+        while (floor >= 0 && (EpochDayIntervals.fromDay(periods[floor]) >= mergedFromDay
+                || EpochDayIntervals.toDay(periods[floor]) > mergedFromDay)) {
+            mergedFromDay = Math.min(mergedFromDay, EpochDayIntervals.fromDay(periods[floor]));
+            mergedToDay = Math.max(mergedToDay, EpochDayIntervals.toDay(periods[floor]));
+            remove(floor);
+            floor = floorIndex(mergedToDay);
+        }
+        insert(floorIndex(mergedFromDay) + 1, EpochDayIntervals.pack(mergedFromDay, mergedToDay));
+    }
+
+    /**
+     * Returns a copy of the booked periods ending on or after the given day.
+     *
+     * @param fromDay
+     *            first epoch day of interest
+     * @return periods packed by {@link EpochDayIntervals}, sorted by opening day
+     */
+    public synchronized long[] getPeriodsEndingFrom(final long fromDay) {
+        final long[] result = new long[size];
+        int resultSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (EpochDayIntervals.toDay(periods[i]) >= fromDay) {
+                result[resultSize++] = periods[i];
+            }
+        }
+        return resultSize == size ? result : Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * Gets the number of booked periods.
+     *
+     * @return number of periods
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Finds the last period opening on or before the given day by binary search.
+     *
+     * @param day
+     *            epoch day
+     * @return index of the period, or -1 if every period opens after the day
+     */
+    private int floorIndex(final long day) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (EpochDayIntervals.fromDay(periods[middle]) <= day) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Inserts a period, growing the array if it's full.
+     *
+     * @param index
+     *            index of the period
+     * @param period
+     *            packed period
+     */
+    private void insert(final int index, final long period) {
+        if (size == periods.length) {
+            periods = Arrays.copyOf(periods, Math.max(INITIAL_CAPACITY, size + (size >> 1)));
+        }
+        System.arraycopy(periods, index, periods, index + 1, size - index);
+        periods[index] = period;
+        size++;
+    }
+
+    /**
+     * Removes a period.
+     *
+     * @param index
+     *            index of the period
+     */
+    private void remove(final int index) {
+        System.arraycopy(periods, index + 1, periods, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,74 @@
+package com.msci.carrental.schedule;
+
+import java.time.LocalDate;
+
+/**
+ * Primitive encoding of booking periods. The opening and ending epoch days of a period are packed
+ * into a single <code>long</code>: the opening day in the high, the ending day in the low 32 bits.
+ * Periods can be stored in primitive arrays this way, 8 bytes each, without boxing.
+ *
+ */
+public final class EpochDayIntervals {
+    /** Mask of the low 32 bits. */
+    private static final long LOW_MASK = 0xffffffffL;
+
+    /** Hidden ctor. */
+    private EpochDayIntervals() {}
+
+    /**
+     * Packs a period into a <code>long</code>.
+     *
+     * @param fromDay
+     *            opening epoch day of the period
+     * @param toDay
+     *            ending epoch day of the period
+     * @return packed period
+     * @throws ArithmeticException
+     *             If a day doesn't fit into an <code>int</code>.
+     */
+    public static long pack(final long fromDay, final long toDay) {
+        return (long) Math.toIntExact(fromDay) << Integer.SIZE
+                | Math.toIntExact(toDay) & LOW_MASK;
+    }
+
+    /**
+     * Gets the opening epoch day of a packed period.
+     *
+     * @param period
+     *            packed period
+     * @return opening epoch day
+     */
+    public static int fromDay(final long period) {
+        return (int) (period >> Integer.SIZE);
+    }
+
+    /**
+     * Gets the ending epoch day of a packed period.
+     *
+     * @param period
+     *            packed period
+     * @return ending epoch day
+     */
+    public static int toDay(final long period) {
+        return (int) period;
+    }
+
+    /**
+     * Formats packed periods as ISO date intervals, e.g. <code>[2030-01-01/2030-01-05]</code>.
+     *
+     * @param periods
+     *            packed periods
+     * @return text representation of the periods
+     */
+    public static String toString(final long[] periods) {
+        final StringBuilder text = new StringBuilder(periods.length * 22 + 2).append('[');
+        for (int i = 0; i < periods.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(LocalDate.ofEpochDay(fromDay(periods[i]))).append('/')
+                    .append(LocalDate.ofEpochDay(toDay(periods[i])));
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.exception.CarRentalErrorCodes;
+import com.msci.carrental.exception.CarRentalException;
+
+import java.time.LocalDate;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Validation stage of the booking data details: the VIN value and the booking period.
+ *
+ */
+public class BookingDetailsValidator extends SynchronousBookingValidator {
+    /** Name of the stage. */
+    public static final String NAME = "details";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int getCostHint() {
+        return COST_IN_MEMORY;
+    }
+
+    @Override
+    protected void check(final BookingValidationContext context) throws CarRentalException {
+        validateDetails(context.getRequest().getVin(), context.getRequest().getFromDate(),
+                context.getRequest().getToDate());
+    }
+
+    /**
+     * Validates booking data details. Every validation error results in a
+     * {@link CarRentalException}.
+     *
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     * @throws CarRentalException
+     *             If any validation fails. Appropriate error code and error message is set for
+     *             every validation error.
+     */
+    public static void validateDetails(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate)
+            throws CarRentalException {
+        if (StringUtils.isBlank(vin)) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_VIN,
+                    "Missing VIN value");
+        }
+
+        validatePeriod(fromDate, toDate);
+    }
+
+    /**
+     * Validates the dates of a booking period. Every validation error results in a
+     * {@link CarRentalException}.
+     *
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     * @throws CarRentalException
+     *             If any validation fails. Appropriate error code and error message is set for
+     *             every validation error.
+     */
+    public static void validatePeriod(final LocalDate fromDate, final LocalDate toDate)
+            throws CarRentalException {
+        if (fromDate == null) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_FROM_DATE,
+                    "Missing rental opening date value");
+        }
+
+        if (toDate == null) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_MISSING_TO_DATE,
+                    "Missing rental ending date value");
+        }
+
+        if (toDate.isBefore(fromDate)) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_TO_DATE_BEFORE_FROM_DATE,
+                    "Rental ending date (" + toDate + ") if earlier than opening date (" + fromDate
+                            + ")");
+        }
+
+        // Bookings are for whole days, so a booking may start today
+        if (fromDate.isBefore(LocalDate.now())) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_INVALID_FROM_DATE,
+                    "Rental opening date can't be earlier than today");
+        }
+    }
+}
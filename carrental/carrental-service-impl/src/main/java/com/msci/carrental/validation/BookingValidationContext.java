@@ -0,0 +1,57 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.BookingRequest;
+import com.msci.carrental.model.Car;
+
+/**
+ * State of a booking request passing the stages of a {@link BookingValidationPipeline}. Stages
+ * store what they found out for the later stages and the saving of the booking, e.g. the car
+ * looked up for the VIN value. A context is used by one booking at a time, stages run after each
+ * other.
+ *
+ */
+public class BookingValidationContext {
+    /** Validated booking request. */
+    private final BookingRequest request;
+    /** Car of the booking, <code>null</code> until it's looked up. */
+    private Car car;
+    /** Flag of the booking period being reserved in the schedule of the car. */
+    private boolean isSlotHeld;
+
+    /**
+     * Ctor.
+     *
+     * @param request
+     *            booking request to be validated
+     */
+    public BookingValidationContext(final BookingRequest request) {
+        super();
+        this.request = request;
+    }
+
+    public BookingRequest getRequest() {
+        return request;
+    }
+
+    public Car getCar() {
+        return car;
+    }
+
+    public void setCar(final Car car) {
+        this.car = car;
+    }
+
+    /**
+     * Checks if the booking period has been reserved in the schedule of the car during the
+     * validation. A held period has to be released if the booking isn't saved.
+     *
+     * @return <code>true</code> if the booking period is reserved
+     */
+    public boolean isSlotHeld() {
+        return isSlotHeld;
+    }
+
+    public void setSlotHeld(final boolean isSlotHeld) {
+        this.isSlotHeld = isSlotHeld;
+    }
+}
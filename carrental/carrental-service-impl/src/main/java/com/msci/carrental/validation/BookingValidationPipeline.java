@@ -0,0 +1,149 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.metrics.CarRentalMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Ordered chain of {@link BookingValidator} stages. The stages run one after the other, sorted
+ * by their cost hints, and the first rejection short-circuits the chain: the later stages aren't
+ * run, and the side effects of the passed stages are released in reverse order.
+ * <p>
+ * Every stage run is recorded by the {@link CarRentalMetrics#VALIDATION_STEPS} timer, tagged by
+ * the name of the stage and its result.
+ *
+ */
+public class BookingValidationPipeline {
+    /** Result of the passed requests. */
+    private static final CompletableFuture<Void> PASSED = CompletableFuture.completedFuture(null);
+    /** Stages in the order they run. */
+    private final List<BookingValidator> validators;
+    /** Metric tags of the stages, indexed like the stages. */
+    private final Tags[] stageTags;
+    /** Meter registry. */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Ctor.
+     *
+     * @param validators
+     *            stages of the pipeline, stages of equal cost run in the order of this list
+     * @param meterRegistry
+     *            meter registry
+     */
+    public BookingValidationPipeline(
+            final List<BookingValidator> validators,
+            final MeterRegistry meterRegistry) {
+        super();
+        final List<BookingValidator> sortedValidators = new ArrayList<>(validators);
+        // The sort is stable, so stages of equal cost keep their order
+        sortedValidators.sort(Comparator.comparingInt(BookingValidator::getCostHint));
+        this.validators = Collections.unmodifiableList(sortedValidators);
+        stageTags = new Tags[sortedValidators.size()];
+        for (int i = 0; i < stageTags.length; i++) {
+            stageTags[i] = Tags.of(CarRentalMetrics.STEP_TAG, sortedValidators.get(i).getName());
+        }
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Validates a booking request with every stage.
+     *
+     * @param context
+     *            validation context of the booking request
+     * @return {@link CompletableFuture} completed when the request passed every stage, or failed
+     *         with the {@link CarRentalException} of the rejecting stage
+     */
+    public CompletableFuture<Void> validate(final BookingValidationContext context) {
+        return validateFrom(0, context);
+    }
+
+    /**
+     * Gets the stages of the pipeline.
+     *
+     * @return unmodifiable {@link List} of the stages in the order they run
+     */
+    public List<BookingValidator> getValidators() {
+        return validators;
+    }
+
+    /**
+     * Validates a booking request with the stages from an index on. Stages deciding on the calling
+     * thread are run in a loop, the chain continues in a callback after asynchronous stages.
+     *
+     * @param firstIndex
+     *            index of the first stage to run
+     * @param context
+     *            validation context of the booking request
+     * @return {@link CompletableFuture} of the validation
+     */
+    private CompletableFuture<Void> validateFrom(
+            final int firstIndex,
+            final BookingValidationContext context) {
+        for (int i = firstIndex; i < validators.size(); i++) {
+            final BookingValidator validator = validators.get(i);
+            final CompletableFuture<Void> stage;
+            try {
+                stage = CarRentalMetrics.recordAsync(meterRegistry,
+                        CarRentalMetrics.VALIDATION_STEPS, stageTags[i],
+                        () -> validator.validate(context));
+            } catch (final RuntimeException e) {
+                release(i - 1, context);
+                throw e;
+            }
+            if (!stage.isDone()) {
+                final int index = i;
+                return stage.handle((ignored, e) -> {
+                    if (e != null) {
+                        release(index - 1, context);
+                        return failedFuture(e);
+                    }
+                    return validateFrom(index + 1, context);
+                }).thenCompose(Function.identity());
+            }
+            if (stage.isCompletedExceptionally()) {
+                release(i - 1, context);
+                return stage;
+            }
+        }
+        return PASSED;
+    }
+
+    /**
+     * Releases the side effects of the passed stages of a rejected request, in reverse order.
+     *
+     * @param lastIndex
+     *            index of the last passed stage
+     * @param context
+     *            validation context of the rejected booking request
+     */
+    private void release(final int lastIndex, final BookingValidationContext context) {
+        for (int i = lastIndex; i >= 0; i--) {
+            validators.get(i).release(context);
+        }
+    }
+
+    /**
+     * Creates a {@link CompletableFuture} failed with the cause of an exception of a stage.
+     *
+     * @param exception
+     *            exception of a stage (possibly wrapped in a {@link CompletionException})
+     * @return failed future
+     */
+    private static CompletableFuture<Void> failedFuture(final Throwable exception) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(exception instanceof CompletionException
+                && exception.getCause() != null ? exception.getCause() : exception);
+        return future;
+    }
+}
@@ -0,0 +1,57 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.exception.CarRentalException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stage of a {@link BookingValidationPipeline}. The stages are run in the order of their cost
+ * hints, cheapest first, so a booking rejected by a cheap check doesn't pay for the expensive
+ * ones. Stages of equal cost run in the order they were added to the pipeline.
+ * <p>
+ * Additional stages can be plugged in by declaring them as beans.
+ *
+ */
+public interface BookingValidator {
+    /** Cost hint of checks of data in memory. */
+    int COST_IN_MEMORY = 1;
+    /** Cost hint of lookups served by a cache, or locking shared data. */
+    int COST_CACHED_LOOKUP = 10;
+    /** Cost hint of database queries. */
+    int COST_DATABASE_QUERY = 100;
+    /** Cost hint of calls of remote services. */
+    int COST_REMOTE_CALL = 10000;
+
+    /**
+     * Gets the name of the stage, used as the tag of its metrics.
+     *
+     * @return name of the stage
+     */
+    String getName();
+
+    /**
+     * Gets the estimated cost of the stage, relative to the other stages.
+     *
+     * @return cost hint, one of the <code>COST_</code> constants or a value between them
+     */
+    int getCostHint();
+
+    /**
+     * Validates a booking request.
+     *
+     * @param context
+     *            validation context of the booking request
+     * @return {@link CompletableFuture} completed when the request passed the stage, or failed
+     *         with a {@link CarRentalException} if it's invalid
+     */
+    CompletableFuture<Void> validate(BookingValidationContext context);
+
+    /**
+     * Undoes the side effects of the stage, when the request is rejected by a later stage. The
+     * default implementation does nothing.
+     *
+     * @param context
+     *            validation context of the rejected booking request
+     */
+    default void release(final BookingValidationContext context) {}
+}
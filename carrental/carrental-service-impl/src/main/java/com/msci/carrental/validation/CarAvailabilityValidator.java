@@ -0,0 +1,90 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.BookingRequest;
+import com.msci.carrental.exception.CarRentalErrorCodes;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+
+import java.time.LocalDate;
+
+/**
+ * Validation stage checking in the booking schedule index that the car isn't booked in the
+ * booking period. The check locks the schedule of the car, which is contended by the concurrent
+ * bookings of the car, so it's ranked with cache lookups rather than plain in-memory checks.
+ *
+ */
+public class CarAvailabilityValidator extends SynchronousBookingValidator {
+    /** Name of the stage. */
+    public static final String NAME = "availability";
+    /** Booking schedule index. */
+    private final BookingScheduleIndex bookingScheduleIndex;
+
+    /**
+     * Ctor.
+     *
+     * @param bookingScheduleIndex
+     *            booking schedule index
+     */
+    public CarAvailabilityValidator(final BookingScheduleIndex bookingScheduleIndex) {
+        super();
+        this.bookingScheduleIndex = bookingScheduleIndex;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int getCostHint() {
+        return COST_CACHED_LOOKUP;
+    }
+
+    @Override
+    protected void check(final BookingValidationContext context) throws CarRentalException {
+        final BookingRequest request = context.getRequest();
+        validateAvailable(bookingScheduleIndex, request.getVin(), request.getFromDate(),
+                request.getToDate());
+    }
+
+    /**
+     * Validates that a car isn't booked in a period.
+     *
+     * @param bookingScheduleIndex
+     *            booking schedule index
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     * @throws CarRentalException
+     *             If the car is booked in the period.
+     */
+    public static void validateAvailable(
+            final BookingScheduleIndex bookingScheduleIndex,
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) throws CarRentalException {
+        if (!bookingScheduleIndex.isCarAvailable(vin, fromDate, toDate)) {
+            throw createCarIsBookedException(vin, fromDate, toDate);
+        }
+    }
+
+    /**
+     * Creates the exception of a car booked in a period.
+     *
+     * @param vin
+     *            car VIN value
+     * @param fromDate
+     *            booking opening date
+     * @param toDate
+     *            booking ending date
+     * @return exception with {@link CarRentalErrorCodes#ERROR_BOOKING_CAR_IS_BOOKED} error code
+     */
+    public static CarRentalException createCarIsBookedException(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) {
+        return new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
+                "Car (VIN=" + vin + ") is booked in time period: " + fromDate + " - " + toDate);
+    }
+}
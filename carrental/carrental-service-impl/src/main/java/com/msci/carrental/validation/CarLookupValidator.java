@@ -0,0 +1,63 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.exception.CarRentalErrorCodes;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.model.Car;
+
+import java.util.function.Function;
+
+/**
+ * Validation stage looking up the car of the booking, which has to exist. The car is stored in the
+ * context for the saving of the booking.
+ *
+ */
+public class CarLookupValidator extends SynchronousBookingValidator {
+    /** Name of the stage. */
+    public static final String NAME = "car";
+    /** Lookup of the cars by VIN values (served by the car details cache). */
+    private final Function<String, Car> carLookup;
+
+    /**
+     * Ctor.
+     *
+     * @param carLookup
+     *            lookup of the cars by VIN values, returning <code>null</code> for unknown ones
+     */
+    public CarLookupValidator(final Function<String, Car> carLookup) {
+        super();
+        this.carLookup = carLookup;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int getCostHint() {
+        return COST_CACHED_LOOKUP;
+    }
+
+    @Override
+    protected void check(final BookingValidationContext context) throws CarRentalException {
+        final String vin = context.getRequest().getVin();
+        final Car car = carLookup.apply(vin);
+        validateExists(vin, car);
+        context.setCar(car);
+    }
+
+    /**
+     * Validates that the car of a booking exists.
+     *
+     * @param vin
+     *            car VIN value
+     * @param car
+     *            car found for the VIN value, <code>null</code> if there is none
+     * @throws CarRentalException
+     *             If there is no car with the VIN value.
+     */
+    public static void validateExists(final String vin, final Car car) throws CarRentalException {
+        if (car == null) {
+            throw new CarRentalException(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
+                    "No car was found for VIN=" + vin);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.AsyncCountryCheckerService;
+import com.msci.carrental.BookingRequest;
+import com.msci.carrental.exception.CarRentalErrorCodes;
+import com.msci.carrental.exception.CarRentalException;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Validation stage checking with the (remote) country checker service that the car is allowed to
+ * be used in the foreign countries of the booking. The check runs without holding the calling
+ * thread.
+ *
+ */
+public class CountryCheckValidator implements BookingValidator {
+    /** Name of the stage. */
+    public static final String NAME = "countries";
+    /** Asynchronous country checker service. */
+    private final AsyncCountryCheckerService asyncCountryCheckerService;
+
+    /**
+     * Ctor.
+     *
+     * @param asyncCountryCheckerService
+     *            asynchronous country checker service
+     */
+    public CountryCheckValidator(final AsyncCountryCheckerService asyncCountryCheckerService) {
+        super();
+        this.asyncCountryCheckerService = asyncCountryCheckerService;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    public int getCostHint() {
+        return COST_REMOTE_CALL;
+    }
+
+    public CompletableFuture<Void> validate(final BookingValidationContext context) {
+        final BookingRequest request = context.getRequest();
+        return asyncCountryCheckerService
+                .isCountriesAllowedForCar(request.getVin(), request.getForeignCountries())
+                .thenAccept(isCarAllowedToCountries -> validateVerdict(request.getVin(),
+                        request.getForeignCountries(), isCarAllowedToCountries));
+    }
+
+    /**
+     * Validates the result of the country check.
+     *
+     * @param vin
+     *            car VIN value
+     * @param countries
+     *            array of (foreign) country names checked. Can be <code>null</code> value.
+     * @param isCarAllowedToCountries
+     *            result of the country check
+     * @throws CarRentalException
+     *             If the car isn't allowed to go to the countries.
+     */
+    public static void validateVerdict(
+            final String vin,
+            final String[] countries,
+            final boolean isCarAllowedToCountries) throws CarRentalException {
+        if (!isCarAllowedToCountries) {
+            throw new CarRentalException(
+                    CarRentalErrorCodes.ERROR_BOOKING_FORBIDDEN_FOREIGN_COUNTRY_USAGE,
+                    "Car (VIN=" + vin + ") is not allowed to be used in foreign countries: "
+                            + Arrays.toString(countries));
+        }
+    }
+}
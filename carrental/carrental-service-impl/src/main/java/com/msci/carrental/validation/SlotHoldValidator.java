@@ -0,0 +1,67 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.BookingRequest;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+
+/**
+ * Validation stage tentatively reserving the booking period in the schedule of the car before
+ * the remote checks. Of the concurrent bookings of a period only the one holding it goes on to
+ * the country check, the others are rejected without calling the checker. The held period is
+ * released if a later stage rejects the booking.
+ * <p>
+ * A held period looks booked to other requests until the booking is saved or rejected, so
+ * bookings of a period rejected by the country check may fail others that would have been
+ * accepted.
+ *
+ */
+public class SlotHoldValidator extends SynchronousBookingValidator {
+    /** Name of the stage. */
+    public static final String NAME = "hold";
+    /** Booking schedule index. */
+    private final BookingScheduleIndex bookingScheduleIndex;
+
+    /**
+     * Ctor.
+     *
+     * @param bookingScheduleIndex
+     *            booking schedule index
+     */
+    public SlotHoldValidator(final BookingScheduleIndex bookingScheduleIndex) {
+        super();
+        this.bookingScheduleIndex = bookingScheduleIndex;
+    }
+
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Gets the cost hint of the stage. The hold costs as much as the remote calls it saves, so it
+     * runs after every cheaper stage, and before the remote stages added after it.
+     *
+     * @return {@link BookingValidator#COST_REMOTE_CALL}
+     */
+    public int getCostHint() {
+        return COST_REMOTE_CALL;
+    }
+
+    @Override
+    protected void check(final BookingValidationContext context) throws CarRentalException {
+        final BookingRequest request = context.getRequest();
+        if (!bookingScheduleIndex.reserve(request.getVin(), request.getFromDate(),
+                request.getToDate())) {
+            throw CarAvailabilityValidator.createCarIsBookedException(request.getVin(),
+                    request.getFromDate(), request.getToDate());
+        }
+        context.setSlotHeld(true);
+    }
+
+    @Override
+    public void release(final BookingValidationContext context) {
+        final BookingRequest request = context.getRequest();
+        bookingScheduleIndex.release(request.getVin(), request.getFromDate(),
+                request.getToDate());
+        context.setSlotHeld(false);
+    }
+}
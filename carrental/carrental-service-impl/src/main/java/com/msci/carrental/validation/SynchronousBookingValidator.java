@@ -0,0 +1,36 @@
+package com.msci.carrental.validation;
+
+import com.msci.carrental.exception.CarRentalException;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Base class of the {@link BookingValidator} stages deciding on the calling thread. Passed
+ * requests share a completed future, so cheap checks don't allocate.
+ *
+ */
+public abstract class SynchronousBookingValidator implements BookingValidator {
+    /** Result of the passed requests. */
+    private static final CompletableFuture<Void> PASSED = CompletableFuture.completedFuture(null);
+
+    public final CompletableFuture<Void> validate(final BookingValidationContext context) {
+        try {
+            check(context);
+        } catch (final CarRentalException e) {
+            final CompletableFuture<Void> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        return PASSED;
+    }
+
+    /**
+     * Validates a booking request.
+     *
+     * @param context
+     *            validation context of the booking request
+     * @throws CarRentalException
+     *             If the request is invalid.
+     */
+    protected abstract void check(BookingValidationContext context) throws CarRentalException;
+}
@@ -0,0 +1,77 @@
+package com.msci.carrental.version;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Version counters of the data behind the REST resources, used as strong entity tags (ETags) for
+ * conditional requests. A tag can be computed without querying anything, so unchanged resources
+ * can be answered with <code>304 Not Modified</code> right away.
+ * <p>
+ * The availability version changes whenever a booking becomes visible to the availability
+ * queries or the fleet changes, and availability tags also contain the current day, since the
+ * available cars change at midnight without any booking. Every car has its own version, changed
+ * by {@link #carUpdated(String)}. Tags contain the start time of the application, so the
+ * counters restarting from zero don't repeat tags of an earlier run.
+ *
+ */
+@Component
+public class ResourceVersions {
+    /** Identifier of the application run. */
+    private final String runId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    /** Version of the booking and fleet data behind availability queries. */
+    private final AtomicLong availabilityVersion = new AtomicLong();
+    /** Version of the whole fleet, changed when every car may have changed. */
+    private final AtomicLong fleetVersion = new AtomicLong();
+    /** Versions of the cars changed since the fleet version changed, mapped by VIN values. */
+    private final ConcurrentMap<String, Long> carVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the entity tag of the availability resources.
+     *
+     * @return quoted strong entity tag
+     */
+    public String getAvailabilityETag() {
+        return "\"a-" + runId + "-" + LocalDate.now().toEpochDay() + "-"
+                + availabilityVersion.get() + "\"";
+    }
+
+    /**
+     * Gets the entity tag of the details of a car.
+     *
+     * @param vin
+     *            car VIN value
+     * @return quoted strong entity tag
+     */
+    public String getCarETag(final String vin) {
+        return "\"c-" + runId + "-" + fleetVersion.get() + "-" + carVersions.getOrDefault(vin, 0L)
+                + "\"";
+    }
+
+    /** Marks that bookings have been saved (or became visible to the database queries). */
+    public void bookingsSaved() {
+        availabilityVersion.incrementAndGet();
+    }
+
+    /**
+     * Marks that the data of a car has changed, or the car has been added or removed.
+     *
+     * @param vin
+     *            car VIN value
+     */
+    public void carUpdated(final String vin) {
+        carVersions.merge(vin, 1L, Long::sum);
+        availabilityVersion.incrementAndGet();
+    }
+
+    /** Marks that the data of any car may have changed. */
+    public void allCarsUpdated() {
+        fleetVersion.incrementAndGet();
+        carVersions.clear();
+        availabilityVersion.incrementAndGet();
+    }
+}
@@ -0,0 +1,176 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.availability.AvailabilityCalendar;
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.model.CarFilter;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.BookingPeriod;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit test class for {@link AvailabilityCalendar}. Checks the calendar against the overlap
+ * conditions of the <code>BookingRepository.findBookingOfCarInDatePeriod</code> query.
+ *
+ */
+public class AvailabilityCalendarTest {
+    /** Horizon of the calendar, covered by two bitmap words. */
+    private static final int HORIZON_DAYS = 100;
+
+    private final Random random = new SecureRandom();
+    private final AvailabilityCalendar availabilityCalendar = new AvailabilityCalendar();
+    private final CarRepository carRepository = Mockito.mock(CarRepository.class);
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingScheduleIndex bookingScheduleIndex =
+            Mockito.mock(BookingScheduleIndex.class);
+    private final BookingJournal bookingJournal = Mockito.mock(BookingJournal.class);
+    private final List<BookingPeriod> bookings = new ArrayList<>();
+
+    @Before
+    public void init() {
+        Mockito.when(carRepository.findAll(Matchers.any(Sort.class))).thenReturn(Arrays.asList(
+                new Car("vin1", "Audi", "A4", 2016, Fuel.DIESEL, "AAA111", CarCategory.SEDAN),
+                new Car("vin2", "BMW", "X5", 2016, Fuel.DIESEL, "BBB111", CarCategory.SUV),
+                new Car("vin3", "Seat", "Ateca", 2017, Fuel.PETROL, "CCC111", CarCategory.SUV)));
+        Mockito.when(bookingRepository.findAllBookingPeriodsEndingFromDate(Matchers.any()))
+                .thenReturn(bookings);
+        ReflectionTestUtils.setField(availabilityCalendar, "horizonDays", HORIZON_DAYS);
+        ReflectionTestUtils.setField(availabilityCalendar, "carRepository", carRepository);
+        ReflectionTestUtils.setField(availabilityCalendar, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(availabilityCalendar, "bookingScheduleIndex",
+                bookingScheduleIndex);
+        ReflectionTestUtils.setField(availabilityCalendar, "bookingJournal", bookingJournal);
+    }
+
+    @Test
+    public void testEmptyCalendarListsAllCars() {
+        Assert.assertEquals(Arrays.asList("vin1", "vin2", "vin3"), findAvailableVins(0, 10, null));
+        Assert.assertEquals(1, availabilityCalendar.getRebuildCount());
+    }
+
+    @Test
+    public void testFilterCriteriaAreApplied() {
+        final CarFilter filter = new CarFilter();
+        filter.setCategory(CarCategory.SUV);
+        Assert.assertEquals(Arrays.asList("vin2", "vin3"), findAvailableVins(0, 10, filter));
+        filter.setFuelType(Fuel.DIESEL);
+        Assert.assertEquals(Arrays.asList("vin2"), findAvailableVins(0, 10, filter));
+        filter.setMake("Seat");
+        Assert.assertEquals(Collections.emptyList(), findAvailableVins(0, 10, filter));
+        filter.setCategory(CarCategory.CONVERTIBLE);
+        filter.setFuelType(null);
+        filter.setMake(null);
+        Assert.assertEquals(Collections.emptyList(), findAvailableVins(0, 10, filter));
+    }
+
+    @Test
+    public void testSavedBookingIsAddedToCalendar() {
+        Assert.assertEquals(3, findAvailableVins(60, 70, null).size());
+        availabilityCalendar.bookingSaved("vin2", day(62), day(66));
+        Assert.assertEquals(Arrays.asList("vin1", "vin3"), findAvailableVins(60, 70, null));
+        Assert.assertEquals(Arrays.asList("vin1", "vin3"), findAvailableVins(65, 65, null));
+        Assert.assertEquals(3, findAvailableVins(66, 70, null).size());
+        Assert.assertEquals(3, findAvailableVins(50, 61, null).size());
+        Assert.assertEquals(1, availabilityCalendar.getRebuildCount());
+    }
+
+    @Test
+    public void testRebuiltCalendarKeepsUnsavedJournaledBookings() {
+        final Booking booking = new Booking();
+        booking.setBookedCar(new Car("vin2", "BMW", "X5", 2016, Fuel.DIESEL, "BBB111",
+                CarCategory.SUV));
+        booking.setFromDate(day(62));
+        booking.setToDate(day(66));
+        Mockito.when(bookingJournal.getUnsavedBookings()).thenReturn(Arrays.asList(booking));
+        bookings.add(new BookingPeriod("vin1", day(60), day(64)));
+
+        Assert.assertEquals(Arrays.asList("vin3"), findAvailableVins(62, 63, null));
+        Assert.assertEquals(Arrays.asList("vin1", "vin3"), findAvailableVins(64, 65, null));
+        Assert.assertEquals(3, findAvailableVins(66, 70, null).size());
+    }
+
+    @Test
+    public void testPeriodBeyondHorizonIsCheckedInScheduleIndex() {
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.eq("vin1"), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Assert.assertEquals(Arrays.asList("vin1"), findAvailableVins(120, 140, null));
+        Mockito.verify(bookingScheduleIndex, Mockito.times(3)).isCarAvailable(Matchers.anyString(),
+                Matchers.any(), Matchers.any());
+    }
+
+    @Test
+    public void testAvailabilityMatchesRepositoryQuery() {
+        for (int round = 0; round < 50; round++) {
+            bookings.clear();
+            final List<long[]> carBookings = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final long fromDay = random.nextInt(130);
+                final long toDay = fromDay + random.nextInt(5);
+                if (!isBookedInQuery(carBookings, fromDay, toDay)) {
+                    bookings.add(new BookingPeriod("vin1", day(fromDay), day(toDay)));
+                    carBookings.add(new long[] {fromDay, toDay});
+                }
+            }
+            availabilityCalendar.invalidate();
+            for (long fromDay = 0; fromDay < 124; fromDay++) {
+                for (long toDay = fromDay; toDay < fromDay + 4; toDay++) {
+                    Assert.assertEquals(!isBookedInQuery(carBookings, fromDay, toDay),
+                            findAvailableVins(fromDay, toDay, null).contains("vin1"));
+                }
+            }
+        }
+    }
+
+    private List<String> findAvailableVins(
+            final long fromDay,
+            final long toDay,
+            final CarFilter filter) {
+        final List<String> vins = new ArrayList<>();
+        for (final Car car : availabilityCalendar.findAvailableCars(day(fromDay), day(toDay),
+                filter)) {
+            vins.add(car.getVin());
+        }
+        return vins;
+    }
+
+    private LocalDate day(final long daysFromToday) {
+        return LocalDate.now().plusDays(daysFromToday);
+    }
+
+    /**
+     * Evaluates the conditions of the repository query for a list of bookings.
+     */
+    private boolean isBookedInQuery(
+            final List<long[]> carBookings,
+            final long fromDay,
+            final long toDay) {
+        for (final long[] booking : carBookings) {
+            if (booking[0] <= fromDay && booking[1] > fromDay
+                    || booking[0] <= toDay && booking[1] > toDay
+                    || booking[0] >= fromDay && booking[1] <= toDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
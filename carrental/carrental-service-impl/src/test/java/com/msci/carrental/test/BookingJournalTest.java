@@ -0,0 +1,293 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarUsage;
+import com.msci.carrental.version.ResourceVersions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit test class for {@link BookingJournal}.
+ *
+ */
+public class BookingJournalTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CarRepository carRepository = Mockito.mock(CarRepository.class);
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingScheduleIndex bookingScheduleIndex =
+            Mockito.mock(BookingScheduleIndex.class);
+    private final AtomicInteger savedBookingNr = new AtomicInteger();
+    private final List<BookingJournal> journals = new ArrayList<>();
+    private File journalFile;
+
+    @Before
+    public void init() throws Exception {
+        journalFile = new File(temporaryFolder.getRoot(), "booking.journal");
+        Mockito.when(carRepository.findAll(Matchers.<Iterable<String>> any()))
+                .thenReturn(Arrays.asList(createCar("vin1"), createCar("vin2")));
+        Mockito.when(bookingRepository.save(Matchers.<Iterable<Booking>> any()))
+                .thenAnswer(invocation -> {
+                    final List<?> bookings = (List<?>) invocation.getArguments()[0];
+                    savedBookingNr.addAndGet(bookings.size());
+                    return bookings;
+                });
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.anyString(), Matchers.<LocalDate> any(),
+                Matchers.<LocalDate> any())).thenReturn(true);
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        for (final BookingJournal journal : journals) {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    public void testAppendedBookingsAreCommittedAndSaved() throws Exception {
+        final BookingJournal journal = startJournal(1024 * 1024);
+        final List<CompletableFuture<Booking>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(journal.append(createBooking("vin1", i)));
+        }
+        for (final CompletableFuture<Booking> future : futures) {
+            Assert.assertEquals(0, future.get().getBookingId());
+        }
+        Assert.assertEquals(100, journal.getCommittedCount());
+        Assert.assertTrue(journal.getGroupCommitCount() <= 100);
+
+        waitForSavedBookings(journal, 100);
+        Assert.assertEquals(100, savedBookingNr.get());
+        Assert.assertEquals(0, journal.getUnsavedRecordNr());
+        Assert.assertEquals(0, journal.getFlushLagMillis());
+    }
+
+    @Test
+    public void testUnsavedBookingsAreReplayed() throws Exception {
+        Mockito.doThrow(new IllegalStateException("Database is down")).when(bookingRepository)
+                .save(Matchers.<Iterable<Booking>> any());
+        final BookingJournal journal = startJournal(1024 * 1024);
+        journal.append(createBooking("vin1", 1)).get();
+        journal.append(createBooking("vin2", 1)).get();
+        final Booking savedBooking = createBooking("vin1", 5);
+        final List<Booking> savedBookings = Arrays.asList(savedBooking);
+        journal.append(savedBooking).get();
+        Assert.assertEquals(Arrays.asList("vin1", "vin2", "vin1"), journal.getUnsavedBookings()
+                .stream().map(booking -> booking.getBookedCar().getVin())
+                .collect(Collectors.toList()));
+        journal.shutdown();
+        journals.remove(journal);
+        Assert.assertEquals(3, journal.getUnsavedRecordNr());
+
+        Mockito.reset(bookingRepository);
+        init();
+        Mockito.when(bookingRepository.findBookingOfCarInDatePeriod(Matchers.eq("vin1"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any()))
+                .thenReturn(Collections.<Booking> emptyList(), savedBookings);
+        final BookingJournal replayingJournal = startJournal(1024 * 1024);
+        Assert.assertEquals(2, savedBookingNr.get());
+        Mockito.verify(bookingScheduleIndex, Mockito.times(2)).reserve(Matchers.anyString(),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Assert.assertEquals(0, replayingJournal.getUnsavedRecordNr());
+
+        replayingJournal.shutdown();
+        journals.remove(replayingJournal);
+        startJournal(1024 * 1024);
+        Assert.assertEquals(2, savedBookingNr.get());
+    }
+
+    @Test
+    public void testConflictingReplayedBookingIsDropped() throws Exception {
+        Mockito.doThrow(new IllegalStateException("Database is down")).when(bookingRepository)
+                .save(Matchers.<Iterable<Booking>> any());
+        final BookingJournal journal = startJournal(1024 * 1024);
+        journal.append(createBooking("vin1", 1)).get();
+        journal.append(createBooking("vin2", 1)).get();
+        journal.shutdown();
+        journals.remove(journal);
+
+        Mockito.reset(bookingRepository, bookingScheduleIndex);
+        init();
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.eq("vin1"), Matchers.<LocalDate> any(),
+                Matchers.<LocalDate> any())).thenReturn(false);
+        final BookingJournal replayingJournal = startJournal(1024 * 1024);
+        Assert.assertEquals(1, savedBookingNr.get());
+        Assert.assertEquals(0, replayingJournal.getUnsavedRecordNr());
+    }
+
+    @Test
+    public void testFailedCommitFailsBookingsAndLaterAppends() throws Exception {
+        final AtomicBoolean isForceFailing = new AtomicBoolean();
+        final BookingJournal journal = startJournal(new BookingJournal() {
+            @Override
+            protected void force() {
+                if (isForceFailing.get()) {
+                    throw new UncheckedIOException(new IOException("Disk failure"));
+                }
+                super.force();
+            }
+        }, 1024 * 1024);
+        journal.append(createBooking("vin1", 1)).get();
+        isForceFailing.set(true);
+
+        try {
+            journal.append(createBooking("vin1", 3)).get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        try {
+            journal.append(createBooking("vin2", 1));
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        waitForSavedBookings(journal, 1);
+        journal.shutdown();
+        journals.remove(journal);
+
+        startJournal(1024 * 1024);
+        Assert.assertEquals(1, savedBookingNr.get());
+    }
+
+    @Test
+    public void testBatchIsCommittedInOneGroup() throws Exception {
+        final BookingJournal journal = startJournal(1024 * 1024);
+        journal.append(createBooking("vin1", 1)).get();
+        final long groupCommitCount = journal.getGroupCommitCount();
+
+        // The batch is larger than the number of records forcing a group commit
+        final List<Booking> bookings = journal.appendAll(createBookings(40)).get();
+        Assert.assertEquals(40, bookings.size());
+        Assert.assertEquals(groupCommitCount + 1, journal.getGroupCommitCount());
+        waitForSavedBookings(journal, 41);
+    }
+
+    @Test
+    public void testFailedCommitOfSecondGroupFailsWholeBatch() throws Exception {
+        final AtomicInteger forceNr = new AtomicInteger();
+        final BookingJournal journal = startJournal(new BookingJournal() {
+            @Override
+            protected void force() {
+                if (forceNr.incrementAndGet() == 2) {
+                    throw new UncheckedIOException(new IOException("Disk failure"));
+                }
+                super.force();
+            }
+        }, 1024 * 1024);
+        journal.append(createBooking("vin1", 1)).get();
+
+        try {
+            journal.appendAll(createBookings(40)).get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        waitForSavedBookings(journal, 1);
+        Assert.assertEquals(1, journal.getCommittedCount());
+        Assert.assertEquals(0, journal.getUnsavedRecordNr());
+        journal.shutdown();
+        journals.remove(journal);
+
+        // None of the bookings of the failed batch is replayed
+        startJournal(1024 * 1024);
+        Assert.assertEquals(1, savedBookingNr.get());
+    }
+
+    @Test
+    public void testJournalWrapsAround() throws Exception {
+        final BookingJournal journal = startJournal(1000);
+        for (int i = 0; i < 200; i++) {
+            journal.append(createBooking(i % 2 == 0 ? "vin1" : "vin2", i)).get();
+        }
+        waitForSavedBookings(journal, 200);
+        journal.shutdown();
+        journals.remove(journal);
+
+        startJournal(1000);
+        Assert.assertEquals(200, savedBookingNr.get());
+    }
+
+    private BookingJournal startJournal(final int capacityBytes) throws Exception {
+        return startJournal(new BookingJournal(), capacityBytes);
+    }
+
+    private BookingJournal startJournal(final BookingJournal journal, final int capacityBytes)
+            throws Exception {
+        ReflectionTestUtils.setField(journal, "isEnabled", true);
+        ReflectionTestUtils.setField(journal, "path", journalFile.getPath());
+        ReflectionTestUtils.setField(journal, "capacityBytes", capacityBytes);
+        ReflectionTestUtils.setField(journal, "groupCommitMillis", 1L);
+        ReflectionTestUtils.setField(journal, "groupCommitRecords", 16);
+        ReflectionTestUtils.setField(journal, "flushIntervalMillis", 5L);
+        ReflectionTestUtils.setField(journal, "flushBatchSize", 50);
+        ReflectionTestUtils.setField(journal, "carRepository", carRepository);
+        ReflectionTestUtils.setField(journal, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(journal, "bookingScheduleIndex", bookingScheduleIndex);
+        ReflectionTestUtils.setField(journal, "resourceVersions", new ResourceVersions());
+        journal.init();
+        journals.add(journal);
+        return journal;
+    }
+
+    private void waitForSavedBookings(final BookingJournal journal, final int bookingNr)
+            throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (journal.getSavedCount() < bookingNr && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(bookingNr, journal.getSavedCount());
+    }
+
+    private List<Booking> createBookings(final int bookingNr) {
+        final List<Booking> bookings = new ArrayList<>(bookingNr);
+        for (int i = 0; i < bookingNr; i++) {
+            bookings.add(createBooking(i % 2 == 0 ? "vin1" : "vin2", 10 + i));
+        }
+        return bookings;
+    }
+
+    private Booking createBooking(final String vin, final int day) {
+        final Booking booking = new Booking();
+        booking.setBookedCar(createCar(vin));
+        booking.setFromDate(LocalDate.now().plusDays(day));
+        booking.setToDate(LocalDate.now().plusDays(day + 1));
+        booking.setUsage(CarUsage.DOMESTIC);
+        return booking;
+    }
+
+    private Car createCar(final String vin) {
+        final Car car = new Car();
+        car.setVin(vin);
+        return car;
+    }
+}
@@ -0,0 +1,149 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.BookingRequest;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.validation.BookingValidationContext;
+import com.msci.carrental.validation.BookingValidationPipeline;
+import com.msci.carrental.validation.BookingValidator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test class for {@link BookingValidationPipeline}.
+ *
+ */
+public class BookingValidationPipelineTest {
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final BookingValidationContext context = new BookingValidationContext(
+            new BookingRequest("vin1", LocalDate.now(), LocalDate.now(), null));
+
+    @Test
+    public void testStagesRunCheapestFirst() {
+        final BookingValidationPipeline pipeline = createPipeline(
+                new TestValidator("remote", BookingValidator.COST_REMOTE_CALL, null),
+                new TestValidator("query", BookingValidator.COST_DATABASE_QUERY, null),
+                new TestValidator("memory", BookingValidator.COST_IN_MEMORY, null),
+                new TestValidator("otherQuery", BookingValidator.COST_DATABASE_QUERY, null));
+
+        pipeline.validate(context).join();
+        Assert.assertEquals(Arrays.asList("memory", "query", "otherQuery", "remote"), events);
+    }
+
+    @Test
+    public void testRejectionShortCircuitsAndReleasesPassedStages() {
+        final BookingValidationPipeline pipeline = createPipeline(
+                new TestValidator("first", BookingValidator.COST_IN_MEMORY, null),
+                new TestValidator("second", BookingValidator.COST_CACHED_LOOKUP, null),
+                new TestValidator("third", BookingValidator.COST_DATABASE_QUERY, "rejected"),
+                new TestValidator("fourth", BookingValidator.COST_REMOTE_CALL, null));
+
+        final CarRentalException exception = getException(pipeline.validate(context));
+        Assert.assertEquals("rejected", exception.getErrorCode());
+        Assert.assertEquals(
+                Arrays.asList("first", "second", "third", "release second", "release first"),
+                events);
+    }
+
+    @Test
+    public void testAsynchronousStageContinuesChain() {
+        final CompletableFuture<Void> remoteResult = new CompletableFuture<>();
+        final BookingValidationPipeline pipeline = createPipeline(
+                new TestValidator("first", BookingValidator.COST_IN_MEMORY, null),
+                new TestValidator("remote", BookingValidator.COST_REMOTE_CALL, null) {
+                    @Override
+                    public CompletableFuture<Void> validate(
+                            final BookingValidationContext context) {
+                        events.add(getName());
+                        return remoteResult;
+                    }
+                },
+                new TestValidator("last", BookingValidator.COST_REMOTE_CALL + 1, null));
+
+        final CompletableFuture<Void> result = pipeline.validate(context);
+        Assert.assertFalse(result.isDone());
+        Assert.assertEquals(Arrays.asList("first", "remote"), events);
+        remoteResult.complete(null);
+        result.join();
+        Assert.assertEquals(Arrays.asList("first", "remote", "last"), events);
+    }
+
+    @Test
+    public void testAsynchronousRejectionReleasesPassedStages() {
+        final CompletableFuture<Void> remoteResult = new CompletableFuture<>();
+        final BookingValidationPipeline pipeline = createPipeline(
+                new TestValidator("first", BookingValidator.COST_IN_MEMORY, null),
+                new TestValidator("remote", BookingValidator.COST_REMOTE_CALL, null) {
+                    @Override
+                    public CompletableFuture<Void> validate(
+                            final BookingValidationContext context) {
+                        events.add(getName());
+                        return remoteResult;
+                    }
+                });
+
+        final CompletableFuture<Void> result = pipeline.validate(context);
+        remoteResult.completeExceptionally(new CarRentalException("forbidden", "Forbidden"));
+        Assert.assertEquals("forbidden", getException(result).getErrorCode());
+        Assert.assertEquals(Arrays.asList("first", "remote", "release first"), events);
+    }
+
+    private BookingValidationPipeline createPipeline(final BookingValidator... validators) {
+        return new BookingValidationPipeline(Arrays.asList(validators), new SimpleMeterRegistry());
+    }
+
+    private CarRentalException getException(final CompletableFuture<Void> result) {
+        try {
+            result.join();
+            Assert.fail();
+            return null;
+        } catch (final CompletionException e) {
+            return (CarRentalException) e.getCause();
+        }
+    }
+
+    private class TestValidator implements BookingValidator {
+        private final String name;
+        private final int costHint;
+        private final String errorCode;
+
+        TestValidator(final String name, final int costHint, final String errorCode) {
+            this.name = name;
+            this.costHint = costHint;
+            this.errorCode = errorCode;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCostHint() {
+            return costHint;
+        }
+
+        public CompletableFuture<Void> validate(final BookingValidationContext context) {
+            events.add(name);
+            final CompletableFuture<Void> result = new CompletableFuture<>();
+            if (errorCode == null) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new CarRentalException(errorCode, name));
+            }
+            return result;
+        }
+
+        @Override
+        public void release(final BookingValidationContext context) {
+            events.add("release " + name);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.CountryCheckerService;
+import com.msci.carrental.country.CachingCountryCheckerService;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Unit test class for {@link CachingCountryCheckerService}.
+ *
+ */
+public class CachingCountryCheckerServiceTest {
+    private CountryCheckerService countryCheckerService;
+
+    @Before
+    public void init() {
+        countryCheckerService = Mockito.mock(CountryCheckerService.class);
+        Mockito.when(countryCheckerService.isCountriesAllowedForCar(Matchers.anyString(),
+                Matchers.<String[]> any())).thenReturn(true);
+    }
+
+    @Test
+    public void testSameCountrySetInAnyOrderIsCached() {
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService(countryCheckerService, 10, 1, TimeUnit.HOURS);
+        Assert.assertTrue(cache.isCountriesAllowedForCar("vin1", new String[] {"AT", "DE"}));
+        Assert.assertTrue(
+                cache.isCountriesAllowedForCar("vin1", new String[] {"DE", "AT", "DE"}));
+        Mockito.verify(countryCheckerService).isCountriesAllowedForCar("vin1",
+                new String[] {"AT", "DE"});
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testDifferentCarsAreCachedSeparately() {
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService(countryCheckerService, 10, 1, TimeUnit.HOURS);
+        cache.isCountriesAllowedForCar("vin1", new String[] {"AT"});
+        cache.isCountriesAllowedForCar("vin2", new String[] {"AT"});
+        cache.isCountriesAllowedForCar("vin2", null);
+        Assert.assertEquals(3, cache.getMissCount());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService(countryCheckerService, 2, 1, TimeUnit.HOURS);
+        cache.isCountriesAllowedForCar("vin1", null);
+        cache.isCountriesAllowedForCar("vin2", null);
+        cache.isCountriesAllowedForCar("vin1", null);
+        cache.isCountriesAllowedForCar("vin3", null);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        cache.isCountriesAllowedForCar("vin1", null);
+        Assert.assertEquals(2, cache.getHitCount());
+        cache.isCountriesAllowedForCar("vin2", null);
+        Assert.assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void testExpiredResultIsReloaded() throws Exception {
+        final CachingCountryCheckerService cache = new CachingCountryCheckerService(
+                countryCheckerService, 10, 10, TimeUnit.MILLISECONDS);
+        cache.isCountriesAllowedForCar("vin1", null);
+        Thread.sleep(20);
+        cache.isCountriesAllowedForCar("vin1", null);
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testFailedCheckIsNotCached() {
+        Mockito.when(countryCheckerService.isCountriesAllowedForCar("vin1", null))
+                .thenThrow(new IllegalStateException()).thenReturn(false);
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService(countryCheckerService, 10, 1, TimeUnit.HOURS);
+        try {
+            cache.isCountriesAllowedForCar("vin1", null);
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals(0, cache.size());
+        }
+        Assert.assertFalse(cache.isCountriesAllowedForCar("vin1", null));
+    }
+
+    @Test
+    public void testWaitingChecksAreReleasedWhenCheckerThrowsError() throws Exception {
+        final CountDownLatch checkStartedLatch = new CountDownLatch(1);
+        final CountDownLatch checkReleaseLatch = new CountDownLatch(1);
+        final AtomicInteger checkNr = new AtomicInteger();
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService((vin, countries) -> {
+                    if (checkNr.incrementAndGet() > 1) {
+                        return true;
+                    }
+                    checkStartedLatch.countDown();
+                    try {
+                        checkReleaseLatch.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new NoClassDefFoundError("CountryCheckerClient");
+                }, 10, 1, TimeUnit.HOURS);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<Boolean> firstCheck = executor
+                    .submit(() -> cache.isCountriesAllowedForCar("vin1", new String[] {"AT"}));
+            Assert.assertTrue(checkStartedLatch.await(5, TimeUnit.SECONDS));
+            final Future<Boolean> secondCheck = executor
+                    .submit(() -> cache.isCountriesAllowedForCar("vin1", new String[] {"AT"}));
+            while (cache.getHitCount() == 0) {
+                Thread.sleep(1);
+            }
+            checkReleaseLatch.countDown();
+            for (final Future<Boolean> check : Arrays.asList(firstCheck, secondCheck)) {
+                try {
+                    check.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (final ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof NoClassDefFoundError);
+                }
+            }
+            Assert.assertEquals(0, cache.size());
+            Assert.assertTrue(cache.isCountriesAllowedForCar("vin1", new String[] {"AT"}));
+            Assert.assertEquals(2, checkNr.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentChecksAreCoalesced() throws Exception {
+        final CountDownLatch checkStartedLatch = new CountDownLatch(1);
+        final CountDownLatch checkReleaseLatch = new CountDownLatch(1);
+        final AtomicInteger checkNr = new AtomicInteger();
+        final CachingCountryCheckerService cache =
+                new CachingCountryCheckerService((vin, countries) -> {
+                    checkNr.incrementAndGet();
+                    checkStartedLatch.countDown();
+                    try {
+                        checkReleaseLatch.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }, 10, 1, TimeUnit.HOURS);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<Boolean> firstCheck = executor
+                    .submit(() -> cache.isCountriesAllowedForCar("vin1", new String[] {"AT"}));
+            Assert.assertTrue(checkStartedLatch.await(5, TimeUnit.SECONDS));
+            final Future<Boolean> secondCheck = executor
+                    .submit(() -> cache.isCountriesAllowedForCar("vin1", new String[] {"AT"}));
+            while (cache.getHitCount() == 0) {
+                Thread.sleep(1);
+            }
+            checkReleaseLatch.countDown();
+            Assert.assertTrue(firstCheck.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(secondCheck.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1, checkNr.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.schedule.CarBookingSchedule;
+import com.msci.carrental.schedule.EpochDayIntervals;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test class for {@link CarBookingSchedule}. Checks the schedule against the overlap
+ * conditions of the <code>BookingRepository.findBookingOfCarInDatePeriod</code> query.
+ *
+ */
+public class CarBookingScheduleTest {
+    private final Random random = new SecureRandom();
+
+    @Test
+    public void testEmptyScheduleIsAvailable() {
+        final CarBookingSchedule schedule = new CarBookingSchedule();
+        Assert.assertTrue(schedule.isAvailable(10, 20));
+        Assert.assertEquals(0, schedule.size());
+    }
+
+    @Test
+    public void testBookingEndDayIsAvailableForNewBookingStart() {
+        final CarBookingSchedule schedule = new CarBookingSchedule();
+        schedule.add(10, 15);
+        Assert.assertTrue(schedule.isAvailable(15, 20));
+        Assert.assertFalse(schedule.isAvailable(5, 10));
+        Assert.assertFalse(schedule.isAvailable(11, 12));
+        Assert.assertFalse(schedule.isAvailable(14, 20));
+    }
+
+    @Test
+    public void testSingleDayBookingBlocksSameStartDay() {
+        final CarBookingSchedule schedule = new CarBookingSchedule();
+        schedule.add(10, 10);
+        Assert.assertFalse(schedule.isAvailable(10, 10));
+        Assert.assertFalse(schedule.isAvailable(10, 12));
+        Assert.assertFalse(schedule.isAvailable(8, 10));
+        Assert.assertTrue(schedule.isAvailable(8, 9));
+        Assert.assertTrue(schedule.isAvailable(11, 12));
+    }
+
+    @Test
+    public void testConflictingPeriodsAreMerged() {
+        final CarBookingSchedule schedule = new CarBookingSchedule();
+        schedule.add(10, 15);
+        schedule.add(20, 25);
+        schedule.add(14, 21);
+        Assert.assertEquals(1, schedule.size());
+        Assert.assertArrayEquals(new long[] {EpochDayIntervals.pack(10, 25)},
+                schedule.getPeriodsEndingFrom(0));
+    }
+
+    @Test
+    public void testReleasedPeriodIsAvailable() {
+        final CarBookingSchedule schedule = new CarBookingSchedule();
+        Assert.assertTrue(schedule.tryReserve(20, 25));
+        Assert.assertTrue(schedule.tryReserve(10, 15));
+        Assert.assertFalse(schedule.tryReserve(12, 13));
+        Assert.assertFalse(schedule.release(10, 16));
+        Assert.assertTrue(schedule.release(10, 15));
+        Assert.assertFalse(schedule.release(10, 15));
+        Assert.assertTrue(schedule.isAvailable(12, 13));
+        Assert.assertArrayEquals(new long[] {EpochDayIntervals.pack(20, 25)},
+                schedule.getPeriodsEndingFrom(25));
+        Assert.assertArrayEquals(new long[0], schedule.getPeriodsEndingFrom(26));
+    }
+
+    @Test
+    public void testPackedPeriods() {
+        final long[][] periods = {{0, 0}, {17000, 17010}, {-5, 3}, {-10, -2},
+            {Integer.MIN_VALUE, Integer.MAX_VALUE}};
+        for (final long[] period : periods) {
+            final long packed = EpochDayIntervals.pack(period[0], period[1]);
+            Assert.assertEquals(period[0], EpochDayIntervals.fromDay(packed));
+            Assert.assertEquals(period[1], EpochDayIntervals.toDay(packed));
+        }
+        Assert.assertEquals("[2030-01-01/2030-01-05]", EpochDayIntervals.toString(new long[] {
+            EpochDayIntervals.pack(21915, 21919)}));
+    }
+
+    @Test
+    public void testAvailabilityMatchesRepositoryQuery() {
+        for (int round = 0; round < 200; round++) {
+            final CarBookingSchedule schedule = new CarBookingSchedule();
+            final List<long[]> bookings = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final long fromDay = random.nextInt(60);
+                final long toDay = fromDay + random.nextInt(5);
+                if (!isBookedInQuery(bookings, fromDay, toDay)) {
+                    schedule.add(fromDay, toDay);
+                    bookings.add(new long[] {fromDay, toDay});
+                }
+            }
+            for (long fromDay = 0; fromDay < 70; fromDay++) {
+                for (long toDay = fromDay; toDay < fromDay + 6; toDay++) {
+                    Assert.assertEquals(!isBookedInQuery(bookings, fromDay, toDay),
+                            schedule.isAvailable(fromDay, toDay));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the conditions of the repository query for a list of bookings.
+     */
+    private boolean isBookedInQuery(
+            final List<long[]> bookings,
+            final long fromDay,
+            final long toDay) {
+        for (final long[] booking : bookings) {
+            if (booking[0] <= fromDay && booking[1] > fromDay
+                    || booking[0] <= toDay && booking[1] > toDay
+                    || booking[0] >= fromDay && booking[1] <= toDay) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
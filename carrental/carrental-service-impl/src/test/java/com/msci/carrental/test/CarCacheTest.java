@@ -0,0 +1,108 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.car.CarCache;
+import com.msci.carrental.model.Car;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Unit test class for {@link CarCache}.
+ *
+ */
+public class CarCacheTest {
+    private Function<String, Car> loader;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void init() {
+        loader = Mockito.mock(Function.class);
+        Mockito.when(loader.apply(Matchers.anyString())).thenAnswer(invocation -> {
+            final Car car = new Car();
+            car.setVin((String) invocation.getArguments()[0]);
+            return car;
+        });
+    }
+
+    @Test
+    public void testCarIsLoadedOnce() {
+        final CarCache cache = new CarCache(10, 1, TimeUnit.HOURS);
+        final Car car = cache.get("vin1", loader);
+        Assert.assertSame(car, cache.get("vin1", loader));
+        Mockito.verify(loader).apply("vin1");
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testMissingCarIsNotCached() {
+        final CarCache cache = new CarCache(10, 1, TimeUnit.HOURS);
+        Assert.assertNull(cache.get("vin1", vin -> null));
+        Assert.assertEquals("vin1", cache.get("vin1", loader).getVin());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedCarIsEvicted() {
+        final CarCache cache = new CarCache(2, 1, TimeUnit.HOURS);
+        cache.get("vin1", loader);
+        cache.get("vin2", loader);
+        cache.get("vin1", loader);
+        cache.get("vin3", loader);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        cache.get("vin1", loader);
+        cache.get("vin2", loader);
+        Mockito.verify(loader, Mockito.times(2)).apply("vin2");
+        Mockito.verify(loader).apply("vin1");
+    }
+
+    @Test
+    public void testExpiredCarIsReloaded() throws Exception {
+        final CarCache cache = new CarCache(10, 1, TimeUnit.MILLISECONDS);
+        cache.get("vin1", loader);
+        Thread.sleep(5);
+        cache.get("vin1", loader);
+        Mockito.verify(loader, Mockito.times(2)).apply("vin1");
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testInvalidatedCarIsReloaded() {
+        final CarCache cache = new CarCache(10, 1, TimeUnit.HOURS);
+        cache.get("vin1", loader);
+        cache.get("vin2", loader);
+        cache.invalidate("vin1");
+        Assert.assertEquals(1, cache.size());
+        cache.get("vin1", loader);
+        Mockito.verify(loader, Mockito.times(2)).apply("vin1");
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCarLoadedDuringInvalidationIsNotCached() {
+        final CarCache cache = new CarCache(10, 1, TimeUnit.HOURS);
+        cache.get("vin1", vin -> {
+            cache.invalidate(vin);
+            return loader.apply(vin);
+        });
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testZeroSizeDisablesCaching() {
+        final CarCache cache = new CarCache(0, 1, TimeUnit.HOURS);
+        cache.get("vin1", loader);
+        cache.get("vin1", loader);
+        Mockito.verify(loader, Mockito.times(2)).apply("vin1");
+        Assert.assertEquals(0, cache.size());
+    }
+}
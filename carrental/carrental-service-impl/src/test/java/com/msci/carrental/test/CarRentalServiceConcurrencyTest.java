@@ -0,0 +1,173 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.CarRentalService;
+import com.msci.carrental.CarRentalServiceImpl;
+import com.msci.carrental.AsyncCountryCheckerService;
+import com.msci.carrental.availability.AvailabilityCalendar;
+import com.msci.carrental.exception.CarRentalErrorCodes;
+import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
+import com.msci.carrental.repository.BookingRepository;
+import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.version.ResourceVersions;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Multi-threaded stress test of
+ * {@link CarRentalService#bookCar(String, LocalDate, LocalDate, String[])}. Fires thousands of
+ * overlapping booking requests at a few cars and checks that no car gets double booked.
+ *
+ */
+public class CarRentalServiceConcurrencyTest {
+    private static final String[] VINS = {"opl123456", "vw123456", "mzd123456"};
+    private static final int THREAD_NR = 16;
+    private static final int REQUEST_NR = 5000;
+    private static final int BOOKING_HORIZON_DAYS = 60;
+
+    private final Logger logger = LoggerFactory.getLogger(CarRentalServiceConcurrencyTest.class);
+    private final CarRentalService carRentalService = new CarRentalServiceImpl();
+    private final List<Booking> savedBookings = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void init() throws Exception {
+        final CarRepository carRepository = Mockito.mock(CarRepository.class);
+        for (final String vin : VINS) {
+            final Car car = new Car();
+            car.setVin(vin);
+            Mockito.when(carRepository.findOne(vin)).thenReturn(car);
+        }
+        final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+        Mockito.when(bookingRepository.save(Matchers.any(Booking.class))).thenAnswer(invocation -> {
+            final Booking booking = (Booking) invocation.getArguments()[0];
+            savedBookings.add(booking);
+            return booking;
+        });
+        // Widen the window between validation and reservation
+        final AsyncCountryCheckerService asyncCountryCheckerService = (vin, countries) -> {
+            Thread.yield();
+            return CompletableFuture.completedFuture(true);
+        };
+        final BookingScheduleIndex bookingScheduleIndex = new BookingScheduleIndex();
+        ReflectionTestUtils.setField(bookingScheduleIndex, "bookingRepository", bookingRepository);
+
+        ReflectionTestUtils.setField(carRentalService, "carRepository", carRepository);
+        ReflectionTestUtils.setField(carRentalService, "bookingRepository", bookingRepository);
+        ReflectionTestUtils.setField(carRentalService, "asyncCountryCheckerService",
+                asyncCountryCheckerService);
+        ReflectionTestUtils.setField(carRentalService, "bookingScheduleIndex",
+                bookingScheduleIndex);
+        ReflectionTestUtils.setField(carRentalService, "availabilityCalendar",
+                new AvailabilityCalendar());
+        ReflectionTestUtils.setField(carRentalService, "bookingJournal", new BookingJournal());
+        ReflectionTestUtils.setField(carRentalService, "resourceVersions", new ResourceVersions());
+        ((CarRentalServiceImpl) carRentalService).init();
+    }
+
+    @Test
+    public void testConcurrentOverlappingBookingsAreNotDoubleBooked() throws Exception {
+        runConcurrentOverlappingBookings();
+    }
+
+    @Test
+    public void testConcurrentOverlappingBookingsWithHeldSlotsAreNotDoubleBooked()
+            throws Exception {
+        ReflectionTestUtils.setField(carRentalService, "isSlotHeldDuringCountryCheck", true);
+        ((CarRentalServiceImpl) carRentalService).init();
+        runConcurrentOverlappingBookings();
+    }
+
+    private void runConcurrentOverlappingBookings() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_NR);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicInteger rejectedNr = new AtomicInteger();
+        final LocalDate tomorrow = LocalDate.now().plusDays(1);
+        final List<Future<?>> futures = new ArrayList<>(REQUEST_NR);
+        for (int i = 0; i < REQUEST_NR; i++) {
+            futures.add(executor.submit(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final LocalDate fromDate =
+                        tomorrow.plusDays(random.nextInt(BOOKING_HORIZON_DAYS));
+                final LocalDate toDate = fromDate.plusDays(random.nextInt(5));
+                startLatch.await();
+                try {
+                    carRentalService.bookCar(VINS[random.nextInt(VINS.length)], fromDate, toDate,
+                            null);
+                } catch (final CarRentalException e) {
+                    Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
+                            e.getErrorCode());
+                    rejectedNr.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        final long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        logger.info("Processed {} booking requests ({} saved, {} rejected) on {} threads in {} ms"
+                + " ({} requests/s)", REQUEST_NR, savedBookings.size(), rejectedNr.get(),
+                THREAD_NR, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                REQUEST_NR * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        Assert.assertEquals(REQUEST_NR, savedBookings.size() + rejectedNr.get());
+        Assert.assertFalse(savedBookings.isEmpty());
+        assertNoDoubleBookings();
+    }
+
+    private void assertNoDoubleBookings() {
+        for (int i = 0; i < savedBookings.size(); i++) {
+            final Booking booking = savedBookings.get(i);
+            for (int j = 0; j < i; j++) {
+                final Booking otherBooking = savedBookings.get(j);
+                // Handover days conflict one way only, so either booking order must be valid
+                if (booking.getBookedCar().getVin().equals(otherBooking.getBookedCar().getVin())) {
+                    Assert.assertFalse("Double booking: " + booking + " and " + otherBooking,
+                            isConflicting(booking, otherBooking)
+                                    && isConflicting(otherBooking, booking));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the conditions of the repository overlap query for a booked and a new booking.
+     */
+    private boolean isConflicting(final Booking bookedBooking, final Booking newBooking) {
+        final long bookedFromDay = bookedBooking.getFromDate().toEpochDay();
+        final long bookedToDay = bookedBooking.getToDate().toEpochDay();
+        final long fromDay = newBooking.getFromDate().toEpochDay();
+        final long toDay = newBooking.getToDate().toEpochDay();
+        return bookedFromDay <= fromDay && bookedToDay > fromDay
+                || bookedFromDay <= toDay && bookedToDay > toDay
+                || bookedFromDay >= fromDay && bookedToDay <= toDay;
+    }
+}
@@ -1,19 +1,39 @@
 package com.msci.carrental.test;
 
+import com.msci.carrental.AsyncCountryCheckerService;
+import com.msci.carrental.BookingOutcome;
+import com.msci.carrental.BookingRequest;
 import com.msci.carrental.CarRentalService;
 import com.msci.carrental.CarRentalServiceImpl;
+import com.msci.carrental.availability.AvailabilityCalendar;
+import com.msci.carrental.availability.AvailableCarsSnapshot;
 import com.msci.carrental.exception.CarRentalErrorCodes;
 import com.msci.carrental.exception.CarRentalException;
+import com.msci.carrental.journal.BookingJournal;
+import com.msci.carrental.metrics.CarRentalMetrics;
+import com.msci.carrental.model.Booking;
+import com.msci.carrental.model.Car;
 import com.msci.carrental.repository.BookingRepository;
 import com.msci.carrental.repository.CarRepository;
+import com.msci.carrental.repository.projection.AvailableCar;
+import com.msci.carrental.schedule.BookingScheduleIndex;
+import com.msci.carrental.type.CarCategory;
+import com.msci.carrental.type.Fuel;
+import com.msci.carrental.validation.BookingValidationContext;
+import com.msci.carrental.validation.BookingValidator;
+import com.msci.carrental.version.ResourceVersions;
 
 import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Date;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.time.DateUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,6 +42,7 @@ import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * Unit test class for {@link CarRentalService}.
@@ -31,33 +52,82 @@ public class CarRentalServiceTest {
     @InjectMocks
     private final CarRentalService carRentalService = new CarRentalServiceImpl();
     @Mock
+    private AsyncCountryCheckerService asyncCountryCheckerService;
+    @Mock
     private CarRepository carRepository;
     @Mock
     private BookingRepository bookingRepository;
+    @Mock
+    private BookingScheduleIndex bookingScheduleIndex;
+    @Mock
+    private AvailabilityCalendar availabilityCalendar;
+    @Mock
+    private BookingJournal bookingJournal;
+    @Mock
+    private ResourceVersions resourceVersions;
 
     private final Random random = new SecureRandom();
 
     @Before
     public void init() throws Exception {
         MockitoAnnotations.initMocks(this);
+        ((CarRentalServiceImpl) carRentalService).init();
+        Mockito.when(asyncCountryCheckerService.isCountriesAllowedForCar(Matchers.anyString(),
+                Matchers.<String[]> any())).thenReturn(CompletableFuture.completedFuture(true));
     }
 
     @Test
-    public void testFindAvailableCarsRepositoryInvocationsWithNoBookings() {
-        Mockito.when(bookingRepository.findAllBookedCarsAtDate(Matchers.<Date> any())).thenReturn(
-                Collections.EMPTY_LIST);
+    public void testFindAvailableCarsRepositoryInvocations() {
+        carRentalService.findAvailableCars();
+        Mockito.verify(carRepository).findAllAvailableCarsAtDate(Matchers.<LocalDate> any());
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testFindAvailableCarsServedFromSnapshot() {
+        Mockito.when(carRepository.findAllAvailableCarsAtDate(Matchers.<LocalDate> any()))
+                .thenReturn(Arrays.asList(createAvailableCar("vin1")));
 
         carRentalService.findAvailableCars();
-        Mockito.verify(carRepository).findAll();
+        final List<Car> availableCars = carRentalService.findAvailableCars();
+        Assert.assertEquals(1, availableCars.size());
+        Mockito.verify(carRepository).findAllAvailableCarsAtDate(Matchers.<LocalDate> any());
     }
 
     @Test
-    public void testFindAvailableCarsRepositoryInvocationsWithBookings() {
-        Mockito.when(bookingRepository.findAllBookedCarsAtDate(Matchers.<Date> any())).thenReturn(
-                Arrays.asList(Long.toString(random.nextLong())));
+    public void testFindAvailableCarsSnapshotUpdatedByBookingCoveringToday() {
+        Mockito.when(carRepository.findAllAvailableCarsAtDate(Matchers.<LocalDate> any()))
+                .thenReturn(Arrays.asList(createAvailableCar("vin1"), createAvailableCar("vin2")));
+        final AvailableCarsSnapshot snapshot =
+                ((CarRentalServiceImpl) carRentalService).getAvailableCarsSnapshot();
 
         carRentalService.findAvailableCars();
-        Mockito.verify(carRepository).findAllNonListedCars(Matchers.anyList());
+        snapshot.bookingSaved("vin1", LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(2));
+        Assert.assertEquals(2, carRentalService.findAvailableCars().size());
+        snapshot.bookingSaved("vin1", LocalDate.now(), LocalDate.now().plusDays(2));
+        final List<Car> availableCars = carRentalService.findAvailableCars();
+        Assert.assertEquals(1, availableCars.size());
+        Assert.assertEquals("vin2", availableCars.get(0).getVin());
+        Assert.assertEquals(1, snapshot.getRebuildCount());
+    }
+
+    @Test
+    public void testRebuiltSnapshotKeepsUnsavedJournaledBookings() {
+        Mockito.when(carRepository.findAllAvailableCarsAtDate(Matchers.<LocalDate> any()))
+                .thenReturn(Arrays.asList(createAvailableCar("vin1"), createAvailableCar("vin2"),
+                        createAvailableCar("vin3")));
+        Mockito.when(bookingJournal.getUnsavedBookings()).thenReturn(Arrays.asList(
+                createBooking("vin1", LocalDate.now().minusDays(1), LocalDate.now()),
+                createBooking("vin2", LocalDate.now().plusDays(1), LocalDate.now().plusDays(2))));
+        final AvailableCarsSnapshot snapshot =
+                ((CarRentalServiceImpl) carRentalService).getAvailableCarsSnapshot();
+
+        // The rebuild reads the database during the flush lag of the journaled bookings
+        snapshot.invalidate();
+        final List<Car> availableCars = carRentalService.findAvailableCars();
+        Assert.assertEquals(Arrays.asList("vin2", "vin3"),
+                availableCars.stream().map(Car::getVin).collect(Collectors.toList()));
     }
 
     @Test
@@ -67,10 +137,60 @@ public class CarRentalServiceTest {
         Mockito.verify(carRepository).findOne(vin);
     }
 
+    @Test
+    public void testGetCarDetailsServedFromCache() {
+        enableCarCache();
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+
+        Assert.assertEquals(vin, carRentalService.getCarDetails(vin).getVin());
+        Assert.assertEquals(vin, carRentalService.getCarDetails(vin).getVin());
+        Mockito.verify(carRepository).findOne(vin);
+        ((CarRentalServiceImpl) carRentalService).getCarCache().invalidate(vin);
+        carRentalService.getCarDetails(vin);
+        Mockito.verify(carRepository, Mockito.times(2)).findOne(vin);
+    }
+
+    @Test
+    public void testAllCarsUpdatedDropsCachedCarData() {
+        enableCarCache();
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(carRepository.findAllAvailableCarsAtDate(Matchers.<LocalDate> any()))
+                .thenReturn(Arrays.asList(createAvailableCar(vin)));
+        carRentalService.getCarDetails(vin);
+        carRentalService.findAvailableCars();
+
+        ((CarRentalServiceImpl) carRentalService).allCarsUpdated();
+        carRentalService.getCarDetails(vin);
+        carRentalService.findAvailableCars();
+        Mockito.verify(carRepository, Mockito.times(2)).findOne(vin);
+        Mockito.verify(carRepository, Mockito.times(2))
+                .findAllAvailableCarsAtDate(Matchers.<LocalDate> any());
+        Mockito.verify(availabilityCalendar).invalidate();
+        Mockito.verify(resourceVersions).allCarsUpdated();
+    }
+
+    @Test
+    public void testBookCarLooksUpCarOnce() throws Exception {
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingRepository.save(Matchers.any(Booking.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(5), null);
+        Mockito.verify(carRepository).findOne(vin);
+    }
+
     @Test
     public void testBookCarWithVinNull() {
         try {
-            carRentalService.bookCar(null, new Date(), DateUtils.addDays(new Date(), 5), null);
+            carRentalService.bookCar(null, LocalDate.now(), LocalDate.now().plusDays(5), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -81,7 +201,7 @@ public class CarRentalServiceTest {
     @Test
     public void testBookCarWithVinEmpty() {
         try {
-            carRentalService.bookCar("", new Date(), DateUtils.addDays(new Date(), 5), null);
+            carRentalService.bookCar("", LocalDate.now(), LocalDate.now().plusDays(5), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -93,7 +213,8 @@ public class CarRentalServiceTest {
     public void testBookCarWithNonExistingVin() {
         final String vin = Long.toString(random.nextLong());
         try {
-            carRentalService.bookCar(vin, new Date(), DateUtils.addDays(new Date(), 5), null);
+            carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(5), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -103,11 +224,215 @@ public class CarRentalServiceTest {
         Mockito.verify(carRepository).findOne(vin);
     }
 
+    @Test
+    public void testBookCarOfNonExistingVinSkipsCountryCheck() {
+        final String vin = Long.toString(random.nextLong());
+        try {
+            carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(5), new String[] {"country"});
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
+                    e.getErrorCode());
+        }
+        Mockito.verifyZeroInteractions(asyncCountryCheckerService, bookingScheduleIndex);
+    }
+
+    @Test
+    public void testBookCarOfBookedCarSkipsCountryCheck() {
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        try {
+            carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(5), new String[] {"country"});
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED, e.getErrorCode());
+        }
+        Mockito.verifyZeroInteractions(asyncCountryCheckerService);
+    }
+
+    @Test
+    public void testBookCarWithHeldSlotReservesOnce() {
+        enableSlotHold();
+        final String vin = Long.toString(random.nextLong());
+        final LocalDate fromDate = LocalDate.now().plusDays(1);
+        final LocalDate toDate = LocalDate.now().plusDays(5);
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(vin, fromDate, toDate)).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(vin, fromDate, toDate)).thenReturn(true);
+        Mockito.when(bookingRepository.save(Matchers.any(Booking.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        carRentalService.bookCar(vin, fromDate, toDate, null);
+        Mockito.verify(bookingScheduleIndex).reserve(vin, fromDate, toDate);
+        Mockito.verify(bookingScheduleIndex, Mockito.never()).release(vin, fromDate, toDate);
+    }
+
+    @Test
+    public void testBookCarWithHeldSlotReleasesItOnForbiddenCountry() {
+        enableSlotHold();
+        final String vin = Long.toString(random.nextLong());
+        final LocalDate fromDate = LocalDate.now().plusDays(1);
+        final LocalDate toDate = LocalDate.now().plusDays(5);
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(vin, fromDate, toDate)).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(vin, fromDate, toDate)).thenReturn(true);
+        Mockito.when(asyncCountryCheckerService.isCountriesAllowedForCar(Matchers.anyString(),
+                Matchers.<String[]> any())).thenReturn(CompletableFuture.completedFuture(false));
+
+        try {
+            carRentalService.bookCar(vin, fromDate, toDate, new String[] {"country"});
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_FORBIDDEN_FOREIGN_COUNTRY_USAGE,
+                    e.getErrorCode());
+        }
+        Mockito.verify(bookingScheduleIndex).release(vin, fromDate, toDate);
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testBookCarWithHeldSlotTakenSkipsCountryCheck() {
+        enableSlotHold();
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+
+        try {
+            carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(5), new String[] {"country"});
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED, e.getErrorCode());
+        }
+        Mockito.verifyZeroInteractions(asyncCountryCheckerService);
+        Mockito.verify(bookingScheduleIndex, Mockito.never()).release(Matchers.anyString(),
+                Matchers.any(), Matchers.any());
+    }
+
+    @Test
+    public void testBookCarReleasesReservationOnFailedJournalCommit() {
+        final String vin = Long.toString(random.nextLong());
+        final LocalDate fromDate = LocalDate.now().plusDays(1);
+        final LocalDate toDate = LocalDate.now().plusDays(5);
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(vin, fromDate, toDate)).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(vin, fromDate, toDate)).thenReturn(true);
+        final CompletableFuture<Booking> failedCommit = new CompletableFuture<>();
+        failedCommit.completeExceptionally(new IllegalStateException("Disk failure"));
+        Mockito.when(bookingJournal.isEnabled()).thenReturn(true);
+        Mockito.when(bookingJournal.append(Matchers.any(Booking.class))).thenReturn(failedCommit);
+
+        try {
+            carRentalService.bookCar(vin, fromDate, toDate, null);
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals("Disk failure", e.getMessage());
+        }
+        Mockito.verify(bookingScheduleIndex).release(vin, fromDate, toDate);
+    }
+
+    @Test
+    public void testBookCarMetricsTaggedByErrorCode() {
+        final MeterRegistry meterRegistry = enableMetrics();
+        final String vin = Long.toString(random.nextLong());
+        try {
+            carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(5), null);
+            Assert.fail();
+        } catch (final CarRentalException e) {
+            Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
+                    e.getErrorCode());
+        }
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.SERVICE_CALLS)
+                .tags(CarRentalMetrics.OPERATION_TAG, "bookCar", CarRentalMetrics.RESULT_TAG,
+                        CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR)
+                .timer().count());
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.VALIDATION_STEPS)
+                .tags(CarRentalMetrics.STEP_TAG, "details", CarRentalMetrics.RESULT_TAG,
+                        CarRentalMetrics.SUCCESS)
+                .timer().count());
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.VALIDATION_STEPS)
+                .tags(CarRentalMetrics.STEP_TAG, "car", CarRentalMetrics.RESULT_TAG,
+                        CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR)
+                .timer().count());
+        Assert.assertNull(meterRegistry.find(CarRentalMetrics.VALIDATION_STEPS)
+                .tags(CarRentalMetrics.STEP_TAG, "availability").timer());
+        Assert.assertNull(meterRegistry.find(CarRentalMetrics.VALIDATION_STEPS)
+                .tags(CarRentalMetrics.STEP_TAG, "countries").timer());
+    }
+
+    @Test
+    public void testBookCarMetricsOfSuccessfulBooking() {
+        final MeterRegistry meterRegistry = enableMetrics();
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingRepository.save(Matchers.any(Booking.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        carRentalService.bookCar(vin, LocalDate.now().plusDays(1),
+                LocalDate.now().plusDays(5), null);
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.SERVICE_CALLS)
+                .tags(CarRentalMetrics.OPERATION_TAG, "bookCar", CarRentalMetrics.RESULT_TAG,
+                        CarRentalMetrics.SUCCESS)
+                .timer().count());
+        Assert.assertEquals(4, meterRegistry.get(CarRentalMetrics.VALIDATION_STEPS)
+                .tag(CarRentalMetrics.RESULT_TAG, CarRentalMetrics.SUCCESS).timers().size());
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.SERVICE_CALLS)
+                .tags(CarRentalMetrics.OPERATION_TAG, "getCarDetails").timer().count());
+    }
+
+    @Test
+    public void testViewAndJournalMetrics() {
+        Mockito.when(availabilityCalendar.getRebuildCount()).thenReturn(3L);
+        Mockito.when(bookingJournal.isEnabled()).thenReturn(true);
+        Mockito.when(bookingJournal.getAppendedCount()).thenReturn(10L);
+        Mockito.when(bookingJournal.getSavedCount()).thenReturn(7L);
+        Mockito.when(bookingJournal.getUnsavedRecordNr()).thenReturn(3);
+        Mockito.when(bookingJournal.getFlushLagMillis()).thenReturn(250L);
+        final MeterRegistry meterRegistry = enableMetrics();
+
+        carRentalService.findAvailableCars();
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.VIEW_REBUILDS)
+                .tag(CarRentalMetrics.VIEW_TAG, "availableCarsSnapshot").functionCounter().count(),
+                0);
+        ((CarRentalServiceImpl) carRentalService).getAvailableCarsSnapshot()
+                .bookingSaved("vin1", LocalDate.now(), LocalDate.now().plusDays(1));
+        Assert.assertEquals(1, meterRegistry.get(CarRentalMetrics.VIEW_UPDATES)
+                .tag(CarRentalMetrics.VIEW_TAG, "availableCarsSnapshot").functionCounter().count(),
+                0);
+        Assert.assertTrue(meterRegistry.get(CarRentalMetrics.VIEW_AGE)
+                .tag(CarRentalMetrics.VIEW_TAG, "availableCarsSnapshot").gauge().value() >= 0);
+        Assert.assertEquals(3, meterRegistry.get(CarRentalMetrics.VIEW_REBUILDS)
+                .tag(CarRentalMetrics.VIEW_TAG, "availabilityCalendar").functionCounter().count(),
+                0);
+        Assert.assertNotNull(meterRegistry.get(CarRentalMetrics.VIEW_LAST_REBUILD)
+                .tag(CarRentalMetrics.VIEW_TAG, "availabilityCalendar").gauge());
+        Assert.assertEquals(10, meterRegistry.get(CarRentalMetrics.JOURNAL_RECORDS)
+                .tag(CarRentalMetrics.STATE_TAG, "appended").functionCounter().count(), 0);
+        Assert.assertEquals(7, meterRegistry.get(CarRentalMetrics.JOURNAL_RECORDS)
+                .tag(CarRentalMetrics.STATE_TAG, "saved").functionCounter().count(), 0);
+        Assert.assertEquals(3,
+                meterRegistry.get(CarRentalMetrics.JOURNAL_UNSAVED_RECORDS).gauge().value(), 0);
+        Assert.assertEquals(250,
+                meterRegistry.get(CarRentalMetrics.JOURNAL_FLUSH_LAG).gauge().value(), 0);
+        Assert.assertNotNull(meterRegistry.get(CarRentalMetrics.JOURNAL_GROUP_COMMITS)
+                .functionCounter());
+        Assert.assertNotNull(meterRegistry.get(CarRentalMetrics.JOURNAL_LAST_GROUP_COMMIT)
+                .gauge());
+    }
+
     @Test
     public void testBookCarWithFromDateNull() {
         try {
             carRentalService.bookCar(Long.toString(random.nextLong()), null,
-                    DateUtils.addDays(new Date(), 5), null);
+                    LocalDate.now().plusDays(5), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -119,7 +444,7 @@ public class CarRentalServiceTest {
     @Test
     public void testBookCarWithToDateNull() {
         try {
-            carRentalService.bookCar(Long.toString(random.nextLong()), new Date(), null, null);
+            carRentalService.bookCar(Long.toString(random.nextLong()), LocalDate.now(), null, null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -132,7 +457,7 @@ public class CarRentalServiceTest {
     public void testBookCarWithToDateBeforeFromDate() {
         try {
             carRentalService.bookCar(Long.toString(random.nextLong()),
-                    DateUtils.addDays(new Date(), 5), new Date(), null);
+                    LocalDate.now().plusDays(5), LocalDate.now(), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -145,7 +470,7 @@ public class CarRentalServiceTest {
     public void testBookCarWithFromDateBeforeToday() {
         try {
             carRentalService.bookCar(Long.toString(random.nextLong()),
-                    DateUtils.addDays(new Date(), -5), DateUtils.addDays(new Date(), 5), null);
+                    LocalDate.now().minusDays(5), LocalDate.now().plusDays(5), null);
             Assert.fail();
         } catch (final CarRentalException e) {
             Assert.assertNotNull(e.getErrorCode());
@@ -153,4 +478,260 @@ public class CarRentalServiceTest {
                     e.getErrorCode());
         }
     }
+
+    @Test
+    public void testBookCarStartingToday() throws Exception {
+        final String vin = Long.toString(random.nextLong());
+        Mockito.when(carRepository.findOne(vin)).thenReturn(createCar(vin));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.eq(vin), Matchers.any(),
+                Matchers.any())).thenReturn(true);
+        Mockito.when(bookingRepository.save(Matchers.any(Booking.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+
+        final LocalDate today = LocalDate.now();
+        final Booking booking = carRentalService.bookCar(vin, today, today, null);
+        Assert.assertEquals(today, booking.getFromDate());
+        Assert.assertEquals(today, booking.getToDate());
+    }
+
+    @Test
+    public void testBookCarsPartialMode() {
+        mockBatchBooking(true);
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", null, "vin2"), false);
+        Assert.assertEquals(3, outcomes.size());
+        Assert.assertTrue(outcomes.get(0).isSuccessful());
+        Assert.assertEquals("vin1", outcomes.get(0).getBooking().getBookedCar().getVin());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_MISSING_VIN,
+                outcomes.get(1).getError().getErrorCode());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
+                outcomes.get(2).getError().getErrorCode());
+        Mockito.verify(carRepository).findAll(Matchers.<Iterable<String>> any());
+        Mockito.verify(carRepository, Mockito.never()).findOne(Matchers.anyString());
+        Mockito.verify(bookingRepository).save(Matchers.<Iterable<Booking>> any());
+    }
+
+    @Test
+    public void testBookCarsAtomicModeAbortsBatch() {
+        mockBatchBooking(true);
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin2"), true);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                outcomes.get(0).getError().getErrorCode());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_NONEXISTENT_CAR,
+                outcomes.get(1).getError().getErrorCode());
+        Mockito.verifyZeroInteractions(bookingRepository);
+        Mockito.verify(bookingScheduleIndex, Mockito.never()).reserve(Matchers.anyString(),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+    }
+
+    @Test
+    public void testBookCarsAtomicModeReleasesReservations() {
+        mockBatchBooking(false);
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin1"), true);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                outcomes.get(0).getError().getErrorCode());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
+                outcomes.get(1).getError().getErrorCode());
+        Mockito.verify(bookingScheduleIndex).release(Matchers.eq("vin1"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testBookCarsAppendsBatchToJournalAsUnit() {
+        mockBatchBooking(true);
+        final CompletableFuture<List<Booking>> failedCommit = new CompletableFuture<>();
+        failedCommit.completeExceptionally(new IllegalStateException("Disk failure"));
+        Mockito.when(bookingJournal.isEnabled()).thenReturn(true);
+        Mockito.when(bookingJournal.appendAll(Matchers.<List<Booking>> any()))
+                .thenReturn(failedCommit);
+
+        try {
+            carRentalService.bookCars(createBatch("vin1", "vin1"), false);
+            Assert.fail();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals("Disk failure", e.getMessage());
+        }
+        Mockito.verify(bookingJournal, Mockito.never()).append(Matchers.any(Booking.class));
+        Mockito.verify(bookingScheduleIndex, Mockito.times(2)).release(Matchers.eq("vin1"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testBookCarsPartialModeFailedCountryCheckFailsItsRequestOnly() {
+        mockBatchBooking(true);
+        mockFailedCountryCheck("vin2");
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin2"), false);
+        Assert.assertTrue(outcomes.get(0).isSuccessful());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_VALIDATION_FAILED,
+                outcomes.get(1).getError().getErrorCode());
+        Mockito.verify(bookingRepository).save(Matchers.<Iterable<Booking>> any());
+    }
+
+    @Test
+    public void testBookCarsAtomicModeFailedCountryCheckAbortsBatch() {
+        mockBatchBooking(true);
+        mockFailedCountryCheck("vin2");
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin2"), true);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                outcomes.get(0).getError().getErrorCode());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_VALIDATION_FAILED,
+                outcomes.get(1).getError().getErrorCode());
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testBookCarsWithHeldSlotChecksCountriesOfHoldersOnly() {
+        enableSlotHold();
+        mockBatchBooking(false);
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin1"), false);
+        Assert.assertTrue(outcomes.get(0).isSuccessful());
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_CAR_IS_BOOKED,
+                outcomes.get(1).getError().getErrorCode());
+        Mockito.verify(asyncCountryCheckerService).isCountriesAllowedForCar(Matchers.eq("vin1"),
+                Matchers.<String[]> any());
+        Mockito.verify(bookingScheduleIndex, Mockito.times(2)).reserve(Matchers.eq("vin1"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Mockito.verify(bookingScheduleIndex, Mockito.never()).release(Matchers.anyString(),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+    }
+
+    @Test
+    public void testBookCarsAtomicModeReleasesHeldSlots() {
+        enableSlotHold();
+        mockBatchBooking(true);
+        mockFailedCountryCheck("vin2");
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1", "vin2"), true);
+        Assert.assertEquals(CarRentalErrorCodes.ERROR_BOOKING_BATCH_ABORTED,
+                outcomes.get(0).getError().getErrorCode());
+        Mockito.verify(bookingScheduleIndex).release(Matchers.eq("vin1"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Mockito.verify(bookingScheduleIndex).release(Matchers.eq("vin2"),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any());
+        Mockito.verifyZeroInteractions(bookingRepository);
+    }
+
+    @Test
+    public void testBookCarsRunsAdditionalValidators() {
+        mockBatchBooking(true);
+        ReflectionTestUtils.setField(carRentalService, "bookingValidators",
+                Arrays.asList(new BookingValidator() {
+                    public String getName() {
+                        return "custom";
+                    }
+
+                    public int getCostHint() {
+                        return COST_IN_MEMORY;
+                    }
+
+                    public CompletableFuture<Void> validate(
+                            final BookingValidationContext context) {
+                        final CompletableFuture<Void> result = new CompletableFuture<>();
+                        result.completeExceptionally(new CarRentalException("custom", "Rejected"));
+                        return result;
+                    }
+                }));
+        ((CarRentalServiceImpl) carRentalService).init();
+
+        final List<BookingOutcome> outcomes =
+                carRentalService.bookCars(createBatch("vin1"), false);
+        Assert.assertEquals("custom", outcomes.get(0).getError().getErrorCode());
+        Mockito.verifyZeroInteractions(asyncCountryCheckerService, bookingRepository);
+    }
+
+    /**
+     * Makes the country check of a car fail. Cars "vin1" and the failing one exist.
+     *
+     * @param vin
+     *            VIN value of the car whose country check fails
+     */
+    private void mockFailedCountryCheck(final String vin) {
+        Mockito.when(carRepository.findAll(Matchers.<Iterable<String>> any()))
+                .thenReturn(Arrays.asList(createCar("vin1"), createCar(vin)));
+        final CompletableFuture<Boolean> failedCheck = new CompletableFuture<>();
+        failedCheck.completeExceptionally(new IllegalStateException("Checker is down"));
+        Mockito.when(asyncCountryCheckerService.isCountriesAllowedForCar(Matchers.eq(vin),
+                Matchers.<String[]> any())).thenReturn(failedCheck);
+    }
+
+    /**
+     * Mocks the collaborators of batch bookings. Only car "vin1" exists.
+     *
+     * @param isRepeatedReservationAllowed
+     *            <code>false</code> if only the first reservation succeeds
+     */
+    private void mockBatchBooking(final boolean isRepeatedReservationAllowed) {
+        Mockito.when(carRepository.findAll(Matchers.<Iterable<String>> any()))
+                .thenReturn(Arrays.asList(createCar("vin1")));
+        Mockito.when(bookingScheduleIndex.isCarAvailable(Matchers.anyString(),
+                Matchers.<LocalDate> any(), Matchers.<LocalDate> any())).thenReturn(true);
+        Mockito.when(bookingScheduleIndex.reserve(Matchers.anyString(), Matchers.<LocalDate> any(),
+                Matchers.<LocalDate> any())).thenReturn(true, isRepeatedReservationAllowed);
+        Mockito.when(bookingRepository.save(Matchers.<Iterable<Booking>> any()))
+                .thenAnswer(invocation -> invocation.getArguments()[0]);
+    }
+
+    private List<BookingRequest> createBatch(final String... vins) {
+        final List<BookingRequest> requests = new ArrayList<>();
+        for (final String vin : vins) {
+            requests.add(new BookingRequest(vin, LocalDate.now().plusDays(1),
+                    LocalDate.now().plusDays(2), null));
+        }
+        return requests;
+    }
+
+    private void enableCarCache() {
+        ReflectionTestUtils.setField(carRentalService, "carCacheMaximumSize", 10);
+        ReflectionTestUtils.setField(carRentalService, "carCacheTimeToLiveSeconds", 60L);
+        ((CarRentalServiceImpl) carRentalService).init();
+    }
+
+    private void enableSlotHold() {
+        ReflectionTestUtils.setField(carRentalService, "isSlotHeldDuringCountryCheck", true);
+        ((CarRentalServiceImpl) carRentalService).init();
+    }
+
+    private MeterRegistry enableMetrics() {
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(carRentalService, "meterRegistry", meterRegistry);
+        ((CarRentalServiceImpl) carRentalService).init();
+        return meterRegistry;
+    }
+
+    private AvailableCar createAvailableCar(final String vin) {
+        return new AvailableCar(vin, "Audi", "A4", 2016, Fuel.DIESEL, "AAA111", CarCategory.SEDAN);
+    }
+
+    private Booking createBooking(
+            final String vin,
+            final LocalDate fromDate,
+            final LocalDate toDate) {
+        final Booking booking = new Booking();
+        booking.setBookedCar(createCar(vin));
+        booking.setFromDate(fromDate);
+        booking.setToDate(toDate);
+        return booking;
+    }
+
+    private Car createCar(final String vin) {
+        final Car car = new Car();
+        car.setVin(vin);
+        return car;
+    }
 }
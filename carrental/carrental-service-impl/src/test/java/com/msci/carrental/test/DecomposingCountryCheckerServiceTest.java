@@ -0,0 +1,96 @@
+package com.msci.carrental.test;
+
+import com.msci.carrental.CountryCheckerService;
+import com.msci.carrental.country.CountryPermissionStore;
+import com.msci.carrental.country.DecomposingCountryCheckerService;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * Unit test class for {@link DecomposingCountryCheckerService}.
+ *
+ */
+public class DecomposingCountryCheckerServiceTest {
+    private CountryCheckerService countryCheckerService;
+    private CountryPermissionStore countryPermissionStore;
+    private CountryCheckerService decomposingCountryCheckerService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void init() {
+        countryCheckerService = Mockito.mock(CountryCheckerService.class);
+        Mockito.when(countryCheckerService.checkCountriesForCar(Matchers.anyString(),
+                Matchers.<Collection<String>> any())).thenAnswer(invocation -> {
+                    final Map<String, Boolean> permissions = new HashMap<>();
+                    for (final String country : (Collection<String>) invocation
+                            .getArguments()[1]) {
+                        permissions.put(country, !"RU".equals(country));
+                    }
+                    return permissions;
+                });
+        countryPermissionStore = new CountryPermissionStore(100, 1, TimeUnit.HOURS);
+        decomposingCountryCheckerService =
+                new DecomposingCountryCheckerService(countryCheckerService, countryPermissionStore);
+    }
+
+    @Test
+    public void testOnlyUnknownCountriesAreChecked() {
+        Assert.assertTrue(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"DE", "AT"}));
+        Assert.assertTrue(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"DE", "AT", "CH"}));
+        Mockito.verify(countryCheckerService).checkCountriesForCar("vin1",
+                new LinkedHashSet<>(Arrays.asList("DE", "AT")));
+        Mockito.verify(countryCheckerService).checkCountriesForCar("vin1",
+                new LinkedHashSet<>(Arrays.asList("CH")));
+        Assert.assertEquals(3, countryPermissionStore.size());
+    }
+
+    @Test
+    public void testKnownCountriesAreNotChecked() {
+        decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"DE", "AT", "CH"});
+        Assert.assertTrue(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"CH", "DE"}));
+        Mockito.verify(countryCheckerService, Mockito.times(1)).checkCountriesForCar(
+                Matchers.anyString(), Matchers.<Collection<String>> any());
+    }
+
+    @Test
+    public void testKnownDeniedCountryFailsWithoutCheck() {
+        Assert.assertFalse(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"RU"}));
+        Assert.assertFalse(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1",
+                new String[] {"PL", "RU"}));
+        Mockito.verify(countryCheckerService, Mockito.times(1)).checkCountriesForCar(
+                Matchers.anyString(), Matchers.<Collection<String>> any());
+    }
+
+    @Test
+    public void testVerdictsAreStoredPerCar() {
+        decomposingCountryCheckerService.isCountriesAllowedForCar("vin1", new String[] {"DE"});
+        decomposingCountryCheckerService.isCountriesAllowedForCar("vin2", new String[] {"DE"});
+        Mockito.verify(countryCheckerService, Mockito.times(2)).checkCountriesForCar(
+                Matchers.anyString(), Matchers.<Collection<String>> any());
+    }
+
+    @Test
+    public void testDomesticCheckIsPassedThrough() {
+        Mockito.when(countryCheckerService.isCountriesAllowedForCar("vin1", null))
+                .thenReturn(true);
+        Assert.assertTrue(decomposingCountryCheckerService.isCountriesAllowedForCar("vin1", null));
+        Mockito.verify(countryCheckerService).isCountriesAllowedForCar("vin1", null);
+        Assert.assertEquals(0, countryPermissionStore.size());
+    }
+}
@@ -0,0 +1,307 @@
+package com.msci.carrental.client.tester;
+
+import com.msci.carrental.model.Car;
+import com.msci.carrental.rest.BookingResult;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Load generator simulating users with a non-blocking HTTP client. Every user lists the
+ * available cars, gets the details of a random one, and books it for a random period. The
+ * requests of a user are chained by callbacks, so no thread waits for the responses, and
+ * thousands of concurrent users share a pool of persistent connections.
+ * <p>
+ * In closed loop mode every user starts over when the booking is answered; in open loop mode new
+ * users arrive at a fixed rate. The latencies of the requests are recorded by operation, the
+ * first request of a user arriving in open loop mode is measured from its intended start.
+ *
+ */
+public class AsyncLoadGenerator {
+    /** Type of car lists. */
+    private static final ParameterizedTypeReference<List<Car>> CAR_LIST_TYPE =
+            new ParameterizedTypeReference<List<Car>>() {};
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(AsyncLoadGenerator.class);
+    /** Settings of the load test. */
+    private final LoadSettings settings;
+    /** Non-blocking HTTP client. */
+    private final CloseableHttpAsyncClient httpClient;
+    /** Spring's {@link AsyncRestTemplate} for calling RESTFul car rental service. */
+    private final AsyncRestTemplate restTemplate;
+    /** Base URL of the car rental server. */
+    private final String callingHost;
+    /** Request entity of the GET requests, selecting the wire format. */
+    private final HttpEntity<?> requestEntity;
+    /** Headers of the requests, selecting the wire format. */
+    private final HttpHeaders headers = new HttpHeaders();
+    /** Number of users in progress, plus one while users are being started. */
+    private final AtomicInteger runningUserNr = new AtomicInteger(1);
+    /** Latch released when the last user is done. */
+    private final CountDownLatch usersDone = new CountDownLatch(1);
+
+    /**
+     * Ctor.
+     *
+     * @param settings
+     *            settings of the load test
+     * @param messageConverters
+     *            message converters of the wire formats
+     * @param payloadSizeInterceptor
+     *            counter of the payload sizes
+     */
+    public AsyncLoadGenerator(
+            final LoadSettings settings,
+            final List<HttpMessageConverter<?>> messageConverters,
+            final PayloadSizeInterceptor payloadSizeInterceptor) {
+        this.settings = settings;
+        // Persistent connections are kept alive as long as the server allows
+        httpClient = HttpAsyncClients.custom().setMaxConnTotal(settings.getMaxConnections())
+                .setMaxConnPerRoute(settings.getMaxConnections()).build();
+        restTemplate =
+                new AsyncRestTemplate(new HttpComponentsAsyncClientHttpRequestFactory(httpClient));
+        restTemplate.setMessageConverters(messageConverters);
+        restTemplate.setInterceptors(Collections.singletonList(payloadSizeInterceptor));
+        callingHost = "http://" + settings.getHost();
+        headers.setAccept(Collections.singletonList(settings.getMediaType()));
+        headers.setContentType(settings.getMediaType());
+        requestEntity = new HttpEntity<Object>(headers);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @return statistics of the measured requests
+     * @throws IOException
+     *             If the HTTP client can't be closed.
+     * @throws InterruptedException
+     *             If the thread is interrupted while waiting for the users.
+     */
+    public LoadStatistics run() throws IOException, InterruptedException {
+        logger.info("Starting load test: {}", settings);
+        httpClient.start();
+        final long startNanos = System.nanoTime();
+        final LoadStatistics statistics =
+                new LoadStatistics(startNanos + settings.getWarmupNanos());
+        final long endNanos = settings.getRunNanos() == Long.MAX_VALUE ? Long.MAX_VALUE
+                : startNanos + settings.getRunNanos();
+        final AtomicInteger remainingUserNr = new AtomicInteger(
+                settings.getRequestNr() == 0 ? Integer.MAX_VALUE : settings.getRequestNr());
+        if (settings.getMode() == LoadSettings.LoadMode.OPEN) {
+            runOpenLoop(statistics, startNanos, endNanos, remainingUserNr);
+        } else {
+            for (int i = 0; i < settings.getUserNr(); i++) {
+                startClosedLoopUser(statistics, endNanos, remainingUserNr);
+            }
+        }
+        userDone();
+        usersDone.await();
+        httpClient.close();
+        return statistics;
+    }
+
+    /**
+     * Starts users at the fixed arrival rate.
+     *
+     * @param statistics
+     *            request statistics
+     * @param startNanos
+     *            start of the run in {@link System#nanoTime()}
+     * @param endNanos
+     *            end of the run in {@link System#nanoTime()}, {@link Long#MAX_VALUE} if not
+     *            limited
+     * @param remainingUserNr
+     *            number of users still to start
+     */
+    private void runOpenLoop(
+            final LoadStatistics statistics,
+            final long startNanos,
+            final long endNanos,
+            final AtomicInteger remainingUserNr) {
+        final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) settings.getRate();
+        for (long i = 0; remainingUserNr.getAndDecrement() > 0; i++) {
+            final long intendedStartNanos = startNanos + (long) (i * intervalNanos);
+            if (!LoadGenerator.isBefore(intendedStartNanos, endNanos)) {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = intendedStartNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            runningUserNr.incrementAndGet();
+            runUser(statistics, intendedStartNanos).whenComplete((result, e) -> userDone());
+        }
+    }
+
+    /**
+     * Starts a user in closed loop mode, which starts over when it is done.
+     *
+     * @param statistics
+     *            request statistics
+     * @param endNanos
+     *            end of the run in {@link System#nanoTime()}, {@link Long#MAX_VALUE} if not
+     *            limited
+     * @param remainingUserNr
+     *            number of users still to start
+     */
+    private void startClosedLoopUser(
+            final LoadStatistics statistics,
+            final long endNanos,
+            final AtomicInteger remainingUserNr) {
+        final long startNanos = System.nanoTime();
+        if (LoadGenerator.isBefore(startNanos, endNanos)
+                && remainingUserNr.getAndDecrement() > 0) {
+            runningUserNr.incrementAndGet();
+            runUser(statistics, startNanos).whenComplete((result, e) -> {
+                startClosedLoopUser(statistics, endNanos, remainingUserNr);
+                userDone();
+            });
+        }
+    }
+
+    /**
+     * Counts a user done, and releases the waiting for the users if it was the last one.
+     */
+    private void userDone() {
+        if (runningUserNr.decrementAndGet() == 0) {
+            usersDone.countDown();
+        }
+    }
+
+    /**
+     * Runs the requests of a user: lists the available cars, gets the details of a random one,
+     * and books it. A failed request ends the requests of the user.
+     *
+     * @param statistics
+     *            request statistics
+     * @param startNanos
+     *            (intended) start of the first request in {@link System#nanoTime()}
+     * @return future completed when the user is done
+     */
+    private CompletableFuture<Void> runUser(
+            final LoadStatistics statistics,
+            final long startNanos) {
+        final Random random = ThreadLocalRandom.current();
+        return send(statistics, LoadOperation.AVAILABILITY, startNanos,
+                () -> restTemplate.exchange(
+                        callingHost + LoadOperation.AVAILABILITY.getPath() + "?fields=vin",
+                        HttpMethod.GET, requestEntity, CAR_LIST_TYPE))
+                .thenCompose(availableCars -> {
+                    final List<Car> cars = availableCars.getBody();
+                    if (cars.isEmpty()) {
+                        return CompletableFuture.<ResponseEntity<Car>>completedFuture(null);
+                    }
+                    final String vin = cars.get(random.nextInt(cars.size())).getVin();
+                    return send(statistics, LoadOperation.DETAILS, System.nanoTime(),
+                            () -> restTemplate.exchange(
+                                    callingHost + LoadOperation.DETAILS.getPath() + "/" + vin,
+                                    HttpMethod.GET, requestEntity, Car.class));
+                }).thenCompose(car -> {
+                    if (car == null) {
+                        return CompletableFuture.<ResponseEntity<BookingResult>>completedFuture(
+                                null);
+                    }
+                    return send(statistics, LoadOperation.BOOKING, System.nanoTime(),
+                            () -> restTemplate.exchange(
+                                    callingHost + LoadOperation.BOOKING.getPath(),
+                                    HttpMethod.POST,
+                                    new HttpEntity<>(LoadGenerator.createBooking(
+                                            car.getBody().getVin(), random), headers),
+                                    BookingResult.class));
+                }).thenAccept(bookingResult -> {});
+    }
+
+    /**
+     * Sends a request, and records it when it is answered. Failed bookings are answered
+     * normally, and recorded with the error code of the booking result.
+     *
+     * @param statistics
+     *            request statistics
+     * @param operation
+     *            operation of the request
+     * @param startNanos
+     *            (intended) start of the request in {@link System#nanoTime()}
+     * @param request
+     *            sender of the request
+     * @param <T>
+     *            type of the response body
+     * @return future of the response, failed if the request failed
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> send(
+            final LoadStatistics statistics,
+            final LoadOperation operation,
+            final long startNanos,
+            final Supplier<ListenableFuture<ResponseEntity<T>>> request) {
+        CompletableFuture<ResponseEntity<T>> response;
+        try {
+            response = toCompletableFuture(request.get());
+        } catch (final RestClientException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        return response.whenComplete((result, e) -> {
+            String errorCode = null;
+            if (e != null) {
+                logger.debug("Request of {} failed", operation, e);
+                errorCode = LoadGenerator.getErrorCode(unwrap(e));
+            } else if (result.getBody() instanceof BookingResult) {
+                errorCode = ((BookingResult) result.getBody()).getErrorCode();
+            }
+            statistics.record(operation, startNanos, System.nanoTime(), errorCode);
+        });
+    }
+
+    /**
+     * Adapts a {@link ListenableFuture} to a {@link CompletableFuture}.
+     *
+     * @param listenableFuture
+     *            listenable future
+     * @param <T>
+     *            type of the result
+     * @return completable future
+     */
+    private static <T> CompletableFuture<T> toCompletableFuture(
+            final ListenableFuture<T> listenableFuture) {
+        final CompletableFuture<T> completableFuture = new CompletableFuture<>();
+        listenableFuture.addCallback(completableFuture::complete,
+                completableFuture::completeExceptionally);
+        return completableFuture;
+    }
+
+    /**
+     * Gets the cause of a {@link CompletionException}.
+     *
+     * @param exception
+     *            exception of a completable future
+     * @return cause of the exception
+     */
+    private static Throwable unwrap(final Throwable exception) {
+        return exception instanceof CompletionException && exception.getCause() != null
+                ? exception.getCause() : exception;
+    }
+}
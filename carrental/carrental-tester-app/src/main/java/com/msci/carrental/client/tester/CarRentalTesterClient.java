@@ -1,19 +1,12 @@
 package com.msci.carrental.client.tester;
 
-import com.msci.carrental.model.Car;
-import com.msci.carrental.rest.BookingReservationDetails;
-import com.msci.carrental.rest.BookingResult;
+import com.msci.carrental.client.tester.LoadReport.OperationReport;
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
 
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadLocalRandom;
+import java.io.File;
+import java.util.Map;
 
-import org.apache.commons.lang3.time.DateUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
@@ -22,28 +15,21 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
- * Main class for simple command line tester application for Car Rental service.
+ * Main class for simple command line tester application for Car Rental service. It generates
+ * load on the server as set by the options described at {@link LoadSettings}, and reports the
+ * latency percentiles, throughput and errors of the requests.
  *
  */
 @SpringBootApplication
 public class CarRentalTesterClient {
     /** {@link Logger} instance. */
     private final Logger logger = LoggerFactory.getLogger(CarRentalTesterClient.class);
-    /** Thread pool for running booking queries to CarRental service. */
-    private ExecutorService executor;
-    /** Default number of parallel threads processing booking requests. */
-    private static final int DEFAULT_THREAD_NR = 30;
-    /** Default number of booking requests to be sent to server. */
-    private static final int DEFAULT_REQUEST_NR = 100;
-    /** Default host and port of the booking server. */
-    private static final String DEFAULT_CALLING_HOST = "127.0.0.1:8080";
+    /** Counter of the payload sizes. */
+    private final PayloadSizeInterceptor payloadSizeInterceptor = new PayloadSizeInterceptor();
 
     /**
      * Main method.
@@ -57,7 +43,11 @@ public class CarRentalTesterClient {
 
     @Bean
     public RestTemplate restTemplate(final RestTemplateBuilder builder) {
-        return builder.build();
+        // The JDK client is kept for blocking requests, the pooled HttpClient of the non-blocking
+        // client on the classpath would limit the connections per host
+        return builder.requestFactory(new SimpleClientHttpRequestFactory())
+                .additionalMessageConverters(new SmileHttpMessageConverter())
+                .additionalInterceptors(payloadSizeInterceptor).build();
     }
 
     @Bean
@@ -65,120 +55,41 @@ public class CarRentalTesterClient {
         return new ApplicationRunner() {
             @Override
             public void run(final ApplicationArguments args) throws Exception {
-                int threadNr = DEFAULT_THREAD_NR;
-                int requestNr = DEFAULT_REQUEST_NR;
-                String host = DEFAULT_CALLING_HOST;
-                for (final String arg : args.getOptionNames()) {
-                    logger.info("Processing application argument: " + arg);
-                    if (arg.equals("threadNr")) {
-                        threadNr = Integer.parseUnsignedInt(args.getOptionValues(arg).get(0));
-                    } else if (arg.equals("requestNr")) {
-                        requestNr = Integer.parseUnsignedInt(args.getOptionValues(arg).get(0));
-                    } else if (arg.equals("serviceHost")) {
-                        host = args.getOptionValues(arg).get(0);
-                    }
+                final LoadSettings settings = LoadSettings.parse(args);
+                final LoadStatistics statistics =
+                        settings.getClient() == LoadSettings.LoadClient.ASYNC
+                                ? new AsyncLoadGenerator(settings,
+                                        restTemplate.getMessageConverters(),
+                                        payloadSizeInterceptor).run()
+                                : new LoadGenerator(settings, restTemplate).run();
+                final LoadReport report = new LoadReport(settings, statistics, System.nanoTime(),
+                        payloadSizeInterceptor);
+
+                logger.info(
+                        "Completed {} measured requests in {} s ({} requests/s, {} errors) "
+                                + "using {}, sent {} bytes, received {} bytes",
+                        report.getRequestNr(), String.format("%.1f", report.getMeasuredSeconds()),
+                        String.format("%.1f", report.getThroughput()), report.getErrorNr(),
+                        report.getFormat(), report.getSentBytes(), report.getReceivedBytes());
+                for (final Map.Entry<String, OperationReport> entry : report.getOperations()
+                        .entrySet()) {
+                    final OperationReport operationReport = entry.getValue();
+                    logger.info(
+                            "{}: {} requests ({} requests/s), latency ms p50={} p90={} p99={} "
+                                    + "p99.9={} max={}, errors: {}",
+                            entry.getKey(), operationReport.getRequestNr(),
+                            String.format("%.1f", operationReport.getThroughput()),
+                            operationReport.getP50Millis(), operationReport.getP90Millis(),
+                            operationReport.getP99Millis(), operationReport.getP999Millis(),
+                            operationReport.getMaxMillis(), operationReport.getErrorCodes());
                 }
-
-                executor = Executors.newFixedThreadPool(threadNr);
-                final String callingHost = "http://" + host;
-                final List<Future<?>> futures = new ArrayList<>(requestNr);
-                for (int i = 0; i < requestNr; i++) {
-                    futures.add(executor.submit(new CarBookingTask(callingHost, restTemplate)));
-                }
-                for (final Future<?> future : futures) {
-                    if (!future.isDone() && !future.isCancelled()) {
-                        future.get();
-                    }
+                if (settings.getReportPath() != null) {
+                    new ObjectMapper().writerWithDefaultPrettyPrinter()
+                            .writeValue(new File(settings.getReportPath()), report);
+                    logger.info("Report was written to {}", settings.getReportPath());
                 }
                 System.exit(0);
             }
         };
     }
-
-    /**
-     * {@link Runnable} implementation performing a (random) car booking request.
-     *
-     */
-    private class CarBookingTask implements Runnable {
-        /** Host where the car rental server is available. */
-        private final String callingHost;
-        /** Spring's {@link RestTemplate} for calling RESTFul car rental service. */
-        private final RestTemplate restTemplate;
-
-        /**
-         * Ctor.
-         *
-         * @param callingHost
-         *            calling host value
-         * @param restTemplate
-         *            rest template object
-         */
-        public CarBookingTask(final String callingHost, final RestTemplate restTemplate) {
-            super();
-            this.callingHost = callingHost;
-            this.restTemplate = restTemplate;
-        }
-
-        @Override
-        public void run() {
-            // Load all available cars
-            final ParameterizedTypeReference<List<Car>> typeRef =
-                    new ParameterizedTypeReference<List<Car>>() {};
-            final HttpEntity<?> requestEntity = new HttpEntity<Object>(null);
-            final ResponseEntity<List<Car>> responseEntity = restTemplate.exchange(
-                    callingHost + "/availableCars", HttpMethod.GET, requestEntity, typeRef);
-            final List<Car> availableCars = responseEntity.getBody();
-
-            final Random random = ThreadLocalRandom.current();
-
-            // Randomly select an available car
-            final int carNr = random.nextInt(availableCars.size());
-            final Car car2Book = restTemplate.getForObject(
-                    callingHost + "/carDetails/" + availableCars.get(carNr).getVin(), Car.class);
-            logger.debug("Selected car for booking: {}", car2Book);
-
-            // Create a random date range for booking
-            final Date today = new Date();
-            final int daysToAddForFromDate = random.nextInt(730);
-            final int daysToAddForToDate = random.nextInt(10);
-            // Create booking data object
-            final BookingReservationDetails bookingReservationDetails =
-                    new BookingReservationDetails();
-            bookingReservationDetails.setVin(car2Book.getVin());
-            final Date fromDate = DateUtils.addDays(today, daysToAddForFromDate);
-            bookingReservationDetails.setFromDate(fromDate);
-            bookingReservationDetails.setToDate(DateUtils.addDays(fromDate, daysToAddForToDate));
-            // Create foreign countries array
-            final int foreignCountriesArraySize = random.nextInt(10);
-            final String[] foreignCountries =
-                    createForeignCountriesArray(foreignCountriesArraySize);
-            bookingReservationDetails.setForeignCountries(foreignCountries);
-
-            // Send booking to server
-            logger.debug("Sending booking request to server: {}", bookingReservationDetails);
-            final BookingResult bookingResult = restTemplate.postForObject(callingHost + "/bookCar",
-                    bookingReservationDetails, BookingResult.class);
-            logger.info("Received booking result: {}", bookingResult);
-        }
-
-        /**
-         * Generate an array of foreign country names. The country names aren't real names but
-         * randomly generated numbers converted to strings.
-         *
-         * @param arraySize
-         *            size of the array to be generated
-         * @return array with generated country names, or <code>null</code> if the requests array
-         *         size is 0
-         */
-        private String[] createForeignCountriesArray(final int arraySize) {
-            if (arraySize == 0) {
-                return null;
-            }
-            final String[] foreignCountriesArray = new String[arraySize];
-            for (int i = 0; i < arraySize; i++) {
-                foreignCountriesArray[i] = Long.toString(ThreadLocalRandom.current().nextLong());
-            }
-            return foreignCountriesArray;
-        }
-    }
 }
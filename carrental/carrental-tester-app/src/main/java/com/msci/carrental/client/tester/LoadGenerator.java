@@ -0,0 +1,315 @@
+package com.msci.carrental.client.tester;
+
+import com.msci.carrental.model.Car;
+import com.msci.carrental.rest.BookingReservationDetails;
+import com.msci.carrental.rest.BookingResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Load generator sending a mix of availability, details and booking requests to the car rental
+ * server, in closed or open loop mode, and recording their latencies and errors.
+ * <p>
+ * In open loop mode the latency of a request is measured from its intended start, so the time it
+ * waits for a free thread when the server falls behind is included, rather than omitted.
+ *
+ */
+public class LoadGenerator {
+    /** Maximal number of days from today a booking may start at. */
+    private static final int MAX_BOOKING_START_DAYS = 730;
+    /** Maximal length of a booking in days, besides the opening day. */
+    private static final int MAX_BOOKING_DAYS = 9;
+    /** Maximal number of foreign countries of a booking. */
+    private static final int MAX_FOREIGN_COUNTRY_NR = 9;
+    /** Error code of failures without an HTTP response. */
+    private static final String CONNECTION_ERROR = "connectionError";
+    /** {@link Logger} instance. */
+    private final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    /** Settings of the load test. */
+    private final LoadSettings settings;
+    /** Spring's {@link RestTemplate} for calling RESTFul car rental service. */
+    private final RestTemplate restTemplate;
+    /** Base URL of the car rental server. */
+    private final String callingHost;
+    /** Headers of the requests, selecting the wire format. */
+    private final HttpHeaders headers = new HttpHeaders();
+    /** VIN values of the cars the details and booking requests are sent for. */
+    private List<String> vins;
+
+    /**
+     * Ctor.
+     *
+     * @param settings
+     *            settings of the load test
+     * @param restTemplate
+     *            rest template object
+     */
+    public LoadGenerator(final LoadSettings settings, final RestTemplate restTemplate) {
+        this.settings = settings;
+        this.restTemplate = restTemplate;
+        callingHost = "http://" + settings.getHost();
+        headers.setAccept(Collections.singletonList(settings.getMediaType()));
+        headers.setContentType(settings.getMediaType());
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @return statistics of the measured requests
+     * @throws InterruptedException
+     *             If the thread is interrupted while waiting for the requests.
+     * @throws IllegalStateException
+     *             If the server has no available car.
+     */
+    public LoadStatistics run() throws InterruptedException {
+        vins = loadVins();
+        if (vins.isEmpty()) {
+            throw new IllegalStateException("No available car was found");
+        }
+        logger.info("Starting load test with {} cars: {}", vins.size(), settings);
+
+        final long startNanos = System.nanoTime();
+        final LoadStatistics statistics =
+                new LoadStatistics(startNanos + settings.getWarmupNanos());
+        final long endNanos = settings.getRunNanos() == Long.MAX_VALUE ? Long.MAX_VALUE
+                : startNanos + settings.getRunNanos();
+        final ExecutorService executor = Executors.newFixedThreadPool(settings.getThreadNr());
+        if (settings.getMode() == LoadSettings.LoadMode.OPEN) {
+            runOpenLoop(executor, statistics, startNanos, endNanos);
+        } else {
+            runClosedLoop(executor, statistics, endNanos);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return statistics;
+    }
+
+    /**
+     * Sends requests at the fixed arrival rate, each of them on a free thread of the executor.
+     *
+     * @param executor
+     *            executor sending the requests
+     * @param statistics
+     *            request statistics
+     * @param startNanos
+     *            start of the run in {@link System#nanoTime()}
+     * @param endNanos
+     *            end of the run in {@link System#nanoTime()}, {@link Long#MAX_VALUE} if not
+     *            limited
+     */
+    private void runOpenLoop(
+            final ExecutorService executor,
+            final LoadStatistics statistics,
+            final long startNanos,
+            final long endNanos) {
+        final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) settings.getRate();
+        final int requestNr = settings.getRequestNr() == 0 ? Integer.MAX_VALUE
+                : settings.getRequestNr();
+        for (int i = 0; i < requestNr; i++) {
+            final long intendedStartNanos = startNanos + (long) (i * intervalNanos);
+            if (!isBefore(intendedStartNanos, endNanos)) {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = intendedStartNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(waitNanos);
+            }
+            executor.execute(() -> send(statistics, intendedStartNanos));
+        }
+    }
+
+    /**
+     * Sends requests on every thread of the executor, one after the other.
+     *
+     * @param executor
+     *            executor sending the requests
+     * @param statistics
+     *            request statistics
+     * @param endNanos
+     *            end of the run in {@link System#nanoTime()}, {@link Long#MAX_VALUE} if not
+     *            limited
+     */
+    private void runClosedLoop(
+            final ExecutorService executor,
+            final LoadStatistics statistics,
+            final long endNanos) {
+        final AtomicInteger remainingRequestNr = new AtomicInteger(
+                settings.getRequestNr() == 0 ? Integer.MAX_VALUE : settings.getRequestNr());
+        for (int i = 0; i < settings.getThreadNr(); i++) {
+            executor.execute(() -> {
+                long startNanos = System.nanoTime();
+                while (isBefore(startNanos, endNanos)
+                        && remainingRequestNr.getAndDecrement() > 0) {
+                    send(statistics, startNanos);
+                    startNanos = System.nanoTime();
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks if a time is before the end of the run.
+     *
+     * @param nanos
+     *            time in {@link System#nanoTime()}
+     * @param endNanos
+     *            end of the run in {@link System#nanoTime()}, {@link Long#MAX_VALUE} if not
+     *            limited
+     * @return <code>true</code> if the time is before the end of the run
+     */
+    static boolean isBefore(final long nanos, final long endNanos) {
+        // Nano times may overflow, so only their differences are compared
+        return endNanos == Long.MAX_VALUE || nanos - endNanos < 0;
+    }
+
+    /**
+     * Sends a request of a random operation, and records it.
+     *
+     * @param statistics
+     *            request statistics
+     * @param startNanos
+     *            (intended) start of the request in {@link System#nanoTime()}
+     */
+    private void send(final LoadStatistics statistics, final long startNanos) {
+        final Random random = ThreadLocalRandom.current();
+        final LoadOperation operation =
+                settings.selectOperation(random.nextInt(settings.getMixWeightSum()));
+        String errorCode;
+        try {
+            errorCode = execute(operation, random);
+        } catch (final RestClientException e) {
+            logger.debug("Request of {} failed", operation, e);
+            errorCode = getErrorCode(e);
+        }
+        statistics.record(operation, startNanos, System.nanoTime(), errorCode);
+    }
+
+    /**
+     * Gets the error code of a failed request: its HTTP status, or a connection error if no
+     * response was received.
+     *
+     * @param exception
+     *            exception of the request
+     * @return error code
+     */
+    static String getErrorCode(final Throwable exception) {
+        return exception instanceof HttpStatusCodeException
+                ? "http." + ((HttpStatusCodeException) exception).getRawStatusCode()
+                : CONNECTION_ERROR;
+    }
+
+    /**
+     * Executes a request of an operation.
+     *
+     * @param operation
+     *            operation
+     * @param random
+     *            random generator
+     * @return error code of a failed booking, <code>null</code> if the request succeeded
+     * @throws RestClientException
+     *             If the request fails.
+     */
+    private String execute(final LoadOperation operation, final Random random) {
+        final HttpEntity<?> requestEntity = new HttpEntity<Object>(headers);
+        final String vin = vins.get(random.nextInt(vins.size()));
+        switch (operation) {
+            case AVAILABILITY:
+                restTemplate.exchange(callingHost + operation.getPath(), HttpMethod.GET,
+                        requestEntity, new ParameterizedTypeReference<List<Car>>() {});
+                return null;
+            case DETAILS:
+                restTemplate.exchange(callingHost + operation.getPath() + "/" + vin,
+                        HttpMethod.GET, requestEntity, Car.class);
+                return null;
+            case BOOKING:
+                final BookingResult bookingResult = restTemplate.postForObject(
+                        callingHost + operation.getPath(),
+                        new HttpEntity<>(createBooking(vin, random), headers),
+                        BookingResult.class);
+                logger.debug("Received booking result: {}", bookingResult);
+                return bookingResult.getErrorCode();
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Loads the VIN values of the available cars.
+     *
+     * @return VIN values
+     */
+    private List<String> loadVins() {
+        final List<Car> availableCars = restTemplate.exchange(
+                callingHost + LoadOperation.AVAILABILITY.getPath() + "?fields=vin", HttpMethod.GET,
+                new HttpEntity<Object>(headers), new ParameterizedTypeReference<List<Car>>() {})
+                .getBody();
+        final List<String> availableVins = new ArrayList<>(availableCars.size());
+        for (final Car car : availableCars) {
+            availableVins.add(car.getVin());
+        }
+        return Collections.unmodifiableList(availableVins);
+    }
+
+    /**
+     * Creates a booking of a car for a random period, with random foreign countries.
+     *
+     * @param vin
+     *            VIN value of the car
+     * @param random
+     *            random generator
+     * @return booking details
+     */
+    static BookingReservationDetails createBooking(final String vin, final Random random) {
+        final BookingReservationDetails bookingReservationDetails = new BookingReservationDetails();
+        bookingReservationDetails.setVin(vin);
+        final LocalDate fromDate = LocalDate.now().plusDays(random.nextInt(MAX_BOOKING_START_DAYS));
+        bookingReservationDetails.setFromDate(fromDate);
+        bookingReservationDetails
+                .setToDate(fromDate.plusDays(random.nextInt(MAX_BOOKING_DAYS + 1)));
+        bookingReservationDetails.setForeignCountries(
+                createForeignCountriesArray(random.nextInt(MAX_FOREIGN_COUNTRY_NR + 1), random));
+        return bookingReservationDetails;
+    }
+
+    /**
+     * Generate an array of foreign country names. The country names aren't real names but
+     * randomly generated numbers converted to strings.
+     *
+     * @param arraySize
+     *            size of the array to be generated
+     * @param random
+     *            random generator
+     * @return array with generated country names, or <code>null</code> if the requests array
+     *         size is 0
+     */
+    private static String[] createForeignCountriesArray(final int arraySize, final Random random) {
+        if (arraySize == 0) {
+            return null;
+        }
+        final String[] foreignCountriesArray = new String[arraySize];
+        for (int i = 0; i < arraySize; i++) {
+            foreignCountriesArray[i] = Long.toString(random.nextLong());
+        }
+        return foreignCountriesArray;
+    }
+}
@@ -0,0 +1,31 @@
+package com.msci.carrental.client.tester;
+
+/**
+ * Operations of the car rental service sent by the load generator.
+ *
+ */
+public enum LoadOperation {
+    /** Listing the available cars. */
+    AVAILABILITY("/availableCars"),
+    /** Getting the details of a car. */
+    DETAILS("/carDetails"),
+    /** Booking a car. */
+    BOOKING("/bookCar");
+
+    /** Path of the endpoint of the operation. */
+    private final String path;
+
+    /**
+     * Ctor.
+     *
+     * @param path
+     *            path of the endpoint of the operation
+     */
+    private LoadOperation(final String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,286 @@
+package com.msci.carrental.client.tester;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Machine-readable report of a load test, written as JSON so runs can be compared. Latencies are
+ * in milliseconds; the full latency histograms are included in the compressed, Base64 encoded
+ * format of HdrHistogram.
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LoadReport {
+    /** Percentile of the median latency. */
+    private static final double MEDIAN = 50;
+    /** Percentile of the 90th percentile latency. */
+    private static final double P90 = 90;
+    /** Percentile of the 99th percentile latency. */
+    private static final double P99 = 99;
+    /** Percentile of the 99.9th percentile latency. */
+    private static final double P999 = 99.9;
+    /** Microseconds in a millisecond. */
+    private static final double MICROS_PER_MILLI = 1000;
+    /** Load generation mode. */
+    private final String mode;
+    /** HTTP client type. */
+    private final String client;
+    /** Number of threads sending requests, <code>null</code> with the non-blocking client. */
+    private final Integer threadNr;
+    /**
+     * Number of concurrent users, <code>null</code> with the blocking client or in open loop
+     * mode.
+     */
+    private final Integer userNr;
+    /** Size of the connection pool, <code>null</code> with the blocking client. */
+    private final Integer maxConnections;
+    /** Arrival rate of the requests per second, <code>null</code> in closed loop mode. */
+    private final Integer rate;
+    /** Length of the warmup in seconds. */
+    private final int warmupSeconds;
+    /** Request mix: weights of the availability, details and booking requests. */
+    private final String mix;
+    /** Wire format. */
+    private final String format;
+    /** Length of the measurement in seconds. */
+    private final double measuredSeconds;
+    /** Number of measured requests. */
+    private final long requestNr;
+    /** Number of failed measured requests. */
+    private final long errorNr;
+    /** Measured requests per second. */
+    private final double throughput;
+    /** Bytes sent in request bodies, warmup included. */
+    private final long sentBytes;
+    /** Bytes received in response bodies, warmup included. */
+    private final long receivedBytes;
+    /** Reports of the operations. */
+    private final Map<String, OperationReport> operations;
+
+    /**
+     * Ctor.
+     *
+     * @param settings
+     *            settings of the load test
+     * @param statistics
+     *            request statistics
+     * @param endNanos
+     *            end of the measurement in {@link System#nanoTime()}
+     * @param payloadSizeInterceptor
+     *            counter of the payload sizes
+     */
+    public LoadReport(
+            final LoadSettings settings,
+            final LoadStatistics statistics,
+            final long endNanos,
+            final PayloadSizeInterceptor payloadSizeInterceptor) {
+        mode = settings.getMode().name();
+        client = settings.getClient().name();
+        final boolean isAsync = settings.getClient() == LoadSettings.LoadClient.ASYNC;
+        threadNr = isAsync ? null : settings.getThreadNr();
+        userNr = isAsync && settings.getMode() == LoadSettings.LoadMode.CLOSED
+                ? settings.getUserNr() : null;
+        maxConnections = isAsync ? settings.getMaxConnections() : null;
+        rate = settings.getMode() == LoadSettings.LoadMode.OPEN ? settings.getRate() : null;
+        warmupSeconds = settings.getWarmupSeconds();
+        mix = Arrays.stream(settings.getMix()).mapToObj(Integer::toString)
+                .collect(Collectors.joining(":"));
+        format = settings.getMediaType().toString();
+        measuredSeconds = Math.max(endNanos - statistics.getMeasurementStartNanos(), 1)
+                / (double) TimeUnit.SECONDS.toNanos(1);
+        sentBytes = payloadSizeInterceptor.getSentBytes();
+        receivedBytes = payloadSizeInterceptor.getReceivedBytes();
+
+        final Map<String, OperationReport> operationReports = new LinkedHashMap<>();
+        long totalRequestNr = 0;
+        long totalErrorNr = 0;
+        for (final LoadOperation operation : LoadOperation.values()) {
+            final OperationReport operationReport = new OperationReport(
+                    statistics.takeHistogram(operation), statistics.getErrorCounts(operation),
+                    measuredSeconds);
+            operationReports.put(operation.name().toLowerCase(), operationReport);
+            totalRequestNr += operationReport.getRequestNr();
+            totalErrorNr += operationReport.getErrorNr();
+        }
+        operations = Collections.unmodifiableMap(operationReports);
+        requestNr = totalRequestNr;
+        errorNr = totalErrorNr;
+        throughput = requestNr / measuredSeconds;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    public Integer getThreadNr() {
+        return threadNr;
+    }
+
+    public Integer getUserNr() {
+        return userNr;
+    }
+
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public Integer getRate() {
+        return rate;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public double getMeasuredSeconds() {
+        return measuredSeconds;
+    }
+
+    public long getRequestNr() {
+        return requestNr;
+    }
+
+    public long getErrorNr() {
+        return errorNr;
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public Map<String, OperationReport> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Report of the requests of an operation.
+     *
+     */
+    public static class OperationReport {
+        /** Number of measured requests. */
+        private final long requestNr;
+        /** Number of failed measured requests. */
+        private final long errorNr;
+        /** Measured requests per second. */
+        private final double throughput;
+        /** Mean latency. */
+        private final double meanMillis;
+        /** Median latency. */
+        private final double p50Millis;
+        /** 90th percentile latency. */
+        private final double p90Millis;
+        /** 99th percentile latency. */
+        private final double p99Millis;
+        /** 99.9th percentile latency. */
+        private final double p999Millis;
+        /** Maximal latency. */
+        private final double maxMillis;
+        /** Numbers of the failed requests by error code. */
+        private final Map<String, Long> errorCodes;
+        /** Compressed, Base64 encoded latency histogram in microseconds. */
+        private final String histogram;
+
+        /**
+         * Ctor.
+         *
+         * @param histogram
+         *            latency histogram in microseconds
+         * @param errorCodes
+         *            numbers of the failed requests by error code
+         * @param measuredSeconds
+         *            length of the measurement in seconds
+         */
+        private OperationReport(
+                final Histogram histogram,
+                final Map<String, Long> errorCodes,
+                final double measuredSeconds) {
+            requestNr = histogram.getTotalCount();
+            errorNr = errorCodes.values().stream().mapToLong(Long::longValue).sum();
+            throughput = requestNr / measuredSeconds;
+            meanMillis = histogram.getMean() / MICROS_PER_MILLI;
+            p50Millis = histogram.getValueAtPercentile(MEDIAN) / MICROS_PER_MILLI;
+            p90Millis = histogram.getValueAtPercentile(P90) / MICROS_PER_MILLI;
+            p99Millis = histogram.getValueAtPercentile(P99) / MICROS_PER_MILLI;
+            p999Millis = histogram.getValueAtPercentile(P999) / MICROS_PER_MILLI;
+            maxMillis = histogram.getMaxValue() / MICROS_PER_MILLI;
+            this.errorCodes = errorCodes;
+            final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            this.histogram =
+                    Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+        }
+
+        public long getRequestNr() {
+            return requestNr;
+        }
+
+        public long getErrorNr() {
+            return errorNr;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getP999Millis() {
+            return p999Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public Map<String, Long> getErrorCodes() {
+            return errorCodes;
+        }
+
+        public String getHistogram() {
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.msci.carrental.client.tester;
+
+import com.msci.carrental.rest.converter.SmileHttpMessageConverter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.http.MediaType;
+
+/**
+ * Settings of a load test, parsed from the command line options of the tester application:
+ * <ul>
+ * <li><code>--mode=closed|open</code>: closed loop (default), where every thread sends its next
+ * request when the previous one is answered, or open loop, where requests arrive at a fixed rate
+ * regardless of the response times,</li>
+ * <li><code>--client=blocking|async</code>: blocking client with a thread per request (default),
+ * or non-blocking client running the availability, details and booking requests of every user
+ * after each other without holding a thread,</li>
+ * <li><code>--threadNr=N</code>: number of threads sending requests with the blocking client
+ * (default 30),</li>
+ * <li><code>--userNr=N</code>: number of concurrent users of the non-blocking client in closed
+ * loop mode (default 1000),</li>
+ * <li><code>--maxConnections=N</code>: size of the connection pool of the non-blocking client
+ * (default 200),</li>
+ * <li><code>--rate=N</code>: arrival rate of the requests (users of the non-blocking client)
+ * per second in open loop mode (default 100),</li>
+ * <li><code>--warmupSeconds=N</code>: length of the warmup, whose requests are not measured
+ * (default 0),</li>
+ * <li><code>--durationSeconds=N</code>: length of the measurement after the warmup,</li>
+ * <li><code>--requestNr=N</code>: number of requests (users of the non-blocking client) to send,
+ * warmup included (default 100 if no duration is set, unlimited otherwise),</li>
+ * <li><code>--mix=A:D:B</code>: ratio of the availability, details and booking requests of the
+ * blocking client (default 1:1:1),</li>
+ * <li><code>--serviceHost=host:port</code>: address of the car rental server (default
+ * 127.0.0.1:8080),</li>
+ * <li><code>--format=json|smile</code>: wire format (default JSON),</li>
+ * <li><code>--report=path</code>: file the JSON report of the run is written to.</li>
+ * </ul>
+ *
+ */
+public class LoadSettings {
+    /** Default number of parallel threads sending requests. */
+    private static final int DEFAULT_THREAD_NR = 30;
+    /** Default number of requests to be sent to the server, when no duration is set. */
+    private static final int DEFAULT_REQUEST_NR = 100;
+    /** Default number of concurrent users of the non-blocking client. */
+    private static final int DEFAULT_USER_NR = 1000;
+    /** Default size of the connection pool of the non-blocking client. */
+    private static final int DEFAULT_MAX_CONNECTIONS = 200;
+    /** Default arrival rate of the requests per second in open loop mode. */
+    private static final int DEFAULT_RATE = 100;
+    /** Default host and port of the booking server. */
+    private static final String DEFAULT_CALLING_HOST = "127.0.0.1:8080";
+    /** Wire format option value of the binary Smile format. */
+    private static final String SMILE_FORMAT = "smile";
+    /** Load generation mode. */
+    private LoadMode mode = LoadMode.CLOSED;
+    /** HTTP client type. */
+    private LoadClient client = LoadClient.BLOCKING;
+    /** Number of threads sending requests with the blocking client. */
+    private int threadNr = DEFAULT_THREAD_NR;
+    /** Number of concurrent users of the non-blocking client in closed loop mode. */
+    private int userNr = DEFAULT_USER_NR;
+    /** Size of the connection pool of the non-blocking client. */
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    /** Arrival rate of the requests per second in open loop mode. */
+    private int rate = DEFAULT_RATE;
+    /** Length of the warmup in seconds. */
+    private int warmupSeconds;
+    /** Length of the measurement in seconds, 0 if not limited. */
+    private int durationSeconds;
+    /** Number of requests to send, 0 if not limited. */
+    private int requestNr;
+    /** Weights of the operations, indexed by their ordinals. */
+    private int[] mix = {1, 1, 1};
+    /** Host and port of the booking server. */
+    private String host = DEFAULT_CALLING_HOST;
+    /** Media type of the wire format. */
+    private MediaType mediaType = MediaType.APPLICATION_JSON;
+    /** Path of the report file, <code>null</code> if no report file is written. */
+    private String reportPath;
+
+    /**
+     * Parses the settings from the command line options.
+     *
+     * @param args
+     *            application arguments
+     * @return settings
+     * @throws IllegalArgumentException
+     *             If an option value is invalid.
+     */
+    public static LoadSettings parse(final ApplicationArguments args) {
+        final LoadSettings settings = new LoadSettings();
+        for (final String arg : args.getOptionNames()) {
+            final String value = args.getOptionValues(arg).get(0);
+            if (arg.equals("mode")) {
+                settings.mode = LoadMode.valueOf(value.toUpperCase());
+            } else if (arg.equals("client")) {
+                settings.client = LoadClient.valueOf(value.toUpperCase());
+            } else if (arg.equals("threadNr")) {
+                settings.threadNr = parsePositive(arg, value);
+            } else if (arg.equals("userNr")) {
+                settings.userNr = parsePositive(arg, value);
+            } else if (arg.equals("maxConnections")) {
+                settings.maxConnections = parsePositive(arg, value);
+            } else if (arg.equals("rate")) {
+                settings.rate = parsePositive(arg, value);
+            } else if (arg.equals("warmupSeconds")) {
+                settings.warmupSeconds = Integer.parseUnsignedInt(value);
+            } else if (arg.equals("durationSeconds")) {
+                settings.durationSeconds = parsePositive(arg, value);
+            } else if (arg.equals("requestNr")) {
+                settings.requestNr = parsePositive(arg, value);
+            } else if (arg.equals("mix")) {
+                settings.mix = parseMix(value);
+            } else if (arg.equals("serviceHost")) {
+                settings.host = value;
+            } else if (arg.equals("format")) {
+                settings.mediaType = SMILE_FORMAT.equals(value)
+                        ? SmileHttpMessageConverter.APPLICATION_SMILE
+                        : MediaType.APPLICATION_JSON;
+            } else if (arg.equals("report")) {
+                settings.reportPath = value;
+            }
+        }
+        if (settings.durationSeconds == 0 && settings.requestNr == 0) {
+            settings.requestNr = DEFAULT_REQUEST_NR;
+        }
+        return settings;
+    }
+
+    /**
+     * Selects an operation according to the request mix.
+     *
+     * @param randomValue
+     *            random value between 0 (inclusive) and the sum of the weights (exclusive)
+     * @return operation
+     */
+    public LoadOperation selectOperation(final int randomValue) {
+        int weightSum = 0;
+        for (final LoadOperation operation : LoadOperation.values()) {
+            weightSum += mix[operation.ordinal()];
+            if (randomValue < weightSum) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Random value is out of range: " + randomValue);
+    }
+
+    /**
+     * Gets the sum of the weights of the request mix.
+     *
+     * @return sum of the weights
+     */
+    public int getMixWeightSum() {
+        return Arrays.stream(mix).sum();
+    }
+
+    /**
+     * Gets the length of the warmup.
+     *
+     * @return warmup length in nanoseconds
+     */
+    public long getWarmupNanos() {
+        return TimeUnit.SECONDS.toNanos(warmupSeconds);
+    }
+
+    /**
+     * Gets the length of the whole run, warmup included.
+     *
+     * @return run length in nanoseconds, {@link Long#MAX_VALUE} if not limited
+     */
+    public long getRunNanos() {
+        return durationSeconds == 0 ? Long.MAX_VALUE
+                : TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+    }
+
+    public LoadMode getMode() {
+        return mode;
+    }
+
+    public LoadClient getClient() {
+        return client;
+    }
+
+    public int getThreadNr() {
+        return threadNr;
+    }
+
+    public int getUserNr() {
+        return userNr;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getRequestNr() {
+        return requestNr;
+    }
+
+    public int[] getMix() {
+        return mix.clone();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getReportPath() {
+        return reportPath;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(256).append("LoadSettings[mode=").append(mode)
+                .append(",client=").append(client).append(",threadNr=").append(threadNr)
+                .append(",userNr=").append(userNr).append(",maxConnections=")
+                .append(maxConnections).append(",rate=").append(rate)
+                .append(",warmupSeconds=").append(warmupSeconds).append(",durationSeconds=")
+                .append(durationSeconds).append(",requestNr=").append(requestNr)
+                .append(",mix=").append(Arrays.toString(mix)).append(",host=").append(host)
+                .append(",mediaType=").append(mediaType).append(",reportPath=")
+                .append(reportPath).append(']').toString();
+    }
+
+    /**
+     * Parses a positive integer option value.
+     *
+     * @param name
+     *            option name
+     * @param value
+     *            option value
+     * @return parsed value
+     * @throws IllegalArgumentException
+     *             If the value is not a positive integer.
+     */
+    private static int parsePositive(final String name, final String value) {
+        final int parsedValue = Integer.parseUnsignedInt(value);
+        if (parsedValue == 0) {
+            throw new IllegalArgumentException("Option " + name + " must be positive");
+        }
+        return parsedValue;
+    }
+
+    /**
+     * Parses a request mix, e.g. <code>60:30:10</code>.
+     *
+     * @param value
+     *            weights of the availability, details and booking requests, separated by colons
+     * @return weights of the operations, indexed by their ordinals
+     * @throws IllegalArgumentException
+     *             If the request mix is invalid.
+     */
+    private static int[] parseMix(final String value) {
+        final String[] weights = value.split(":");
+        if (weights.length != LoadOperation.values().length) {
+            throw new IllegalArgumentException("Request mix must have "
+                    + LoadOperation.values().length + " weights: " + value);
+        }
+        final int[] mix = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            mix[i] = Integer.parseUnsignedInt(weights[i].trim());
+        }
+        if (Arrays.stream(mix).sum() == 0) {
+            throw new IllegalArgumentException("Request mix has no positive weight: " + value);
+        }
+        return mix;
+    }
+
+    /**
+     * Load generation modes.
+     *
+     */
+    public static enum LoadMode {
+        /** Every thread sends its next request when the previous one is answered. */
+        CLOSED,
+        /** Requests arrive at a fixed rate, regardless of the response times. */
+        OPEN
+    }
+
+    /**
+     * HTTP client types.
+     *
+     */
+    public static enum LoadClient {
+        /** Blocking client, holding a thread while waiting for a response. */
+        BLOCKING,
+        /** Non-blocking client with a connection pool, waiting for responses without threads. */
+        ASYNC
+    }
+}
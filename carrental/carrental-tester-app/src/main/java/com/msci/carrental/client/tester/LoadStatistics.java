@@ -0,0 +1,101 @@
+package com.msci.carrental.client.tester;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Thread-safe statistics of the requests of a load test: latency histograms and error code
+ * counts per operation. Requests started before the end of the warmup are not recorded.
+ *
+ */
+public class LoadStatistics {
+    /** Number of significant decimal digits of the recorded latencies. */
+    private static final int SIGNIFICANT_DIGITS = 3;
+    /** Start of the measurement in {@link System#nanoTime()}. */
+    private final long measurementStartNanos;
+    /** Latency recorders of the operations, in microseconds. */
+    private final Map<LoadOperation, Recorder> recorders = new EnumMap<>(LoadOperation.class);
+    /** Counters of the failed requests of the operations by error code. */
+    private final Map<LoadOperation, ConcurrentMap<String, LongAdder>> errorCounters =
+            new EnumMap<>(LoadOperation.class);
+
+    /**
+     * Ctor.
+     *
+     * @param measurementStartNanos
+     *            start of the measurement in {@link System#nanoTime()}
+     */
+    public LoadStatistics(final long measurementStartNanos) {
+        this.measurementStartNanos = measurementStartNanos;
+        for (final LoadOperation operation : LoadOperation.values()) {
+            recorders.put(operation, new Recorder(SIGNIFICANT_DIGITS));
+            errorCounters.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Records a request.
+     *
+     * @param operation
+     *            operation of the request
+     * @param startNanos
+     *            start of the request in {@link System#nanoTime()}; its intended start in open
+     *            loop mode, so the latency includes the time it waited for a free thread
+     * @param endNanos
+     *            end of the request in {@link System#nanoTime()}
+     * @param errorCode
+     *            error code of a failed request, <code>null</code> if the request succeeded
+     */
+    public void record(
+            final LoadOperation operation,
+            final long startNanos,
+            final long endNanos,
+            final String errorCode) {
+        if (startNanos - measurementStartNanos < 0) {
+            return;
+        }
+        recorders.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos));
+        if (errorCode != null) {
+            errorCounters.get(operation).computeIfAbsent(errorCode, code -> new LongAdder())
+                    .increment();
+        }
+    }
+
+    public long getMeasurementStartNanos() {
+        return measurementStartNanos;
+    }
+
+    /**
+     * Gets the latency histogram of an operation, and resets its recorder.
+     *
+     * @param operation
+     *            operation
+     * @return latency histogram in microseconds
+     */
+    public Histogram takeHistogram(final LoadOperation operation) {
+        return recorders.get(operation).getIntervalHistogram();
+    }
+
+    /**
+     * Gets the numbers of the failed requests of an operation by error code.
+     *
+     * @param operation
+     *            operation
+     * @return numbers of the failed requests by error code, sorted by error code
+     */
+    public Map<String, Long> getErrorCounts(final LoadOperation operation) {
+        final Map<String, Long> errorCounts = new TreeMap<>();
+        errorCounters.get(operation)
+                .forEach((errorCode, counter) -> errorCounts.put(errorCode, counter.sum()));
+        return Collections.unmodifiableMap(errorCounts);
+    }
+}
@@ -0,0 +1,136 @@
+package com.msci.carrental.client.tester;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureAdapter;
+
+/**
+ * {@link ClientHttpRequestInterceptor} and {@link AsyncClientHttpRequestInterceptor}
+ * implementation counting the bytes of the request and response bodies, so the payload sizes of
+ * the wire formats can be compared.
+ *
+ */
+public class PayloadSizeInterceptor
+        implements ClientHttpRequestInterceptor, AsyncClientHttpRequestInterceptor {
+    /** Number of bytes sent in request bodies. */
+    private final AtomicLong sentBytes = new AtomicLong();
+    /** Number of bytes received in response bodies. */
+    private final AtomicLong receivedBytes = new AtomicLong();
+
+    @Override
+    public ClientHttpResponse intercept(
+            final HttpRequest request,
+            final byte[] body,
+            final ClientHttpRequestExecution execution) throws IOException {
+        sentBytes.addAndGet(body.length);
+        return new CountingClientHttpResponse(execution.execute(request, body));
+    }
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(
+            final HttpRequest request,
+            final byte[] body,
+            final AsyncClientHttpRequestExecution execution) throws IOException {
+        sentBytes.addAndGet(body.length);
+        return new ListenableFutureAdapter<ClientHttpResponse, ClientHttpResponse>(
+                execution.executeAsync(request, body)) {
+            @Override
+            protected ClientHttpResponse adapt(final ClientHttpResponse response) {
+                return new CountingClientHttpResponse(response);
+            }
+        };
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * {@link ClientHttpResponse} wrapper counting the bytes read from the body.
+     *
+     */
+    private class CountingClientHttpResponse implements ClientHttpResponse {
+        /** Wrapped response. */
+        private final ClientHttpResponse response;
+        /** Counting stream of the body, created on first access. */
+        private InputStream body;
+
+        /**
+         * Ctor.
+         *
+         * @param response
+         *            wrapped response
+         */
+        private CountingClientHttpResponse(final ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(response.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        final int b = super.read();
+                        if (b >= 0) {
+                            receivedBytes.incrementAndGet();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(final byte[] bytes, final int off, final int len)
+                            throws IOException {
+                        final int readNr = super.read(bytes, off, len);
+                        if (readNr > 0) {
+                            receivedBytes.addAndGet(readNr);
+                        }
+                        return readNr;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}